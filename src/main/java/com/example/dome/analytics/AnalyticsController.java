@@ -1,15 +1,25 @@
 package com.example.dome.analytics;
 
+import com.example.dome.analytics.archive.TradeArchive;
+import com.example.dome.engine.EngineClock;
 import com.example.dome.model.Trade;
 import com.example.dome.persistence.TradeRepository;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 
 @RestController
@@ -18,6 +28,7 @@ import java.util.List;
 public class AnalyticsController {
 
     private final TradeRepository tradeRepository;
+    private final TradeArchive tradeArchive;
 
     @GetMapping("/trades/csv")
     public void exportTradesCsv(HttpServletResponse response) throws IOException {
@@ -39,9 +50,37 @@ public class AnalyticsController {
                     trade.getQuantity(),
                     trade.getBuyOrderId(),
                     trade.getSellOrderId(),
-                    trade.getTimestamp().toString()
+                    EngineClock.toInstant(trade.getTimestamp()).toString()
                 );
             }
         }
     }
+
+    /** Day summary (VWAP, OHLC, volume) of a symbol from the local trade archive; date defaults to today (UTC). */
+    @GetMapping("/trades/{symbol}/summary")
+    public ResponseEntity<TradeAnalytics.Summary> tradeSummary(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) throws IOException {
+        if (!tradeArchive.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        LocalDate day = date != null ? date : LocalDate.now(ZoneOffset.UTC);
+        return ResponseEntity.ok(TradeAnalytics.summarize(symbol, day, tradeArchive.columns(symbol, day)));
+    }
+
+    /** OHLCV bars of a symbol for one day from the local trade archive. */
+    @GetMapping("/trades/{symbol}/bars")
+    public ResponseEntity<List<TradeAnalytics.Bar>> tradeBars(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "60") long intervalSeconds) throws IOException {
+        if (!tradeArchive.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (intervalSeconds <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocalDate day = date != null ? date : LocalDate.now(ZoneOffset.UTC);
+        return ResponseEntity.ok(TradeAnalytics.bars(tradeArchive.columns(symbol, day), Duration.ofSeconds(intervalSeconds)));
+    }
 }
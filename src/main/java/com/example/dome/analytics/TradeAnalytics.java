@@ -0,0 +1,106 @@
+package com.example.dome.analytics;
+
+import com.example.dome.analytics.archive.TradeColumns;
+import com.example.dome.engine.EngineClock;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregations over one archive partition, computed in a single pass over its mapped columns on
+ * unscaled prices. Rows are in archive order, which for one symbol is trade order.
+ */
+public final class TradeAnalytics {
+
+    private TradeAnalytics() {
+    }
+
+    public record Summary(String symbol, LocalDate date, long trades, long volume, BigDecimal notional,
+                          BigDecimal vwap, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close) {
+    }
+
+    public record Bar(Instant start, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close,
+                      long volume, long trades) {
+    }
+
+    public static Summary summarize(String symbol, LocalDate date, TradeColumns columns) {
+        int rows = columns.rows();
+        if (rows == 0) {
+            return new Summary(symbol, date, 0, 0, BigDecimal.ZERO, null, null, null, null, null);
+        }
+
+        long volume = 0;
+        long high = Long.MIN_VALUE;
+        long low = Long.MAX_VALUE;
+        long notional = 0;
+        boolean notionalOverflow = false;
+        for (int i = 0; i < rows; i++) {
+            long price = columns.unscaledPrice(i);
+            long quantity = columns.quantity(i);
+            volume += quantity;
+            high = Math.max(high, price);
+            low = Math.min(low, price);
+            if (!notionalOverflow) {
+                try {
+                    notional = Math.addExact(notional, Math.multiplyExact(price, quantity));
+                } catch (ArithmeticException e) {
+                    notionalOverflow = true;
+                }
+            }
+        }
+
+        int scale = columns.priceScale();
+        BigDecimal totalNotional = notionalOverflow
+                ? new BigDecimal(exactNotional(columns), scale)
+                : BigDecimal.valueOf(notional, scale);
+        BigDecimal vwap = volume == 0 ? null
+                : totalNotional.divide(BigDecimal.valueOf(volume), MathContext.DECIMAL64).setScale(scale + 4, RoundingMode.HALF_EVEN);
+        return new Summary(symbol, date, rows, volume, totalNotional, vwap,
+                columns.price(0), BigDecimal.valueOf(high, scale), BigDecimal.valueOf(low, scale), columns.price(rows - 1));
+    }
+
+    // Slow path for a day whose notional does not fit a long
+    private static BigInteger exactNotional(TradeColumns columns) {
+        BigInteger total = BigInteger.ZERO;
+        for (int i = 0; i < columns.rows(); i++) {
+            total = total.add(BigInteger.valueOf(columns.unscaledPrice(i)).multiply(BigInteger.valueOf(columns.quantity(i))));
+        }
+        return total;
+    }
+
+    /** OHLCV bars of the given length, aligned to the epoch; intervals without trades are left out. */
+    public static List<Bar> bars(TradeColumns columns, Duration interval) {
+        long intervalNanos = interval.toNanos();
+        int scale = columns.priceScale();
+        List<Bar> bars = new ArrayList<>();
+        int rows = columns.rows();
+        int i = 0;
+        while (i < rows) {
+            long bucket = Math.floorDiv(columns.timestamp(i), intervalNanos);
+            long open = columns.unscaledPrice(i);
+            long high = open;
+            long low = open;
+            long close = open;
+            long volume = 0;
+            int first = i;
+            for (; i < rows && Math.floorDiv(columns.timestamp(i), intervalNanos) == bucket; i++) {
+                long price = columns.unscaledPrice(i);
+                high = Math.max(high, price);
+                low = Math.min(low, price);
+                close = price;
+                volume += columns.quantity(i);
+            }
+            bars.add(new Bar(EngineClock.toInstant(bucket * intervalNanos),
+                    BigDecimal.valueOf(open, scale), BigDecimal.valueOf(high, scale), BigDecimal.valueOf(low, scale),
+                    BigDecimal.valueOf(close, scale), volume, i - first));
+        }
+        return bars;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.dome.analytics.archive;
+
+import com.example.dome.analytics.archive.TradeColumns.Column;
+import com.example.dome.model.Trade;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends rows to the column files of one partition. Opening it cuts every column back to the
+ * rows complete in all of them, so a batch torn by a crash is dropped rather than misaligned.
+ *
+ * Writer thread only.
+ */
+final class PartitionWriter implements AutoCloseable {
+
+    static final String PRICE_SCALE_FILE = "price.scale";
+
+    private final int priceScale;
+    private final FileChannel[] channels = new FileChannel[Column.values().length];
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+    private PartitionWriter(int priceScale) {
+        this.priceScale = priceScale;
+    }
+
+    /** @param priceScale scale of the partition's prices if it is new; an existing partition keeps its own */
+    static PartitionWriter open(Path partition, int priceScale) throws IOException {
+        Files.createDirectories(partition);
+        // Written before any column, so a reader that finds columns also finds the scale
+        Path scaleFile = partition.resolve(PRICE_SCALE_FILE);
+        if (Files.exists(scaleFile)) {
+            priceScale = readPriceScale(partition);
+        } else {
+            Files.writeString(scaleFile, Integer.toString(priceScale), StandardCharsets.US_ASCII);
+        }
+
+        PartitionWriter writer = new PartitionWriter(priceScale);
+        long rows = Column.completeRows(partition);
+        try {
+            for (Column column : Column.values()) {
+                FileChannel channel = FileChannel.open(partition.resolve(column.fileName()),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                writer.channels[column.ordinal()] = channel;
+                channel.truncate(rows * column.width());
+                channel.position(rows * column.width());
+            }
+        } catch (IOException e) {
+            writer.close();
+            throw e;
+        }
+        return writer;
+    }
+
+    static int readPriceScale(Path partition) throws IOException {
+        return Integer.parseInt(Files.readString(partition.resolve(PRICE_SCALE_FILE), StandardCharsets.US_ASCII).trim());
+    }
+
+    /**
+     * Appends the trades, one column file at a time.
+     * @throws ArithmeticException (before anything is written) if a price has more decimals than the partition
+     */
+    void append(List<Trade> trades, int symbolId) throws IOException {
+        long[] prices = new long[trades.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = trades.get(i).getPrice().setScale(priceScale, RoundingMode.UNNECESSARY)
+                    .unscaledValue().longValueExact();
+        }
+
+        for (Column column : Column.values()) {
+            ByteBuffer out = buffer(trades.size() * column.width());
+            for (int i = 0; i < prices.length; i++) {
+                Trade trade = trades.get(i);
+                switch (column) {
+                    case TRADE_ID -> out.putLong(trade.getTradeId());
+                    case TIMESTAMP -> out.putLong(trade.getTimestamp());
+                    case PRICE -> out.putLong(prices[i]);
+                    case QUANTITY -> out.putLong(trade.getQuantity());
+                    case SYMBOL_ID -> out.putInt(symbolId);
+                }
+            }
+            out.flip();
+            FileChannel channel = channels[column.ordinal()];
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+    }
+
+    private ByteBuffer buffer(int bytes) {
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+        }
+        return buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            if (channel == null) {
+                continue;
+            }
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.dome.analytics.archive;
+
+import com.example.dome.engine.EngineClock;
+import com.example.dome.model.Trade;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only columnar archive of trades on local disk, for analytics that should not touch the
+ * SQL trade history.
+ *
+ * Trades are partitioned by UTC day and symbol: {dir}/{yyyy-MM-dd}/{symbol id}/, one file per
+ * column (see TradeColumns.Column) of fixed-width big-endian values, so a partition is read by
+ * memory-mapping its files. Symbol ids are line numbers in {dir}/symbols.
+ *
+ * append() only enqueues; a writer thread appends batches. The archive is a secondary copy (the
+ * SQL table stays the record), so when the queue is full a trade is dropped rather than slowing the
+ * caller down. Drops are counted (getDroppedTrades) and the writer thread logs each new run of them,
+ * so summaries over a partition that lost trades do not go unnoticed. Column files are forced to
+ * disk when a partition is closed.
+ */
+@Component
+public class TradeArchive {
+
+    static final String SYMBOLS_FILE = "symbols";
+
+    // Partitions kept open for appending; normally just today's symbols
+    private static final int MAX_OPEN_PARTITIONS = 256;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final BlockingQueue<Trade> queue;
+    private final int batchSize;
+
+    private final Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+    // Trades dropped since start; droppedReported is how many of them the writer has logged
+    private final AtomicLong dropped = new AtomicLong();
+    private long droppedReported;
+
+    // Writer thread only; evicting a partition closes it
+    private final Map<Partition, PartitionWriter> writers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Partition, PartitionWriter> eldest) {
+            if (size() > MAX_OPEN_PARTITIONS) {
+                closeWriter(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public TradeArchive(@Value("${analytics.archive.enabled:false}") boolean enabled,
+                        @Value("${analytics.archive.dir:data/trade-archive}") String dir,
+                        @Value("${analytics.archive.queue-capacity:65536}") int queueCapacity,
+                        @Value("${analytics.archive.batch-size:4096}") int batchSize) {
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(dir);
+        Path symbols = dir.resolve(SYMBOLS_FILE);
+        if (Files.exists(symbols)) {
+            List<String> lines = Files.readAllLines(symbols, StandardCharsets.UTF_8);
+            for (int id = 0; id < lines.size(); id++) {
+                symbolIds.put(lines.get(id), id);
+            }
+        }
+        running = true;
+        thread = new Thread(this::run, "trade-archive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Never blocks: a trade that does not fit the queue is dropped from the archive and counted. */
+    public void append(Trade trade) {
+        if (enabled && !queue.offer(trade)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /** Trades left out of the archive because its queue was full, since start. */
+    public long getDroppedTrades() {
+        return dropped.get();
+    }
+
+    /** Stops the writer once everything queued is written, and closes the partitions. */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    /** The symbol's trades of that UTC day archived so far; empty if there are none. */
+    public TradeColumns columns(String symbol, LocalDate day) throws IOException {
+        Integer symbolId = symbolIds.get(symbol);
+        if (symbolId == null) {
+            return TradeColumns.EMPTY;
+        }
+        return TradeColumns.open(partitionDir(day, symbolId));
+    }
+
+    private void run() {
+        List<Trade> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Trade first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                    batch.clear();
+                }
+                reportDropped();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reportDropped();
+            writers.forEach(this::closeWriter);
+            writers.clear();
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.get();
+        if (total > droppedReported) {
+            System.err.println("Trade archive queue full: " + (total - droppedReported) + " trades not archived ("
+                    + total + " since start); summaries of their days are incomplete.");
+            droppedReported = total;
+        }
+    }
+
+    private void write(List<Trade> batch) {
+        Map<Partition, List<Trade>> byPartition = new LinkedHashMap<>();
+        for (Trade trade : batch) {
+            LocalDate day = LocalDate.ofInstant(EngineClock.toInstant(trade.getTimestamp()), ZoneOffset.UTC);
+            byPartition.computeIfAbsent(new Partition(trade.getSymbol(), day), p -> new ArrayList<>()).add(trade);
+        }
+        byPartition.forEach((partition, trades) -> {
+            try {
+                int symbolId = symbolId(partition.symbol());
+                PartitionWriter writer = writers.get(partition);
+                if (writer == null) {
+                    writer = PartitionWriter.open(partitionDir(partition.day(), symbolId), trades.get(0).getPrice().scale());
+                    writers.put(partition, writer);
+                }
+                writer.append(trades, symbolId);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to archive " + trades.size() + " trades of " + partition.symbol()
+                        + " on " + partition.day() + ": " + e.getMessage());
+                // Reopened by the next batch, which cuts off anything this one left half written
+                PartitionWriter writer = writers.remove(partition);
+                if (writer != null) {
+                    closeWriter(partition, writer);
+                }
+            }
+        });
+    }
+
+    // Writer thread only: ids are assigned here, readers only look them up
+    private int symbolId(String symbol) throws IOException {
+        Integer id = symbolIds.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        int next = symbolIds.size();
+        Files.writeString(dir.resolve(SYMBOLS_FILE), symbol + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        symbolIds.put(symbol, next);
+        return next;
+    }
+
+    private void closeWriter(Partition partition, PartitionWriter writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Error closing trade archive partition " + partition + ": " + e.getMessage());
+        }
+    }
+
+    private Path partitionDir(LocalDate day, int symbolId) {
+        return dir.resolve(day.toString()).resolve(Integer.toString(symbolId));
+    }
+
+    private record Partition(String symbol, LocalDate day) {
+    }
+}
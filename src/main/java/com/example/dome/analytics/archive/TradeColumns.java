@@ -0,0 +1,134 @@
+package com.example.dome.analytics.archive;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of one archive partition (a symbol on a day), row i being the
+ * i-th trade archived for it. Holds the rows complete when it was opened; trades archived later
+ * need a new view. Prices are unscaled longs at priceScale().
+ *
+ * The mappings are released when the view is garbage collected.
+ */
+public final class TradeColumns {
+
+    public static final TradeColumns EMPTY = new TradeColumns(0, 0, LongBuffer.allocate(0), LongBuffer.allocate(0),
+            LongBuffer.allocate(0), LongBuffer.allocate(0), IntBuffer.allocate(0));
+
+    private final int rows;
+    private final int priceScale;
+    private final LongBuffer tradeIds;
+    private final LongBuffer timestamps;
+    private final LongBuffer prices;
+    private final LongBuffer quantities;
+    private final IntBuffer symbolIds;
+
+    private TradeColumns(int rows, int priceScale, LongBuffer tradeIds, LongBuffer timestamps, LongBuffer prices,
+                         LongBuffer quantities, IntBuffer symbolIds) {
+        this.rows = rows;
+        this.priceScale = priceScale;
+        this.tradeIds = tradeIds;
+        this.timestamps = timestamps;
+        this.prices = prices;
+        this.quantities = quantities;
+        this.symbolIds = symbolIds;
+    }
+
+    static TradeColumns open(Path partition) throws IOException {
+        if (!Files.exists(partition.resolve(PartitionWriter.PRICE_SCALE_FILE))) {
+            return EMPTY;
+        }
+        // A mapping is at most 2 GB
+        int rows = (int) Math.min(Column.completeRows(partition), Integer.MAX_VALUE / Long.BYTES);
+        if (rows == 0) {
+            return EMPTY;
+        }
+        return new TradeColumns(rows, PartitionWriter.readPriceScale(partition),
+                map(partition, Column.TRADE_ID, rows).asLongBuffer(),
+                map(partition, Column.TIMESTAMP, rows).asLongBuffer(),
+                map(partition, Column.PRICE, rows).asLongBuffer(),
+                map(partition, Column.QUANTITY, rows).asLongBuffer(),
+                map(partition, Column.SYMBOL_ID, rows).asIntBuffer());
+    }
+
+    private static ByteBuffer map(Path partition, Column column, int rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(partition.resolve(column.fileName()), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) rows * column.width());
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int priceScale() {
+        return priceScale;
+    }
+
+    public long tradeId(int row) {
+        return tradeIds.get(row);
+    }
+
+    /** Epoch nanoseconds. */
+    public long timestamp(int row) {
+        return timestamps.get(row);
+    }
+
+    public long unscaledPrice(int row) {
+        return prices.get(row);
+    }
+
+    public BigDecimal price(int row) {
+        return BigDecimal.valueOf(prices.get(row), priceScale);
+    }
+
+    public long quantity(int row) {
+        return quantities.get(row);
+    }
+
+    public int symbolId(int row) {
+        return symbolIds.get(row);
+    }
+
+    /** The column files of a partition and their fixed widths. */
+    enum Column {
+        TRADE_ID("trade_id.col", Long.BYTES),
+        TIMESTAMP("timestamp.col", Long.BYTES),
+        PRICE("price.col", Long.BYTES),
+        QUANTITY("quantity.col", Long.BYTES),
+        SYMBOL_ID("symbol_id.col", Integer.BYTES);
+
+        private final String fileName;
+        private final int width;
+
+        Column(String fileName, int width) {
+            this.fileName = fileName;
+            this.width = width;
+        }
+
+        String fileName() {
+            return fileName;
+        }
+
+        int width() {
+            return width;
+        }
+
+        /** Rows present in every column: a batch cut short by a crash leaves some columns longer. */
+        static long completeRows(Path partition) throws IOException {
+            long rows = Long.MAX_VALUE;
+            for (Column column : values()) {
+                Path file = partition.resolve(column.fileName);
+                rows = Math.min(rows, Files.exists(file) ? Files.size(file) / column.width : 0);
+            }
+            return rows;
+        }
+    }
+}
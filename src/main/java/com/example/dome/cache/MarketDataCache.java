@@ -1,51 +1,136 @@
 package com.example.dome.cache;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Top of book per symbol, in two tiers.
+ * The in-process tier is the source of truth: updates and reads only touch a ConcurrentHashMap.
+ * Redis is a write-behind replica for other processes: changed symbols are remembered and a
+ * writer thread sends their latest values in one MSET every marketdata.cache.redis-flush-interval-ms.
+ * Several updates of a symbol between flushes cost one write, and a slow or unavailable Redis
+ * only delays the replica; callers (the persistence stage) never wait on it.
+ */
 @Service
 public class MarketDataCache {
 
     private final StringRedisTemplate redisTemplate;
 
+    private final Map<String, TopOfBook> topOfBook = new ConcurrentHashMap<>();
+    // Symbols changed since their last successful Redis write
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    @Value("${marketdata.cache.redis-flush-interval-ms:50}")
+    private long redisFlushIntervalMillis = 50;
+
+    private ScheduledExecutorService redisWriter;
+    // Writer thread only: log an outage once, not every flush
+    private boolean redisFailing;
+
     public MarketDataCache(StringRedisTemplate redisTemplate) {
         this.redisTemplate = redisTemplate;
     }
 
+    /** Best bid and ask as last updated; either may be null if never set. */
+    public record TopOfBook(BigDecimal bestBid, BigDecimal bestAsk) {
+    }
+
+    @PostConstruct
+    public void start() {
+        redisWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "market-data-redis-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, redisFlushIntervalMillis);
+        redisWriter.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops the writer after one last attempt to bring Redis up to date. */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (redisWriter != null) {
+            redisWriter.shutdown();
+            redisWriter.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flush();
+    }
+
     public void updateBestBid(String symbol, BigDecimal price) {
         if (price == null) return;
-        try {
-            redisTemplate.opsForValue().set("market:" + symbol + ":bestBid", price.toString());
-        } catch (Exception e) {
-            // Fallback or log error if Redis is down, don't crash the engine
-            System.err.println("Failed to update Redis cache (Best Bid): " + e.getMessage());
-        }
+        topOfBook.compute(symbol, (s, old) -> new TopOfBook(price, old != null ? old.bestAsk() : null));
+        dirty.add(symbol);
     }
 
     public void updateBestAsk(String symbol, BigDecimal price) {
         if (price == null) return;
-        try {
-            redisTemplate.opsForValue().set("market:" + symbol + ":bestAsk", price.toString());
-        } catch (Exception e) {
-            System.err.println("Failed to update Redis cache (Best Ask): " + e.getMessage());
-        }
+        topOfBook.compute(symbol, (s, old) -> new TopOfBook(old != null ? old.bestBid() : null, price));
+        dirty.add(symbol);
     }
 
     public String getBestBid(String symbol) {
-        try {
-            return redisTemplate.opsForValue().get("market:" + symbol + ":bestBid");
-        } catch (Exception e) {
-            return null;
-        }
+        TopOfBook top = topOfBook.get(symbol);
+        return top != null && top.bestBid() != null ? top.bestBid().toString() : null;
     }
 
     public String getBestAsk(String symbol) {
+        TopOfBook top = topOfBook.get(symbol);
+        return top != null && top.bestAsk() != null ? top.bestAsk().toString() : null;
+    }
+
+    public TopOfBook getTopOfBook(String symbol) {
+        return topOfBook.get(symbol);
+    }
+
+    /** Writes the latest values of every changed symbol to Redis in one MSET. Writer thread (or shutdown) only. */
+    synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<String> symbols = new ArrayList<>();
+        Map<String, String> values = new HashMap<>();
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            String symbol = it.next();
+            // Removed before reading the value: an update racing with this flush marks the symbol again
+            it.remove();
+            symbols.add(symbol);
+            TopOfBook top = topOfBook.get(symbol);
+            if (top.bestBid() != null) {
+                values.put("market:" + symbol + ":bestBid", top.bestBid().toString());
+            }
+            if (top.bestAsk() != null) {
+                values.put("market:" + symbol + ":bestAsk", top.bestAsk().toString());
+            }
+        }
+
         try {
-            return redisTemplate.opsForValue().get("market:" + symbol + ":bestAsk");
+            redisTemplate.opsForValue().multiSet(values);
+            if (redisFailing) {
+                System.out.println("Redis market data cache reachable again.");
+                redisFailing = false;
+            }
         } catch (Exception e) {
-            return null;
+            // Retried with whatever is latest by the next flush
+            dirty.addAll(symbols);
+            if (!redisFailing) {
+                System.err.println("Failed to update Redis cache, retrying in the background: " + e.getMessage());
+                redisFailing = true;
+            }
         }
     }
 }
@@ -0,0 +1,33 @@
+package com.example.dome.config;
+
+import com.example.dome.marketdata.BinaryMarketDataHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Plain WebSocket endpoint for binary market data, next to the STOMP endpoint of WebSocketConfig.
+ * Only registered when marketdata.binary.enabled is set.
+ */
+@Configuration
+@EnableWebSocket
+public class BinaryWebSocketConfig implements WebSocketConfigurer {
+
+    private final BinaryMarketDataHandler binaryMarketDataHandler;
+    private final String path;
+
+    public BinaryWebSocketConfig(BinaryMarketDataHandler binaryMarketDataHandler,
+                                 @Value("${marketdata.binary.path:/ws/binary}") String path) {
+        this.binaryMarketDataHandler = binaryMarketDataHandler;
+        this.path = path;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        if (binaryMarketDataHandler.isEnabled()) {
+            registry.addHandler(binaryMarketDataHandler, path).setAllowedOriginPatterns("*");
+        }
+    }
+}
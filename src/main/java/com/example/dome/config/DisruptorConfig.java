@@ -1,42 +1,152 @@
 package com.example.dome.config;
 
+import com.example.dome.engine.SequenceIdGenerator;
+import com.example.dome.engine.disruptor.MatchingShards;
 import com.example.dome.engine.disruptor.OrderCommand;
 import com.example.dome.engine.disruptor.OrderCommandFactory;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadFactory;
 
 @Configuration
 public class DisruptorConfig {
 
+    // Number of independent matching pipelines (ring + matching thread + persistence stage)
+    @Value("${engine.shards:1}")
+    private int shardCount = 1;
+
+    // Ring size per shard. Must be power of 2
+    @Value("${engine.ring-size:1024}")
+    private int bufferSize = 1024;
+
+    // Explicit symbol -> shard placement, e.g. engine.shard-map={AAPL:0,MSFT:1}; other symbols are hashed
+    @Value("#{${engine.shard-map:{:}}}")
+    private Map<String, Integer> shardMap = Collections.emptyMap();
+
+    // Persistence stage commits one RocksDB WriteBatch per Disruptor batch, or sooner at these limits
+    @Value("${persistence.batch.max-writes:1000}")
+    private int maxBatchWrites = com.example.dome.engine.disruptor.PersistenceEventHandler.DEFAULT_MAX_BATCH_WRITES;
+
+    @Value("${persistence.batch.max-delay-ms:5}")
+    private long maxBatchDelayMillis = com.example.dome.engine.disruptor.PersistenceEventHandler.DEFAULT_MAX_BATCH_DELAY_MILLIS;
+
+    // Command journal: every sequenced command is appended to mmap'd segments and replayed on recovery
+    @Value("${engine.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    @Value("${engine.journal.dir:data/journal}")
+    private String journalDir = "data/journal";
+
+    @Value("${engine.journal.segment-size-mb:64}")
+    private int journalSegmentSizeMb = 64;
+
+    // Force the journal to disk at the end of every Disruptor batch
+    @Value("${engine.journal.sync:false}")
+    private boolean journalSync;
+
+    // Periodic binary book snapshots; recovery replays only the journal after them. Needs the journal.
+    @Value("${engine.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+
+    @Value("${engine.snapshot.dir:data/snapshots}")
+    private String snapshotDir = "data/snapshots";
+
+    @Value("${engine.snapshot.interval-ms:60000}")
+    private long snapshotIntervalMillis = 60_000;
+
     @Bean
-    public Disruptor<OrderCommand> disruptor(com.example.dome.engine.EngineRegistry engineRegistry,
-                                           com.example.dome.persistence.OrderDao orderDao,
-                                           com.example.dome.event.EventProcessor eventProcessor) {
+    public MatchingShards matchingShards(com.example.dome.engine.EngineRegistry engineRegistry,
+                                         com.example.dome.persistence.OrderDao orderDao,
+                                         com.example.dome.event.EventProcessor eventProcessor,
+                                         com.example.dome.persistence.SequenceStore sequenceStore) throws java.io.IOException {
+        if (shardCount < 1 || shardCount > SequenceIdGenerator.MIGRATION_SHARD) {
+            throw new IllegalArgumentException("engine.shards must be in [1, " + SequenceIdGenerator.MIGRATION_SHARD + "]: " + shardCount);
+        }
+        List<Disruptor<OrderCommand>> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(createShard(i, engineRegistry, orderDao, eventProcessor, sequenceStore));
+        }
+        System.out.println("Started " + shardCount + " matching shard(s), ring size " + bufferSize);
+        return new MatchingShards(shards, shardMap);
+    }
+
+    private Disruptor<OrderCommand> createShard(int shard,
+                                                com.example.dome.engine.EngineRegistry engineRegistry,
+                                                com.example.dome.persistence.OrderDao orderDao,
+                                                com.example.dome.event.EventProcessor eventProcessor,
+                                                com.example.dome.persistence.SequenceStore sequenceStore) throws java.io.IOException {
         ThreadFactory threadFactory = DaemonThreadFactory.INSTANCE;
-        int bufferSize = 1024; // Must be power of 2
 
         Disruptor<OrderCommand> disruptor = new Disruptor<>(
                 new OrderCommandFactory(), 
                 bufferSize, 
                 threadFactory);
         
-        // Define Handlers
+        com.example.dome.engine.journal.CommandJournal journal = null;
+        com.example.dome.engine.snapshot.BookSnapshotter snapshotter = null;
+        if (journalEnabled) {
+            com.example.dome.engine.snapshot.BookSnapshotStore snapshotStore = snapshotEnabled
+                ? new com.example.dome.engine.snapshot.BookSnapshotStore(java.nio.file.Path.of(snapshotDir)) : null;
+            // Segments are kept until both the order store and the latest book snapshot are past them
+            journal = new com.example.dome.engine.journal.CommandJournal(
+                java.nio.file.Path.of(journalDir), shard, (long) journalSegmentSizeMb << 20, journalSync,
+                () -> retainAfter(shard, orderDao, snapshotStore));
+            if (snapshotStore != null) {
+                snapshotter = new com.example.dome.engine.snapshot.BookSnapshotter(snapshotStore, shard, snapshotIntervalMillis,
+                    () -> engineRegistry.getEngines().stream()
+                        .map(com.example.dome.engine.MatchingEngine::getOrderBook)
+                        .filter(book -> MatchingShards.shardFor(book.getSymbol(), shardMap, shardCount) == shard)
+                        .toList(),
+                    () -> orderDao.loadJournalPosition(shard));
+            }
+        } else if (snapshotEnabled) {
+            System.err.println("engine.snapshot.enabled needs engine.journal.enabled; book snapshots are off");
+        }
+
+        // Define Handlers (one instance per shard: each runs on that shard's own thread)
         com.example.dome.engine.disruptor.MatchingEventHandler matchingHandler = 
-            new com.example.dome.engine.disruptor.MatchingEventHandler(engineRegistry);
+            new com.example.dome.engine.disruptor.MatchingEventHandler(engineRegistry,
+                new SequenceIdGenerator("order", shard, sequenceStore),
+                new SequenceIdGenerator("trade", shard, sequenceStore),
+                journal != null ? journal.getLastSequence() : -1, snapshotter);
             
         com.example.dome.engine.disruptor.PersistenceEventHandler persistenceHandler = 
-            new com.example.dome.engine.disruptor.PersistenceEventHandler(orderDao, eventProcessor);
+            new com.example.dome.engine.disruptor.PersistenceEventHandler(orderDao, eventProcessor, engineRegistry,
+                shard, maxBatchWrites, maxBatchDelayMillis, journal != null ? java.nio.file.Path.of(journalDir) : null);
             
-        // Wire pipeline: Matching -> Persistence
-        disruptor.handleEventsWith(matchingHandler).then(persistenceHandler);
+        // Wire pipeline: Matching -> [Journal] -> Persistence
+        if (journal != null) {
+            disruptor.handleEventsWith(matchingHandler)
+                .then(new com.example.dome.engine.disruptor.JournalEventHandler(journal))
+                .then(persistenceHandler);
+        } else {
+            disruptor.handleEventsWith(matchingHandler).then(persistenceHandler);
+        }
         
         // Start the disruptor
         disruptor.start();
         
         return disruptor;
     }
+
+    private static long retainAfter(int shard, com.example.dome.persistence.OrderDao orderDao,
+                                    com.example.dome.engine.snapshot.BookSnapshotStore snapshotStore) {
+        long persisted = orderDao.loadJournalPosition(shard);
+        long snapshot;
+        try {
+            snapshot = snapshotStore != null ? snapshotStore.loadManifest(shard)
+                : com.example.dome.engine.snapshot.BookSnapshotStore.NO_SNAPSHOT;
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        return snapshot == com.example.dome.engine.snapshot.BookSnapshotStore.NO_SNAPSHOT ? persisted : Math.min(persisted, snapshot);
+    }
 }
@@ -1,14 +1,27 @@
 package com.example.dome.config;
 
-import org.rocksdb.Options;
+import com.example.dome.persistence.OrderColumnFamilies;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DataBlockIndexType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.Statistics;
+import org.rocksdb.StatsLevel;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class RocksDBConfig {
@@ -16,12 +29,75 @@ public class RocksDBConfig {
     @org.springframework.beans.factory.annotation.Value("${rocksdb.path:data/rocksdb/orders}")
     private String dbPath;
 
+    // Preset for the settings below: balanced, low-latency or high-throughput (see RocksDBProfile)
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.profile:balanced}")
+    private String profile = "balanced";
+
+    // Per-setting overrides; unset means the profile's value
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.block-cache-mb:#{null}}")
+    private Long blockCacheMb;
+
+    // Bloom filter bits per order-ID key (~1% false positives at 10)
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.bloom-bits-per-key:#{null}}")
+    private Double bloomBitsPerKey;
+
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.write-buffer-mb:#{null}}")
+    private Long writeBufferMb;
+
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.max-write-buffer-number:#{null}}")
+    private Integer maxWriteBufferNumber;
+
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.max-background-jobs:#{null}}")
+    private Integer maxBackgroundJobs;
+
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.optimize-for-point-lookup:#{null}}")
+    private Boolean optimizeForPointLookup;
+
+    // Comma-separated CompressionType names, L0 first, e.g. NO_COMPRESSION,LZ4_COMPRESSION,ZSTD_COMPRESSION
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.compression-per-level:}")
+    private String compressionPerLevel = "";
+
+    // Cost of collecting statistics: EXCEPT_DETAILED_TIMERS (cheap), EXCEPT_TIME_FOR_MUTEX or ALL
+    @org.springframework.beans.factory.annotation.Value("${rocksdb.statistics.level:EXCEPT_DETAILED_TIMERS}")
+    private String statisticsLevel = StatsLevel.EXCEPT_DETAILED_TIMERS.name();
+
+    // Native objects the open database refers to; kept reachable for its lifetime
+    private DBOptions dbOptions;
+    private Cache blockCache;
+    private ColumnFamilyOptions liveColumnFamilyOptions;
+    private ColumnFamilyOptions columnFamilyOptions;
+
+    // RocksDB's default LSM depth
+    private static final int NUM_LEVELS = 7;
+
+    // Filled in when the database is opened: default, live, archive, live_ids
+    private final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
+
     static {
         RocksDB.loadLibrary();
     }
 
     @Bean
-    public RocksDB rocksDB() throws IOException, RocksDBException {
+    public RocksDBProfile.RocksDBTuning rocksDBTuning() {
+        List<CompressionType> compression = new ArrayList<>();
+        for (String name : compressionPerLevel.split(",")) {
+            if (!name.isBlank()) {
+                compression.add(CompressionType.valueOf(name.trim().toUpperCase()));
+            }
+        }
+        return RocksDBProfile.fromProperty(profile).tuning().override(blockCacheMb, bloomBitsPerKey, writeBufferMb,
+                maxWriteBufferNumber, maxBackgroundJobs, optimizeForPointLookup, compression);
+    }
+
+    @Bean
+    public Statistics rocksDBStatistics() {
+        Statistics statistics = new Statistics();
+        statistics.setStatsLevel(StatsLevel.valueOf(statisticsLevel.trim().toUpperCase()));
+        return statistics;
+    }
+
+    @Bean
+    public RocksDB rocksDB(RocksDBProfile.RocksDBTuning tuning, Statistics statistics) throws IOException, RocksDBException {
         // Ensure directory exists
         File dbDir = new File(dbPath);
         if (!dbDir.exists()) {
@@ -30,7 +106,58 @@ public class RocksDBConfig {
              }
         }
 
-        Options options = new Options().setCreateIfMissing(true);
-        return RocksDB.open(options, dbPath);
+        dbOptions = new DBOptions()
+                .setCreateIfMissing(true)
+                .setCreateMissingColumnFamilies(true)
+                .setMaxBackgroundJobs(tuning.maxBackgroundJobs())
+                // Spread file writes out instead of one large flush burst per memtable
+                .setBytesPerSync(1 << 20)
+                .setStatistics(statistics);
+        // One block cache for all order families; the live family's options also get the symbol
+        // prefix extractor (see OrderColumnFamilies)
+        blockCache = new LRUCache(tuning.blockCacheMb() << 20);
+        liveColumnFamilyOptions = columnFamilyOptions(tuning, blockCache);
+        columnFamilyOptions = columnFamilyOptions(tuning, blockCache);
+        System.out.println("Opening RocksDB at " + dbPath + " with profile " + profile + ": " + tuning);
+        return RocksDB.open(dbOptions, dbPath,
+                OrderColumnFamilies.descriptors(liveColumnFamilyOptions, columnFamilyOptions), columnFamilyHandles);
+    }
+
+    // For the order column families: all are read by point lookups on a full key
+    static ColumnFamilyOptions columnFamilyOptions(RocksDBProfile.RocksDBTuning tuning, Cache blockCache) {
+        ColumnFamilyOptions options = new ColumnFamilyOptions();
+        BlockBasedTableConfig table = new BlockBasedTableConfig()
+                .setBlockCache(blockCache)
+                // Whole-key filter: a findById miss usually skips every SST file. With the live family's
+                // prefix extractor the filter also holds symbol prefixes, for per-symbol scans
+                .setFilterPolicy(new BloomFilter(tuning.bloomBitsPerKey(), false))
+                .setWholeKeyFiltering(true)
+                .setCacheIndexAndFilterBlocks(true)
+                .setPinL0FilterAndIndexBlocksInCache(true);
+        if (tuning.optimizeForPointLookup()) {
+            // What ColumnFamilyOptions.optimizeForPointLookup sets, minus its private block cache and fixed
+            // 10-bit filter: a hash index inside each data block, so a lookup skips the binary search,
+            // and a bloom filter on the memtables
+            table.setDataBlockIndexType(DataBlockIndexType.kDataBlockBinaryAndHash)
+                    .setDataBlockHashTableUtilRatio(0.75);
+            options.setMemtablePrefixBloomSizeRatio(0.02)
+                    .setMemtableWholeKeyFiltering(true);
+        }
+        options.setTableFormatConfig(table);
+        List<CompressionType> compression = new ArrayList<>(tuning.compressionPerLevel());
+        // One entry per level; a shorter list repeats its last entry
+        while (compression.size() < NUM_LEVELS) {
+            compression.add(compression.get(compression.size() - 1));
+        }
+        return options
+                .setWriteBufferSize(tuning.writeBufferMb() << 20)
+                .setMaxWriteBufferNumber(tuning.maxWriteBufferNumber())
+                .setCompressionPerLevel(compression.subList(0, NUM_LEVELS));
+    }
+
+    @Bean
+    public OrderColumnFamilies orderColumnFamilies(RocksDB rocksDB) {
+        // Depends on rocksDB so the handles exist by now
+        return OrderColumnFamilies.of(columnFamilyHandles);
     }
 }
@@ -0,0 +1,72 @@
+package com.example.dome.config;
+
+import org.rocksdb.CompressionType;
+
+import java.util.List;
+
+import static org.rocksdb.CompressionType.LZ4_COMPRESSION;
+import static org.rocksdb.CompressionType.NO_COMPRESSION;
+import static org.rocksdb.CompressionType.ZSTD_COMPRESSION;
+
+/**
+ * Named RocksDB tuning presets, selected with rocksdb.profile (e.g. low-latency). Any single
+ * setting can still be overridden by its own rocksdb.* property (see RocksDBConfig).
+ */
+public enum RocksDBProfile {
+
+    /** Moderate memory, bloom filters on, cheap compression below the hot levels. */
+    BALANCED(new RocksDBTuning(128, 10, 64, 3, 4, false,
+            List.of(NO_COMPRESSION, NO_COMPRESSION, LZ4_COMPRESSION, LZ4_COMPRESSION, LZ4_COMPRESSION, ZSTD_COMPRESSION, ZSTD_COMPRESSION))),
+
+    /**
+     * Point lookups first (findById, cancels after restart): a large block cache, hashed data block
+     * indexes and memtable bloom filters, and no compression on the levels that hold recent orders.
+     */
+    LOW_LATENCY(new RocksDBTuning(512, 10, 32, 4, 4, true,
+            List.of(NO_COMPRESSION, NO_COMPRESSION, NO_COMPRESSION, LZ4_COMPRESSION, LZ4_COMPRESSION, LZ4_COMPRESSION, ZSTD_COMPRESSION))),
+
+    /**
+     * Sustained ingest: large and more numerous memtables so flushes keep up, and more background
+     * jobs so compaction does too, which is what avoids write stalls.
+     */
+    HIGH_THROUGHPUT(new RocksDBTuning(256, 10, 256, 6, 8, false,
+            List.of(NO_COMPRESSION, LZ4_COMPRESSION, LZ4_COMPRESSION, LZ4_COMPRESSION, LZ4_COMPRESSION, ZSTD_COMPRESSION, ZSTD_COMPRESSION)));
+
+    private final RocksDBTuning tuning;
+
+    RocksDBProfile(RocksDBTuning tuning) {
+        this.tuning = tuning;
+    }
+
+    public RocksDBTuning tuning() {
+        return tuning;
+    }
+
+    /** Accepts the enum name or its property form: "low-latency", "LOW_LATENCY". */
+    public static RocksDBProfile fromProperty(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * Every tunable, as resolved from a profile plus overrides.
+     * @param compressionPerLevel one entry per LSM level, L0 first
+     */
+    public record RocksDBTuning(long blockCacheMb, double bloomBitsPerKey, long writeBufferMb, int maxWriteBufferNumber,
+                                int maxBackgroundJobs, boolean optimizeForPointLookup,
+                                List<CompressionType> compressionPerLevel) {
+
+        /** Replaces every non-null argument. */
+        public RocksDBTuning override(Long blockCacheMb, Double bloomBitsPerKey, Long writeBufferMb,
+                                      Integer maxWriteBufferNumber, Integer maxBackgroundJobs,
+                                      Boolean optimizeForPointLookup, List<CompressionType> compressionPerLevel) {
+            return new RocksDBTuning(
+                    blockCacheMb != null ? blockCacheMb : this.blockCacheMb,
+                    bloomBitsPerKey != null ? bloomBitsPerKey : this.bloomBitsPerKey,
+                    writeBufferMb != null ? writeBufferMb : this.writeBufferMb,
+                    maxWriteBufferNumber != null ? maxWriteBufferNumber : this.maxWriteBufferNumber,
+                    maxBackgroundJobs != null ? maxBackgroundJobs : this.maxBackgroundJobs,
+                    optimizeForPointLookup != null ? optimizeForPointLookup : this.optimizeForPointLookup,
+                    compressionPerLevel != null && !compressionPerLevel.isEmpty() ? List.copyOf(compressionPerLevel) : this.compressionPerLevel);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dome.config;
+
+import com.example.dome.persistence.OrderColumnFamilies;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.HistogramData;
+import org.rocksdb.HistogramType;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RocksDB statistics at /actuator/rocksdb: the active tuning, cache/bloom/stall counters,
+ * get and write latency percentiles (microseconds) and per column family size estimates.
+ */
+@Component
+@Endpoint(id = "rocksdb")
+public class RocksDBStatisticsEndpoint {
+
+    private static final List<TickerType> TICKERS = List.of(
+            TickerType.BLOCK_CACHE_HIT, TickerType.BLOCK_CACHE_MISS, TickerType.BLOOM_FILTER_USEFUL,
+            TickerType.MEMTABLE_HIT, TickerType.MEMTABLE_MISS,
+            TickerType.NUMBER_KEYS_READ, TickerType.NUMBER_KEYS_WRITTEN,
+            TickerType.BYTES_READ, TickerType.BYTES_WRITTEN,
+            TickerType.WAL_FILE_SYNCED, TickerType.STALL_MICROS);
+
+    private static final List<HistogramType> HISTOGRAMS = List.of(HistogramType.DB_GET, HistogramType.DB_WRITE);
+
+    private static final List<String> PROPERTIES = List.of(
+            "rocksdb.estimate-num-keys", "rocksdb.cur-size-all-mem-tables",
+            "rocksdb.estimate-pending-compaction-bytes", "rocksdb.num-running-compactions");
+
+    private final RocksDB rocksDB;
+    private final Statistics statistics;
+    private final OrderColumnFamilies columnFamilies;
+    private final RocksDBProfile.RocksDBTuning tuning;
+
+    public RocksDBStatisticsEndpoint(RocksDB rocksDB, Statistics statistics, OrderColumnFamilies columnFamilies,
+                                     RocksDBProfile.RocksDBTuning tuning) {
+        this.rocksDB = rocksDB;
+        this.statistics = statistics;
+        this.columnFamilies = columnFamilies;
+        this.tuning = tuning;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("tuning", tuning);
+
+        Map<String, Long> tickers = new LinkedHashMap<>();
+        for (TickerType ticker : TICKERS) {
+            tickers.put(ticker.name(), statistics.getTickerCount(ticker));
+        }
+        result.put("tickers", tickers);
+
+        Map<String, Object> histograms = new LinkedHashMap<>();
+        for (HistogramType histogram : HISTOGRAMS) {
+            HistogramData data = statistics.getHistogramData(histogram);
+            histograms.put(histogram.name(), Map.of(
+                    "count", data.getCount(),
+                    "p50", data.getMedian(),
+                    "p95", data.getPercentile95(),
+                    "p99", data.getPercentile99(),
+                    "max", data.getMax()));
+        }
+        result.put("histograms", histograms);
+
+        result.put(OrderColumnFamilies.LIVE, properties(columnFamilies.live()));
+        result.put(OrderColumnFamilies.ARCHIVE, properties(columnFamilies.archive()));
+        result.put(OrderColumnFamilies.LIVE_IDS, properties(columnFamilies.liveIds()));
+        return result;
+    }
+
+    private Map<String, String> properties(ColumnFamilyHandle columnFamily) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String property : PROPERTIES) {
+            try {
+                values.put(property, rocksDB.getProperty(columnFamily, property));
+            } catch (RocksDBException e) {
+                values.put(property, "unavailable: " + e.getMessage());
+            }
+        }
+        return values;
+    }
+}
@@ -5,7 +5,8 @@ import com.example.dome.dto.OrderRequest;
 import com.example.dome.dto.OrderResponse;
 import com.example.dome.engine.MatchingEngine;
 import com.example.dome.engine.OrderBook;
-import com.example.dome.engine.OrderBook.PriceLevelSnapshot;
+import com.example.dome.engine.PriceScale;
+import com.example.dome.engine.disruptor.OrderResult;
 import com.example.dome.model.Order;
 import com.example.dome.model.OrderStatus;
 import com.example.dome.model.Trade;
@@ -17,7 +18,6 @@ import org.springframework.web.bind.annotation.*;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -27,20 +27,21 @@ public class OrderController {
 
     private final com.example.dome.engine.EngineRegistry engineRegistry;
     private final TradeRepository tradeRepository;
-    private final com.lmax.disruptor.dsl.Disruptor<com.example.dome.engine.disruptor.OrderCommand> disruptor;
+    private final com.example.dome.engine.disruptor.MatchingShards matchingShards;
 
     public OrderController(com.example.dome.engine.EngineRegistry engineRegistry, 
                            TradeRepository tradeRepository,
-                           com.lmax.disruptor.dsl.Disruptor<com.example.dome.engine.disruptor.OrderCommand> disruptor) {
+                           com.example.dome.engine.disruptor.MatchingShards matchingShards) {
         this.engineRegistry = engineRegistry;
         this.tradeRepository = tradeRepository;
-        this.disruptor = disruptor;
+        this.matchingShards = matchingShards;
     }
 
     @PostMapping("/orders")
     public ResponseEntity<OrderResponse> placeOrder(@Valid @RequestBody OrderRequest request) {
         // Validation check (Symbol existence)
-        if (engineRegistry.getEngine(request.getSymbol()) == null) {
+        MatchingEngine engine = engineRegistry.getEngine(request.getSymbol());
+        if (engine == null) {
             return ResponseEntity.badRequest().body(OrderResponse.builder()
                     .message("Unknown symbol: " + request.getSymbol())
                     .status(OrderStatus.REJECTED)
@@ -48,20 +49,15 @@ public class OrderController {
                     .build());
         }
 
-        Order order = Order.builder()
-                .orderId(UUID.randomUUID())
-                .symbol(request.getSymbol())
-                .side(request.getSide())
-                .type(request.getType())
-                .price(request.getPrice())
-                .quantity(request.getQuantity())
-                .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
-                .build();
-
-        // Validate logic
+        // Validate logic, and convert the price to ticks here at the edge so the engine never sees a BigDecimal.
+        // No Order is built here: the request fields travel in the ring slot and the matching thread
+        // fills in a pooled Order.
+        long priceTicks = 0;
         try {
-            order.validate();
+            Order.validate(request.getType(), request.getPrice(), request.getQuantity());
+            if (request.getPrice() != null) {
+                priceTicks = engine.getPriceScale().toTicks(request.getPrice());
+            }
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(OrderResponse.builder()
                     .message(e.getMessage())
@@ -70,18 +66,41 @@ public class OrderController {
                     .build());
         }
 
-        // Process via Disruptor
-        java.util.concurrent.CompletableFuture<List<Trade>> future = new java.util.concurrent.CompletableFuture<>();
+        // Process via the Disruptor shard that owns this symbol
+        java.util.concurrent.CompletableFuture<OrderResult> future = new java.util.concurrent.CompletableFuture<>();
+        long ticks = priceTicks;
         
-        disruptor.publishEvent((event, sequence) -> {
-            event.setOrder(order);
+        matchingShards.publish(request.getSymbol(), (event, sequence) -> {
+            event.setType(com.example.dome.engine.disruptor.CommandType.NEW);
+            event.setSymbol(request.getSymbol());
+            event.setSide(request.getSide());
+            event.setOrderType(request.getType());
+            // Normalised to the symbol's tick scale: "1E+2" and "100.0" are stored and published as 100.00
+            event.setPrice(request.getPrice() != null ? engine.getPriceScale().toPrice(ticks) : null);
+            event.setPriceTicks(ticks);
+            event.setQuantity(request.getQuantity());
+            event.setClientOrderId(request.getClientOrderId());
             event.setResultFuture(future);
         });
 
-        List<Trade> trades;
+        OrderResult result;
         try {
             // Wait for pipeline to complete (Match -> Persist)
-            trades = future.get();
+            result = future.get();
+        } catch (java.util.concurrent.ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                // Rejected by the matching thread; nothing was applied
+                return ResponseEntity.badRequest().body(OrderResponse.builder()
+                        .message(e.getCause().getMessage())
+                        .status(OrderStatus.REJECTED)
+                        .timestamp(Instant.now())
+                        .build());
+            }
+            return ResponseEntity.internalServerError().body(OrderResponse.builder()
+                    .message("Processing failed: " + e.getMessage())
+                    .status(OrderStatus.REJECTED)
+                    .timestamp(Instant.now())
+                    .build());
         } catch (Exception e) {
              return ResponseEntity.internalServerError().body(OrderResponse.builder()
                     .message("Processing failed: " + e.getMessage())
@@ -91,22 +110,63 @@ public class OrderController {
         }
 
         return ResponseEntity.ok(OrderResponse.builder()
-                .orderId(order.getOrderId())
-                .status(order.getStatus())
-                .message("Order processed. Trades: " + (trades != null ? trades.size() : 0))
-                .timestamp(Instant.now())
+                .orderId(result.orderId())
+                .clientOrderId(result.clientOrderId())
+                .status(result.status())
+                .message("Order processed. Trades: " + result.trades().size())
+                .timestamp(com.example.dome.engine.EngineClock.toInstant(result.timestamp()))
                 .build());
     }
 
     @DeleteMapping("/orders/{id}")
-    public ResponseEntity<Void> cancelOrder(@PathVariable UUID id) {
+    public ResponseEntity<Void> cancelOrder(@PathVariable String id) {
+        Long orderId;
         try {
-            // Registry handles lookup and routing
-            engineRegistry.cancelOrder(id);
-            return ResponseEntity.ok().build();
+            orderId = resolveOrderId(id);
         } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (orderId == null) {
             return ResponseEntity.notFound().build();
         }
+
+        // Only resting orders are routable; the matching thread resolves the order from the book
+        String symbol = engineRegistry.findSymbol(orderId);
+        if (symbol == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        java.util.concurrent.CompletableFuture<OrderResult> future = new java.util.concurrent.CompletableFuture<>();
+
+        matchingShards.publish(symbol, (event, sequence) -> {
+            event.setType(com.example.dome.engine.disruptor.CommandType.CANCEL);
+            event.setOrderId(orderId);
+            event.setSymbol(symbol);
+            event.setResultFuture(future);
+        });
+
+        try {
+            future.get();
+            return ResponseEntity.ok().build();
+        } catch (java.util.concurrent.ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                // Filled or cancelled by a command sequenced ahead of this one
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.internalServerError().build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // The engine ID, or the UUID an order placed before IDs were longs is still known by (null if it has none)
+    private Long resolveOrderId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException notNumeric) {
+            return engineRegistry.findMigratedOrderId(UUID.fromString(id));
+        }
     }
 
     @GetMapping("/orderbook/{symbol}")
@@ -117,18 +177,19 @@ public class OrderController {
             return ResponseEntity.notFound().build();
         }
 
-        Map<String, List<PriceLevelSnapshot>> snapshot = book.getSnapshot();
+        OrderBook.DepthSnapshot snapshot = book.getDepthSnapshot();
+        PriceScale priceScale = book.getPriceScale();
         
-        List<OrderBookDTO.LevelDTO> bids = snapshot.get("bids").stream()
+        List<OrderBookDTO.LevelDTO> bids = snapshot.bids().stream()
                 .map(s -> OrderBookDTO.LevelDTO.builder()
-                        .price(s.price())
+                        .price(priceScale.toPrice(s.price()))
                         .quantity(s.quantity())
                         .build())
                 .collect(Collectors.toList());
 
-        List<OrderBookDTO.LevelDTO> asks = snapshot.get("asks").stream()
+        List<OrderBookDTO.LevelDTO> asks = snapshot.asks().stream()
                 .map(s -> OrderBookDTO.LevelDTO.builder()
-                        .price(s.price())
+                        .price(priceScale.toPrice(s.price()))
                         .quantity(s.quantity())
                         .build())
                 .collect(Collectors.toList());
@@ -138,6 +199,7 @@ public class OrderController {
                 .bids(bids)
                 .asks(asks)
                 .timestamp(System.currentTimeMillis())
+                .sequence(snapshot.sequence())
                 .build());
     }
 
@@ -13,6 +13,8 @@ public class OrderBookDTO {
     private List<LevelDTO> bids;
     private List<LevelDTO> asks;
     private long timestamp;
+    // Depth sequence the levels reflect: apply /topic/depth/{symbol} updates numbered after it
+    private long sequence;
 
     @Data
     @Builder
@@ -7,6 +7,7 @@ import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 @Data
 public class OrderRequest {
@@ -25,4 +26,7 @@ public class OrderRequest {
 
     @Positive(message = "Quantity must be positive")
     private long quantity;
+
+    // Optional client-side alias echoed back in responses; the engine assigns its own orderId
+    private UUID clientOrderId;
 }
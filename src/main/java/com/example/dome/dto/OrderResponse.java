@@ -10,7 +10,8 @@ import java.util.UUID;
 @Data
 @Builder
 public class OrderResponse {
-    private UUID orderId;
+    private long orderId;
+    private UUID clientOrderId;
     private OrderStatus status;
     private String message;
     private Instant timestamp;
@@ -0,0 +1,360 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Shared order book logic: order index, add/cancel/modify, snapshots and locking.
+ * Subclasses only decide how price levels are stored per side.
+ *
+ * Two threading modes:
+ * - Locking (default): thread-safe using ReentrantReadWriteLock; getSnapshot() reads the live book.
+ *   Matching mutates PriceLevels directly, so it runs between lockForMatching()/unlockForMatching().
+ * - Single-writer: every mutation and getBest* call must come from one thread (the Disruptor
+ *   matching thread), so no locks are taken. Other threads only call getSnapshot(), which returns
+ *   the immutable snapshot last published by the writer via publishSnapshot().
+ */
+public abstract class AbstractOrderBook implements OrderBook {
+
+    private final String symbol;
+    private final PriceScale priceScale;
+
+    // Lock for structure modification (adding/removing price levels and orders); no-op in single-writer mode
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    private final boolean singleWriter;
+
+    // Single-writer mode: set by the writer on mutation, cleared when a snapshot is published
+    private boolean dirty;
+    private volatile Published publishedSnapshot = new Published(new DepthSnapshot(0, List.of(), List.of()));
+
+    // Last depth update number handed out; guarded by the write lock in locking mode
+    private long depthSequence;
+
+    // Index for O(1) lookup of orders by ID
+    private final Map<Long, Order> orderIndex = new HashMap<>();
+
+    protected AbstractOrderBook(String symbol, PriceScale priceScale) {
+        this(symbol, priceScale, false);
+    }
+
+    protected AbstractOrderBook(String symbol, PriceScale priceScale, boolean singleWriter) {
+        this.symbol = symbol;
+        this.priceScale = priceScale;
+        this.singleWriter = singleWriter;
+        if (singleWriter) {
+            this.readLock = NoOpLock.INSTANCE;
+            this.writeLock = NoOpLock.INSTANCE;
+        } else {
+            ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+            this.readLock = lock.readLock();
+            this.writeLock = lock.writeLock();
+        }
+    }
+
+    /** @return the level at this exact price, or null. */
+    protected abstract PriceLevel findLevel(OrderSide side, long price);
+
+    protected abstract void insertLevel(OrderSide side, PriceLevel level);
+
+    protected abstract void deleteLevel(OrderSide side, long price);
+
+    /** @return highest bid / lowest ask, or null if the side is empty. */
+    protected abstract PriceLevel bestLevel(OrderSide side);
+
+    /** Visits the levels of one side best price first. */
+    protected abstract void forEachLevel(OrderSide side, Consumer<PriceLevel> action);
+
+    // Whether a level at this price fits on the side; only bounded layouts (the price ladder) say no
+    protected boolean canHoldLevel(OrderSide side, long price) {
+        return true;
+    }
+
+    @Override
+    public void addOrder(Order order) {
+        add(order, false);
+    }
+
+    @Override
+    public void restoreOrder(Order order) {
+        add(order, true);
+    }
+
+    private void add(Order order, boolean byTimestamp) {
+        if (!order.getSymbol().equals(this.symbol)) {
+             throw new IllegalArgumentException("Order symbol mismatch");
+        }
+
+        // Acquire lock to ensure PriceLevel existence or creation
+        writeLock.lock(); // WRITE lock needed for Index update
+        try {
+            dirty = true;
+            PriceLevel level = findLevel(order.getSide(), order.getPriceTicks());
+            if (level == null) {
+                level = new PriceLevel(order.getPriceTicks());
+                insertLevel(order.getSide(), level);
+            }
+            if (byTimestamp) {
+                level.restoreOrder(order);
+            } else {
+                level.addOrder(order);
+            }
+            orderIndex.put(order.getOrderId(), order);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void cancelOrder(Order order) {
+        if (!order.getSymbol().equals(this.symbol)) {
+            throw new IllegalArgumentException("Order symbol mismatch");
+        }
+
+        writeLock.lock(); // WRITE lock for Index removal
+        try {
+            dirty = true;
+            PriceLevel level = findLevel(order.getSide(), order.getPriceTicks());
+            if (level != null) {
+                level.cancelOrder(order);
+                // The order is unlinked, so a level emptied by cancels is dropped right away
+                if (level.isEmpty()) {
+                    deleteLevel(order.getSide(), level.getPrice());
+                }
+            }
+            orderIndex.remove(order.getOrderId());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Order getOrder(long orderId) {
+        readLock.lock();
+        try {
+            return orderIndex.get(orderId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeFilledOrder(long orderId) {
+        writeLock.lock();
+        try {
+            orderIndex.remove(orderId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void modifyOrder(long orderId, Order newOrder) {
+        writeLock.lock();
+        try {
+            Order oldOrder = orderIndex.get(orderId);
+            if (oldOrder == null) {
+                throw new IllegalArgumentException("Order not found: " + orderId);
+            }
+
+            // simple Cancel/Replace (Loss order priority)
+            cancelOrder(oldOrder);
+            addOrder(newOrder);
+
+            // TODO: In future, if optimization needed (e.g. reduce size keeps priority),
+            // handle here by checking if price is same and size < oldSize.
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void lockForMatching() {
+        writeLock.lock();
+    }
+
+    @Override
+    public void unlockForMatching() {
+        writeLock.unlock();
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public PriceScale getPriceScale() {
+        return priceScale;
+    }
+
+    @Override
+    public PriceLevel getBestBid() {
+        readLock.lock();
+        try {
+            return bestLevel(OrderSide.BUY);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public PriceLevel getBestAsk() {
+        readLock.lock();
+        try {
+            return bestLevel(OrderSide.SELL);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEachOrder(Consumer<Order> action) {
+        readLock.lock();
+        try {
+            forEachLevel(OrderSide.BUY, level -> level.forEachOrder(action));
+            forEachLevel(OrderSide.SELL, level -> level.forEachOrder(action));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean canRest(OrderSide side, long price) {
+        readLock.lock();
+        try {
+            return canHoldLevel(side, price);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getLevelQuantity(OrderSide side, long price) {
+        readLock.lock();
+        try {
+            PriceLevel level = findLevel(side, price);
+            return level != null ? level.getTotalQuantity() : 0;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public long nextDepthSequence() {
+        writeLock.lock();
+        try {
+            // Also covers fills that only shrank a level, which do not go through addOrder/removeLevel
+            dirty = true;
+            return ++depthSequence;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Snapshot mechanism
+    @Override
+    public Map<String, List<PriceLevelSnapshot>> getSnapshot() {
+        return published().levels();
+    }
+
+    @Override
+    public DepthSnapshot getDepthSnapshot() {
+        return published().depth();
+    }
+
+    private Published published() {
+        if (singleWriter) {
+            return publishedSnapshot;
+        }
+        readLock.lock();
+        try {
+            return buildSnapshot();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void publishSnapshot() {
+        if (singleWriter && dirty) {
+            // Volatile write: readers see a complete, immutable view of the book as of this point
+            publishedSnapshot = buildSnapshot();
+            dirty = false;
+        }
+    }
+
+    @Override
+    public boolean isSingleWriter() {
+        return singleWriter;
+    }
+
+    private Published buildSnapshot() {
+        List<PriceLevelSnapshot> bidSnap = new ArrayList<>();
+        List<PriceLevelSnapshot> askSnap = new ArrayList<>();
+
+        forEachLevel(OrderSide.BUY, lvl -> bidSnap.add(new PriceLevelSnapshot(lvl.getPrice(), lvl.getTotalQuantity())));
+        forEachLevel(OrderSide.SELL, lvl -> askSnap.add(new PriceLevelSnapshot(lvl.getPrice(), lvl.getTotalQuantity())));
+
+        return new Published(new DepthSnapshot(depthSequence, List.copyOf(bidSnap), List.copyOf(askSnap)));
+    }
+
+    @Override
+    public void removeLevel(OrderSide side, long price) {
+        writeLock.lock();
+        try {
+            dirty = true;
+            deleteLevel(side, price);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** One view of the book in both shapes readers ask for, swapped in with a single volatile write. */
+    private record Published(DepthSnapshot depth, Map<String, List<PriceLevelSnapshot>> levels) {
+        Published(DepthSnapshot depth) {
+            this(depth, Map.of("bids", depth.bids(), "asks", depth.asks()));
+        }
+    }
+
+    /** Stands in for the read/write locks in single-writer mode. */
+    private static final class NoOpLock implements Lock {
+
+        static final NoOpLock INSTANCE = new NoOpLock();
+
+        @Override
+        public void lock() {
+        }
+
+        @Override
+        public void lockInterruptibly() {
+        }
+
+        @Override
+        public boolean tryLock() {
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Single-writer order book has no conditions");
+        }
+    }
+}
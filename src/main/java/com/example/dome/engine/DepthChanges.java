@@ -0,0 +1,117 @@
+package com.example.dome.engine;
+
+import com.example.dome.event.DepthUpdate;
+import com.example.dome.model.OrderSide;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Preallocated, reusable slots for the price levels one command changed, each with the level's
+ * aggregate quantity after the command (0: the level is gone). Like Fills, the arrays only grow
+ * and nothing is allocated per change.
+ * Not thread-safe: written by the matching thread, then read by the next pipeline stage.
+ */
+public class DepthChanges {
+
+    public static final int DEFAULT_CAPACITY = 8;
+
+    private OrderSide[] sides;
+    private long[] prices;
+    private long[] quantities;
+    private int size;
+    private long sequence;
+
+    public DepthChanges() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DepthChanges(int capacity) {
+        int slots = Math.max(1, capacity);
+        this.sides = new OrderSide[slots];
+        this.prices = new long[slots];
+        this.quantities = new long[slots];
+    }
+
+    /** Records a level's new total. A repeat of the last level (several fills at one price) overwrites it. */
+    public void add(OrderSide side, long price, long quantity) {
+        if (size > 0 && sides[size - 1] == side && prices[size - 1] == price) {
+            quantities[size - 1] = quantity;
+            return;
+        }
+        if (size == sides.length) {
+            grow();
+        }
+        sides[size] = side;
+        prices[size] = price;
+        quantities[size] = quantity;
+        size++;
+    }
+
+    public OrderSide side(int index) {
+        return sides[checkIndex(index)];
+    }
+
+    /** In ticks. */
+    public long price(int index) {
+        return prices[checkIndex(index)];
+    }
+
+    public long quantity(int index) {
+        return quantities[checkIndex(index)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** The book's depth sequence number for these changes (see OrderBook.nextDepthSequence()). */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public void clear() {
+        size = 0;
+        sequence = 0;
+    }
+
+    /** Converts the changes into a publishable update, or null if there are none. Allocates; call outside the matching thread. */
+    public DepthUpdate toUpdate(String symbol, PriceScale priceScale, long timestamp) {
+        if (size == 0) {
+            return null;
+        }
+        List<DepthUpdate.LevelChange> changes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            changes.add(new DepthUpdate.LevelChange(sides[i], priceScale.toPrice(prices[i]), quantities[i]));
+        }
+        return new DepthUpdate(symbol, sequence, timestamp, changes);
+    }
+
+    private int checkIndex(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Depth change " + index + " of " + size);
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = sides.length * 2;
+        OrderSide[] resizedSides = new OrderSide[capacity];
+        long[] resizedPrices = new long[capacity];
+        long[] resizedQuantities = new long[capacity];
+        System.arraycopy(sides, 0, resizedSides, 0, size);
+        System.arraycopy(prices, 0, resizedPrices, 0, size);
+        System.arraycopy(quantities, 0, resizedQuantities, 0, size);
+        this.sides = resizedSides;
+        this.prices = resizedPrices;
+        this.quantities = resizedQuantities;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.dome.engine;
+
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Epoch-nanosecond clock for the matching thread.
+ * Reads System.nanoTime() against a wall-clock base that is re-read once a second, so stamping
+ * an event costs no Instant allocation. Never goes backwards, even across recalibration.
+ *
+ * Each Disruptor event is stamped once on entry to the matching stage; the order and all fills
+ * produced by that event share the stamp.
+ * Not thread-safe: one instance per matching shard.
+ */
+public class EngineClock {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long RECALIBRATE_INTERVAL_NANOS = NANOS_PER_SECOND;
+
+    private final Clock wallClock;
+    private long baseEpochNanos;
+    private long baseNanoTime;
+    private long last;
+
+    public EngineClock() {
+        this(Clock.systemUTC());
+    }
+
+    public EngineClock(Clock wallClock) {
+        this.wallClock = wallClock;
+        calibrate(System.nanoTime());
+    }
+
+    /** @return the current time in nanoseconds since the epoch. */
+    public long now() {
+        long nanoTime = System.nanoTime();
+        if (nanoTime - baseNanoTime >= RECALIBRATE_INTERVAL_NANOS) {
+            calibrate(nanoTime);
+        }
+        long now = baseEpochNanos + (nanoTime - baseNanoTime);
+        if (now < last) {
+            now = last;
+        }
+        last = now;
+        return now;
+    }
+
+    private void calibrate(long nanoTime) {
+        baseEpochNanos = epochNanos(wallClock.instant());
+        baseNanoTime = nanoTime;
+    }
+
+    public static long epochNanos(Instant instant) {
+        return instant.getEpochSecond() * NANOS_PER_SECOND + instant.getNano();
+    }
+
+    public static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+    }
+}
@@ -1,66 +1,371 @@
 package com.example.dome.engine;
 
 import com.example.dome.cache.MarketDataCache;
+import com.example.dome.engine.journal.CommandJournal;
+import com.example.dome.engine.journal.JournalRecord;
+import com.example.dome.engine.recovery.ParallelBookLoader;
+import com.example.dome.engine.snapshot.BookSnapshot;
+import com.example.dome.engine.snapshot.BookSnapshotStore;
 import com.example.dome.event.EventProcessor;
+import com.example.dome.event.TradeEvent;
 import com.example.dome.model.Order;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import com.example.dome.model.Trade;
 import com.example.dome.persistence.OrderDao;
+import com.example.dome.persistence.OrderWriteBatch;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class EngineRegistry {
 
     private final Map<String, MatchingEngine> engines = new ConcurrentHashMap<>();
+
+    // Resting order -> symbol, so a cancel can be sequenced onto the right engine without a RocksDB read.
+    // Maintained by the persistence stage and by recovery.
+    private final Map<Long, String> orderSymbols = new ConcurrentHashMap<>();
     private final EventProcessor eventProcessor;
     private final OrderDao orderDao;
     private final MarketDataCache marketDataCache;
 
+    // Tick scale (decimal places) for symbols without an explicit entry in engine.price-scales
+    @Value("${engine.price-scale:2}")
+    private int defaultPriceScale = PriceScale.DEFAULT_SCALE;
+
+    // Per-symbol tick scale, e.g. engine.price-scales={BTCUSD:8,EURUSD:5}
+    @Value("#{${engine.price-scales:{:}}}")
+    private Map<String, Integer> priceScales = Collections.emptyMap();
+
+    // Book implementation for symbols without an explicit entry in engine.order-books
+    @Value("${engine.order-book:TREE_MAP}")
+    private String defaultOrderBookType = OrderBookType.TREE_MAP.name();
+
+    // Per-symbol book implementation, e.g. engine.order-books={AAPL:'PRICE_LADDER',MSFT:'PRICE_LADDER'}
+    @Value("#{${engine.order-books:{:}}}")
+    private Map<String, String> orderBookTypes = Collections.emptyMap();
+
+    // Initial ring size (in ticks) for PRICE_LADDER books; grows if the resting range is wider
+    @Value("${engine.ladder.initial-capacity:1024}")
+    private int ladderCapacity = PriceLadderOrderBook.DEFAULT_CAPACITY;
+
+    // Lock-free books mutated only by the matching thread; REST readers get the snapshot published per batch
+    @Value("${engine.single-writer:false}")
+    private boolean singleWriter;
+
+    // Max recycled Order instances kept per symbol
+    @Value("${engine.order-pool.capacity:8192}")
+    private int orderPoolCapacity = OrderPool.DEFAULT_CAPACITY;
+
+    // Command journal to replay on recovery (see DisruptorConfig, which writes it)
+    @Value("${engine.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    @Value("${engine.journal.dir:data/journal}")
+    private String journalDir = "data/journal";
+
+    // Book snapshots to start from instead of the order store (see DisruptorConfig, which writes them)
+    @Value("${engine.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+
+    @Value("${engine.snapshot.dir:data/snapshots}")
+    private String snapshotDir = "data/snapshots";
+
+    // Threads rebuilding books at startup (0: one per processor) and orders handed to a thread at a time
+    @Value("${engine.recovery.parallelism:0}")
+    private int recoveryParallelism;
+
+    @Value("${engine.recovery.chunk-size:4096}")
+    private int recoveryChunkSize = 4096;
+
+    // Load each symbol's resting orders when its engine is first used instead of all at startup.
+    // Order store recovery only: book snapshots need every book in memory.
+    @Value("${engine.recovery.lazy:false}")
+    private boolean lazyRecovery;
+
+    // Set by recoverState once lazy loading is in effect
+    private volatile boolean loadOnFirstUse;
+
     public EngineRegistry(EventProcessor eventProcessor, OrderDao orderDao, MarketDataCache marketDataCache) {
         this.eventProcessor = eventProcessor;
         this.orderDao = orderDao;
         this.marketDataCache = marketDataCache;
     }
 
-    public void cancelOrder(java.util.UUID orderId) {
-        Order order = orderDao.findById(orderId.toString());
-        if (order == null) {
-            throw new IllegalArgumentException("Order not found: " + orderId);
+    /** The current ID of an order a client still refers to by its pre-migration UUID, or null. */
+    public Long findMigratedOrderId(UUID uuid) {
+        return orderDao.findMigratedId(uuid);
+    }
+
+    /**
+     * @return the symbol of a resting order, or null if the order is unknown or no longer live.
+     */
+    public String findSymbol(long orderId) {
+        String symbol = orderSymbols.get(orderId);
+        if (symbol == null && loadOnFirstUse) {
+            // Resting orders of symbols not loaded yet are only in the store; the cancel loads the engine
+            Order stored = orderDao.findById(orderId);
+            if (stored != null && !isTerminal(stored) && !engines.containsKey(stored.getSymbol())) {
+                symbol = stored.getSymbol();
+            }
+        }
+        return symbol;
+    }
+
+    /**
+     * Tracks whether an order can still be cancelled: resting orders are indexed, terminal ones dropped.
+     * MARKET orders never rest, so they are never indexed.
+     */
+    public void updateRoute(Order order) {
+        if (isTerminal(order) || order.getType() == OrderType.MARKET) {
+            orderSymbols.remove(order.getOrderId());
+        } else {
+            orderSymbols.put(order.getOrderId(), order.getSymbol());
         }
-        MatchingEngine engine = getEngine(order.getSymbol());
-        engine.cancelOrder(orderId);
+    }
+
+    private static boolean isTerminal(Order order) {
+        return order.getStatus() == OrderStatus.FILLED ||
+               order.getStatus() == OrderStatus.CANCELED ||
+               order.getStatus() == OrderStatus.REJECTED;
     }
 
     @PostConstruct
     public void recoverState() {
         System.out.println("Recovering Matching Engine State via Registry...");
-        List<Order> orders = orderDao.findAll();
-        int loadedCount = 0;
-        
-        for (Order order : orders) {
-            // Only recover active orders
-            if (order.getStatus() == com.example.dome.model.OrderStatus.FILLED || 
-                order.getStatus() == com.example.dome.model.OrderStatus.CANCELED ||
-                order.getStatus() == com.example.dome.model.OrderStatus.REJECTED) {
-                continue;
+        Path journal = Path.of(journalDir);
+        // Shard -> sequence its book snapshots are valid as of; symbol -> sequence its own book file is at
+        Map<Integer, Long> snapshotSequences = new HashMap<>();
+        Map<String, Long> bookSequences = new HashMap<>();
+
+        if (!(journalEnabled && snapshotEnabled && restoreSnapshots(journal, snapshotSequences, bookSequences))) {
+            if (lazyRecovery && !snapshotEnabled) {
+                // Journal replay below loads the symbols it touches; the rest wait for their first command or read
+                loadOnFirstUse = true;
+                System.out.println("Books will be loaded from the order store on first use of each symbol.");
+            } else {
+                if (lazyRecovery) {
+                    System.err.println("engine.recovery.lazy is ignored while engine.snapshot.enabled is set:"
+                            + " every round must be able to snapshot every book.");
+                }
+                restoreFromOrderStore();
             }
-            
-            MatchingEngine engine = getEngine(order.getSymbol());
-            // Directly add to book without triggering matching or persistence
-            // Since we are creating logic in MatchingEngine, we might need a specific 'recoverOrder' method
-            // or we use the fact that these orders are already in DB.
-            // But MatchingEngine.processOrder persists and matches. We don't want that for recovery.
-            // MatchingEngine needs a way to "load" an order.
-            engine.getOrderBook().addOrder(order);
-            loadedCount++;
         }
-        System.out.println("Recovery Complete. Loaded " + loadedCount + " active orders.");
+        if (journalEnabled) {
+            replayJournal(journal, snapshotSequences, bookSequences);
+        }
+        // Recovery runs before the pipeline starts; make the restored books visible to readers
+        engines.values().forEach(engine -> engine.getOrderBook().publishSnapshot());
+        System.out.println("Recovery Complete.");
+    }
+
+    private void restoreFromOrderStore() {
+        // Terminal orders live in a separate column family, so this is proportional to open interest.
+        // Streamed straight from the iterator into the books; symbols are rebuilt in parallel.
+        try (ParallelBookLoader loader = newBookLoader("the order store")) {
+            orderDao.forEachActive(order -> {
+                if (!isTerminal(order)) {
+                    loader.add(order);
+                }
+            });
+            loader.finish();
+        }
+    }
+
+    private ParallelBookLoader newBookLoader(String source) {
+        return new ParallelBookLoader(source, recoveryParallelism, recoveryChunkSize,
+                (symbol, orders) -> {
+                    // Directly add to book without triggering matching or persistence
+                    MatchingEngine engine = getEngine(symbol);
+                    for (Order order : orders) {
+                        engine.restoreOrder(order);
+                        orderSymbols.put(order.getOrderId(), symbol);
+                    }
+                });
+    }
+
+    /**
+     * Loads the books from their latest snapshots instead of the order store, so startup reads only
+     * open interest. Used only if every journaled shard has a complete snapshot (a manifest) that
+     * loads cleanly; otherwise nothing is restored and recovery falls back to the order store.
+     */
+    boolean restoreSnapshots(Path journal, Map<Integer, Long> snapshotSequences, Map<String, Long> bookSequences) {
+        BookSnapshotStore store =
+                new BookSnapshotStore(Path.of(snapshotDir));
+        List<BookSnapshot> books = new ArrayList<>();
+        try {
+            Set<Integer> shards = CommandJournal.shards(journal);
+            if (shards.isEmpty()) {
+                return false;
+            }
+            for (int shard : shards) {
+                long sequence = store.loadManifest(shard);
+                if (sequence == BookSnapshotStore.NO_SNAPSHOT) {
+                    System.out.println("No book snapshot for shard " + shard + "; recovering from the order store.");
+                    return false;
+                }
+                for (BookSnapshot book : store.load(shard)) {
+                    books.add(book);
+                    bookSequences.put(book.symbol(), Math.max(book.sequence(), sequence));
+                }
+                snapshotSequences.put(shard, sequence);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Book snapshots unusable, recovering from the order store: " + e.getMessage());
+            snapshotSequences.clear();
+            bookSequences.clear();
+            return false;
+        }
+
+        try (ParallelBookLoader loader = newBookLoader(books.size() + " book snapshots")) {
+            for (BookSnapshot book : books) {
+                book.orders().forEach(loader::add);
+            }
+            loader.finish();
+        }
+        return true;
+    }
+
+    /**
+     * Replays the journal on top of what was restored. Each shard is replayed from its snapshot
+     * sequence if it has one (a record is applied only to a book older than it), otherwise from the
+     * position the order store was last committed at. Commands are re-run through MatchingEngine.match
+     * with their journaled IDs and timestamps, so the books end up as the live pipeline left them.
+     * The orders they touched are written back in one batch with the new journal positions; records
+     * the store had already committed rewrite the same state. Trades are normally published only
+     * after the store commit, so those of records above the store position are published now,
+     * except the ones the persistence stage published while running from the journal alone
+     * (up to the shard's published sequence, see CommandJournal.storePublishedSequence).
+     */
+    void replayJournal(Path dir, Map<Integer, Long> snapshotSequences, Map<String, Long> bookSequences) {
+        Map<Long, Order> touched = new LinkedHashMap<>();
+        List<Trade> trades = new ArrayList<>();
+        Fills fills = new Fills();
+        int replayed = 0;
+        try (OrderWriteBatch batch = orderDao.newWriteBatch()) {
+            for (int shard : CommandJournal.shards(dir)) {
+                long persisted = orderDao.loadJournalPosition(shard);
+                long published = Math.max(persisted, CommandJournal.loadPublishedSequence(dir, shard));
+                long from = Math.min(persisted, snapshotSequences.getOrDefault(shard, persisted));
+                long[] last = {from};
+                int[] applied = {0};
+                CommandJournal.replay(dir, shard, from, record -> {
+                    if (record.sequence() > bookSequences.getOrDefault(record.symbol(), from)) {
+                        replay(record, fills, touched, record.sequence() > published ? trades : null);
+                        applied[0]++;
+                    }
+                    last[0] = record.sequence();
+                });
+                if (last[0] > persisted) {
+                    batch.setJournalPosition(shard, last[0]);
+                }
+                replayed += applied[0];
+            }
+            for (Order order : touched.values()) {
+                batch.save(order);
+                updateRoute(order);
+            }
+            batch.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error replaying command journal in " + dir, e);
+        }
+        for (Trade trade : trades) {
+            eventProcessor.onTrade(new TradeEvent(trade));
+        }
+        System.out.println("Replayed " + replayed + " journaled commands (" + touched.size() + " orders, "
+                + trades.size() + " new trades).");
+    }
+
+    // trades: where to collect the record's trades, or null if they were already published
+    private void replay(JournalRecord record, Fills fills,
+                        Map<Long, Order> touched, List<Trade> trades) {
+        MatchingEngine engine = getEngine(record.symbol());
+        switch (record.type()) {
+            case NEW -> {
+                Order order = record.toOrder(engine.getPriceScale());
+                engine.match(order, fills);
+                if (fills.size() != record.tradeIds().length) {
+                    System.err.println("Journal replay diverged at sequence " + record.sequence() + ": "
+                            + fills.size() + " fills, " + record.tradeIds().length + " journaled");
+                }
+                for (int i = 0; i < fills.size(); i++) {
+                    fills.get(i).setTradeId(i < record.tradeIds().length ? record.tradeIds()[i] : 0);
+                    Order resting = fills.get(i).getResting();
+                    touched.put(resting.getOrderId(), resting);
+                }
+                touched.put(order.getOrderId(), order);
+                if (trades != null) {
+                    trades.addAll(fills.toTrades(order, engine.getPriceScale()));
+                }
+            }
+            case CANCEL -> {
+                Order cancelled = engine.cancel(record.orderId());
+                if (cancelled != null) {
+                    touched.put(cancelled.getOrderId(), cancelled);
+                }
+            }
+            case MODIFY -> {
+                // Rejected by the pipeline; nothing to apply
+            }
+        }
+    }
+
+    /** Every engine created so far. A shard's matching thread may read only its own symbols' books. */
+    public Collection<MatchingEngine> getEngines() {
+        return Collections.unmodifiableCollection(engines.values());
     }
 
     public MatchingEngine getEngine(String symbol) {
-        return engines.computeIfAbsent(symbol, s -> new MatchingEngine(s, eventProcessor, orderDao));
+        return engines.computeIfAbsent(symbol, this::createEngine);
+    }
+
+    private MatchingEngine createEngine(String symbol) {
+        MatchingEngine engine = new MatchingEngine(symbol, createOrderBook(symbol), new OrderPool(orderPoolCapacity), eventProcessor, orderDao);
+        if (loadOnFirstUse) {
+            // Inside computeIfAbsent: no other thread sees the engine before its book is complete, and no
+            // command for the symbol can have been matched (matching goes through here), so the store is stable
+            loadActiveOrders(symbol, engine);
+        }
+        return engine;
+    }
+
+    private void loadActiveOrders(String symbol, MatchingEngine engine) {
+        long start = System.nanoTime();
+        int[] loaded = {0};
+        orderDao.forEachActive(symbol, order -> {
+            engine.restoreOrder(order);
+            orderSymbols.put(order.getOrderId(), symbol);
+            loaded[0]++;
+        });
+        engine.getOrderBook().publishSnapshot();
+        if (loaded[0] > 0) {
+            System.out.println("Loaded " + loaded[0] + " resting orders of " + symbol + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+        }
+    }
+
+    private OrderBook createOrderBook(String symbol) {
+        PriceScale priceScale = new PriceScale(priceScales.getOrDefault(symbol, defaultPriceScale));
+        OrderBookType type = OrderBookType.valueOf(orderBookTypes.getOrDefault(symbol, defaultOrderBookType).toUpperCase());
+        return switch (type) {
+            case PRICE_LADDER -> new PriceLadderOrderBook(symbol, priceScale, ladderCapacity, singleWriter);
+            case TREE_MAP -> new TreeMapOrderBook(symbol, priceScale, singleWriter);
+        };
     }
 }
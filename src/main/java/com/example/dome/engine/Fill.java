@@ -0,0 +1,77 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.Trade;
+
+
+/**
+ * One execution written by the matching algorithm into a reusable slot (see Fills).
+ * Mutable and owned by a ring-resident OrderCommand, so the match loop allocates nothing per fill;
+ * it becomes a Trade only in the persistence stage via toTrade().
+ */
+public class Fill {
+
+    private long tradeId; // 0 until assigned by the shard's SequenceIdGenerator
+    private Order resting;
+    private boolean restingCompleted; // this fill left the resting order with nothing remaining
+    private long price; // in ticks
+    private long quantity;
+    private long timestamp; // epoch nanos
+
+    void set(Order resting, long price, long quantity, long timestamp) {
+        this.tradeId = 0;
+        this.resting = resting;
+        this.restingCompleted = resting.getRemainingQuantity() == 0;
+        this.price = price;
+        this.quantity = quantity;
+        this.timestamp = timestamp;
+    }
+
+    void clear() {
+        this.resting = null;
+    }
+
+    public long getTradeId() {
+        return tradeId;
+    }
+
+    void setTradeId(long tradeId) {
+        this.tradeId = tradeId;
+    }
+
+    public Order getResting() {
+        return resting;
+    }
+
+    /**
+     * True if this fill completed the resting order, i.e. this command owns returning it to the pool.
+     */
+    public boolean isRestingCompleted() {
+        return restingCompleted;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Trade toTrade(Order incoming, PriceScale priceScale) {
+        return Trade.builder()
+                .tradeId(tradeId)
+                .symbol(incoming.getSymbol())
+                .buyOrderId(incoming.getSide() == OrderSide.BUY ? incoming.getOrderId() : resting.getOrderId())
+                .sellOrderId(incoming.getSide() == OrderSide.SELL ? incoming.getOrderId() : resting.getOrderId())
+                .price(priceScale.toPrice(price))
+                .quantity(quantity)
+                .timestamp(timestamp)
+                .build();
+    }
+}
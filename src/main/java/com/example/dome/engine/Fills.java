@@ -0,0 +1,100 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.Order;
+import com.example.dome.model.Trade;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Preallocated, reusable fill slots for one incoming order.
+ * The slots are created once and overwritten on every match; the array only grows
+ * (doubling) if a single order sweeps more resting orders than ever before.
+ * Not thread-safe: written by the matching thread, then read by the next pipeline stage.
+ */
+public class Fills {
+
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private Fill[] slots;
+    private int size;
+
+    public Fills() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Fills(int capacity) {
+        this.slots = new Fill[Math.max(1, capacity)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Fill();
+        }
+    }
+
+    /**
+     * Records an execution. Call after the resting order has been filled, so the slot
+     * can note whether this fill completed it.
+     */
+    public void add(Order resting, long price, long quantity, long timestamp) {
+        if (size == slots.length) {
+            grow();
+        }
+        slots[size++].set(resting, price, quantity, timestamp);
+    }
+
+    public Fill get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Fill " + index + " of " + size);
+        }
+        return slots[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        // Drop order references so the ring does not keep filled orders reachable
+        for (int i = 0; i < size; i++) {
+            slots[i].clear();
+        }
+        size = 0;
+    }
+
+    /** Numbers the fills' trades from the shard's sequence, in execution order. */
+    public void assignTradeIds(SequenceIdGenerator tradeIds) {
+        for (int i = 0; i < size; i++) {
+            slots[i].setTradeId(tradeIds.next());
+        }
+    }
+
+    /** Converts the fills into Trades. Allocates; call outside the matching thread. */
+    public List<Trade> toTrades(Order incoming, PriceScale priceScale) {
+        List<Trade> trades = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            trades.add(slots[i].toTrade(incoming, priceScale));
+        }
+        return trades;
+    }
+
+    /** The resting orders touched by the fills, in fill order. */
+    public List<Order> restingOrders() {
+        List<Order> orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            orders.add(slots[i].getResting());
+        }
+        return orders;
+    }
+
+    private void grow() {
+        Fill[] resized = new Fill[slots.length * 2];
+        System.arraycopy(slots, 0, resized, 0, slots.length);
+        for (int i = slots.length; i < resized.length; i++) {
+            resized[i] = new Fill();
+        }
+        this.slots = resized;
+    }
+}
@@ -1,17 +1,15 @@
 package com.example.dome.engine;
 
 import com.example.dome.model.Order;
-import com.example.dome.model.Trade;
-
-import java.util.List;
 
 public interface MatchingAlgorithm {
     
     /**
      * Matches the incoming order against the resting orders in the book.
+     * Must not allocate: executions are written into the caller's preallocated fill slots.
      * @param incomingOrder The aggressive order.
      * @param orderBook The order book for the symbol.
-     * @return MatchResult containing trades and modified orders.
+     * @param fills Cleared, reusable fill slots; one entry per execution against a resting order.
      */
-    MatchResult match(Order incomingOrder, OrderBook orderBook);
+    void match(Order incomingOrder, OrderBook orderBook, Fills fills);
 }
@@ -9,20 +9,38 @@ import jakarta.annotation.PostConstruct;
 
 
 import java.util.List;
-import java.util.UUID;
 
 public class MatchingEngine {
 
     private final String symbol;
+    private final PriceScale priceScale;
     private final OrderBook orderBook;
     
     // In Week 2, we can hardcode the algorithm or inject it.
     private final MatchingAlgorithm matchingAlgorithm = new FifoMatchingAlgorithm();
+    // Scratch slots for the MatchResult-returning path (tests / synchronous fallback)
+    private final Fills scratchFills = new Fills();
     private final EventProcessor eventProcessor;
     private final OrderDao orderDao;
+    private final OrderPool orderPool;
+
     public MatchingEngine(String symbol, EventProcessor eventProcessor, OrderDao orderDao) {
+        this(symbol, new PriceScale(PriceScale.DEFAULT_SCALE), eventProcessor, orderDao);
+    }
+
+    public MatchingEngine(String symbol, PriceScale priceScale, EventProcessor eventProcessor, OrderDao orderDao) {
+        this(symbol, new TreeMapOrderBook(symbol, priceScale), eventProcessor, orderDao);
+    }
+
+    public MatchingEngine(String symbol, OrderBook orderBook, EventProcessor eventProcessor, OrderDao orderDao) {
+        this(symbol, orderBook, new OrderPool(OrderPool.DEFAULT_CAPACITY), eventProcessor, orderDao);
+    }
+
+    public MatchingEngine(String symbol, OrderBook orderBook, OrderPool orderPool, EventProcessor eventProcessor, OrderDao orderDao) {
         this.symbol = symbol;
-        this.orderBook = new OrderBook(symbol);
+        this.orderPool = orderPool;
+        this.priceScale = orderBook.getPriceScale();
+        this.orderBook = orderBook;
         this.eventProcessor = eventProcessor;
         this.orderDao = orderDao;
     }
@@ -31,27 +49,73 @@ public class MatchingEngine {
         return orderBook;
     }
 
+    public PriceScale getPriceScale() {
+        return priceScale;
+    }
+
+    /** Recycled Order instances for this symbol; see OrderPool for which thread may call what. */
+    public OrderPool getOrderPool() {
+        return orderPool;
+    }
+
     /**
-     * Async/Disruptor compatible matching.
+     * Loads an already-persisted resting order into the book (recovery).
+     * No matching, no persistence. Stamps the tick price since stored orders carry the decimal price only.
+     * Time priority within a level comes from the order's timestamp (see OrderBook.restoreOrder).
+     */
+    public void restoreOrder(Order order) {
+        if (order.getPrice() != null) {
+            order.setPriceTicks(priceScale.toTicks(order.getPrice()));
+        }
+        orderBook.restoreOrder(order);
+    }
+
+    /**
+     * Async/Disruptor compatible matching. Garbage-free: executions are written into the
+     * caller's preallocated fill slots (the ring-resident OrderCommand's) and turned into
+     * Trades later by the persistence stage.
      * Does NOT persist to DB.
-     * @return MatchResult.
+     * The order's priceTicks must already be stamped by the caller (see PriceScale).
      */
-    public MatchResult match(Order order) {
+    public void match(Order order, Fills fills) {
          if (!order.getSymbol().equals(this.symbol)) {
              throw new IllegalArgumentException("Order symbol mismatch. Engine is " + symbol + " but order is " + order.getSymbol());
         }
 
         // Match Logic
-        MatchResult matchResult = matchingAlgorithm.match(order, orderBook);
-        
-        // Logic for book update
-        if (order.getRemainingQuantity() > 0) {
-             if (order.getType() == com.example.dome.model.OrderType.LIMIT) {
-                 orderBook.addOrder(order);
-             }
+        fills.clear();
+        // The algorithm polls and shrinks levels directly: readers must not see a level mid-pass
+        orderBook.lockForMatching();
+        try {
+            matchingAlgorithm.match(order, orderBook, fills);
+
+            for (int i = 0; i < fills.size(); i++) {
+                Fill fill = fills.get(i);
+                if (fill.isRestingCompleted()) {
+                    orderBook.removeFilledOrder(fill.getResting().getOrderId());
+                }
+            }
+
+            // Logic for book update
+            if (order.getRemainingQuantity() > 0) {
+                 if (order.getType() == com.example.dome.model.OrderType.LIMIT) {
+                     orderBook.addOrder(order);
+                 }
+            }
+        } finally {
+            orderBook.unlockForMatching();
         }
-        
-        // Return full result for Persistence Handler
+    }
+
+    /**
+     * Matching with Trade objects built immediately (allocates).
+     * Used by tests and the synchronous processOrder fallback.
+     * @return MatchResult.
+     */
+    public MatchResult match(Order order) {
+        match(order, scratchFills);
+        MatchResult matchResult = new MatchResult(scratchFills.toTrades(order, priceScale), scratchFills.restingOrders());
+        scratchFills.clear();
         return matchResult;
     }
 
@@ -71,18 +135,35 @@ public class MatchingEngine {
         for (Trade trade : trades) {
              eventProcessor.onTrade(new TradeEvent(trade));
         }
+        eventProcessor.flushTrades();
         
-        var bestBid = orderBook.getBestBid();
-        var bestAsk = orderBook.getBestAsk();
-        eventProcessor.onBookUpdate(symbol, 
-            bestBid != null ? bestBid.getPrice() : null, 
-            bestAsk != null ? bestAsk.getPrice() : null);
+        orderBook.publishSnapshot();
+        publishBookUpdate();
             
         return trades;
     }
 
-    public void cancelOrder(UUID orderId) {
-        Order order = orderDao.findById(orderId.toString());
+    /**
+     * Async/Disruptor compatible cancel: runs on the matching thread.
+     * The order is resolved from the book's in-memory index only (no RocksDB read),
+     * so only resting orders can be cancelled. Does NOT persist or publish.
+     * @return the cancelled order, or null if it is not resting in this book.
+     */
+    public Order cancel(long orderId) {
+        Order order = orderBook.getOrder(orderId);
+        if (order == null) {
+            return null;
+        }
+        orderBook.cancelOrder(order);
+        return order;
+    }
+
+    public void cancelOrder(long orderId) {
+        // Prefer the resting instance: it carries the tick price the book is keyed on
+        Order order = orderBook.getOrder(orderId);
+        if (order == null) {
+            order = orderDao.findById(orderId);
+        }
         if (order == null) {
             throw new IllegalArgumentException("Order not found: " + orderId);
         }
@@ -92,16 +173,22 @@ public class MatchingEngine {
         }
         
         orderBook.cancelOrder(order);
+        orderBook.publishSnapshot();
         
         order.setStatus(com.example.dome.model.OrderStatus.CANCELED);
         orderDao.save(order);
         
-        // Update Cache
         // Update Cache & WebSocket via EventProcessor
+        publishBookUpdate();
+    }
+
+    private void publishBookUpdate() {
         var bestBid = orderBook.getBestBid();
         var bestAsk = orderBook.getBestAsk();
         eventProcessor.onBookUpdate(symbol, 
-            bestBid != null ? bestBid.getPrice() : null, 
-            bestAsk != null ? bestAsk.getPrice() : null);
+            bestBid != null ? priceScale.toPrice(bestBid.getPrice()) : null, 
+            bestAsk != null ? priceScale.toPrice(bestAsk.getPrice()) : null);
+        // The synchronous path has no batches: each command is its own
+        eventProcessor.flushBookUpdates();
     }
 }
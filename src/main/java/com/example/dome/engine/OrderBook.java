@@ -3,165 +3,111 @@ package com.example.dome.engine;
 import com.example.dome.model.Order;
 import com.example.dome.model.OrderSide;
 
-import java.math.BigDecimal;
-import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Manages the Bids and Asks for a specific symbol.
- * Uses TreeMaps for maintaining price ordering.
- * Thread-safe using ReentrantReadWriteLock.
+ * Bids and Asks for a single symbol.
+ * Implementations differ only in how price levels are stored and located
+ * (see TreeMapOrderBook and PriceLadderOrderBook). All prices are in ticks (see PriceScale).
  */
-public class OrderBook {
-
-    private final String symbol;
-    
-    // Bids: Decreasing order (Highest buy price first)
-    private final TreeMap<BigDecimal, PriceLevel> bids;
-    
-    // Asks: Increasing order (Lowest sell price first)
-    private final TreeMap<BigDecimal, PriceLevel> asks;
-    
-    // Lock for structure modification (adding/removing price levels)
-    // Individual PriceLevels are thread-safe for adding orders, but the Map itself needs protection.
-    private final ReentrantReadWriteLock lock;
-
-    // Index for O(1) lookup of orders by ID
-    private final Map<UUID, Order> orderIndex = new HashMap<>();
-
-    public OrderBook(String symbol) {
-        this.symbol = symbol;
-        this.bids = new TreeMap<>(Comparator.reverseOrder());
-        this.asks = new TreeMap<>();
-        this.lock = new ReentrantReadWriteLock();
-    }
-
-    public void addOrder(Order order) {
-        if (!order.getSymbol().equals(this.symbol)) {
-             throw new IllegalArgumentException("Order symbol mismatch");
-        }
-        
-        // Acquire lock to ensure PriceLevel existence or creation
-        lock.writeLock().lock(); // WRITE lock needed for Index update
-        try {
-            PriceLevel level = getPriceLevel(order.getSide(), order.getPrice());
-            if (level == null) {
-                level = new PriceLevel(order.getPrice());
-                if (order.getSide() == OrderSide.BUY) {
-                    bids.put(order.getPrice(), level);
-                } else {
-                    asks.put(order.getPrice(), level);
-                }
-            }
-            level.addOrder(order);
-            orderIndex.put(order.getOrderId(), order);
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
-
-    public void cancelOrder(Order order) {
-        if (!order.getSymbol().equals(this.symbol)) {
-            throw new IllegalArgumentException("Order symbol mismatch");
-        }
-        
-        lock.writeLock().lock(); // WRITE lock for Index removal
-        try {
-            PriceLevel level = getPriceLevel(order.getSide(), order.getPrice());
-            if (level != null) {
-                level.cancelOrder(order);
-            }
-            orderIndex.remove(order.getOrderId());
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
-    
-    // Package-private or public accessor if needed
-    public Order getOrder(UUID orderId) {
-        lock.readLock().lock();
-        try {
-            return orderIndex.get(orderId);
-        } finally {
-            lock.readLock().unlock();
-        }
-    }
-
-    public void modifyOrder(UUID orderId, Order newOrder) {
-        lock.writeLock().lock();
-        try {
-            Order oldOrder = orderIndex.get(orderId);
-            if (oldOrder == null) {
-                throw new IllegalArgumentException("Order not found: " + orderId);
-            }
-            
-            // simple Cancel/Replace (Loss order priority)
-            cancelOrder(oldOrder);
-            addOrder(newOrder);
-            
-            // TODO: In future, if optimization needed (e.g. reduce size keeps priority),
-            // handle here by checking if price is same and size < oldSize.
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
-
-    private PriceLevel getPriceLevel(OrderSide side, BigDecimal price) {
-        return side == OrderSide.BUY ? bids.get(price) : asks.get(price);
-    }
-    
-    public PriceLevel getBestBid() {
-        lock.readLock().lock();
-        try {
-            Map.Entry<BigDecimal, PriceLevel> entry = bids.firstEntry();
-            return entry == null ? null : entry.getValue();
-        } finally {
-            lock.readLock().unlock();
-        }
-    }
-
-    public PriceLevel getBestAsk() {
-        lock.readLock().lock();
-        try {
-            Map.Entry<BigDecimal, PriceLevel> entry = asks.firstEntry();
-            return entry == null ? null : entry.getValue();
-        } finally {
-            lock.readLock().unlock();
-        }
-    }
-
-    // Snapshot mechanism
-    public Map<String, List<PriceLevelSnapshot>> getSnapshot() {
-        lock.readLock().lock();
-        try {
-            List<PriceLevelSnapshot> bidSnap = new ArrayList<>();
-            List<PriceLevelSnapshot> askSnap = new ArrayList<>();
-            
-            bids.values().forEach(lvl -> bidSnap.add(new PriceLevelSnapshot(lvl.getPrice(), lvl.getTotalQuantity())));
-            asks.values().forEach(lvl -> askSnap.add(new PriceLevelSnapshot(lvl.getPrice(), lvl.getTotalQuantity())));
-            
-            Map<String, List<PriceLevelSnapshot>> snapshot = new HashMap<>();
-            snapshot.put("bids", bidSnap);
-            snapshot.put("asks", askSnap);
-            return snapshot;
-        } finally {
-            lock.readLock().unlock();
-        }
-    }
-    
-    public void removeLevel(BigDecimal price) {
-        lock.writeLock().lock();
-        try {
-            if (bids.containsKey(price)) {
-                bids.remove(price);
-            } else if (asks.containsKey(price)) {
-                asks.remove(price);
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
-    
-    // Simple record for snapshot
-    public record PriceLevelSnapshot(BigDecimal price, long quantity) {}
+public interface OrderBook {
+
+    void addOrder(Order order);
+
+    /**
+     * Recovery: adds a stored order at its time-priority position in its level (by timestamp,
+     * after orders with the same stamp) instead of at the back. Recovery reads orders in ID order,
+     * and IDs given to migrated orders do not follow time.
+     */
+    void restoreOrder(Order order);
+
+    /**
+     * Whether a remainder at this price could be added to the given side without exceeding what
+     * the book can hold. Matching never changes the incoming order's own side, so the answer
+     * given before matching still holds when the remainder is added.
+     */
+    boolean canRest(OrderSide side, long price);
+
+    void cancelOrder(Order order);
+
+    Order getOrder(long orderId);
+
+    /**
+     * Drops a fully filled order from the order index. The matcher has already polled it from
+     * its level; once it goes back to the pool the index must not hand it out again.
+     */
+    void removeFilledOrder(long orderId);
+
+    void modifyOrder(long orderId, Order newOrder);
+
+    /**
+     * Holds the book's write lock across a whole matching pass, which mutates price levels
+     * directly (poll, reduceTotalQuantity). Locking mode only; a no-op in single-writer mode.
+     * The lock is reentrant, so the book's own mutators may be called while it is held.
+     */
+    void lockForMatching();
+
+    void unlockForMatching();
+
+    PriceLevel getBestBid();
+
+    PriceLevel getBestAsk();
+
+    /**
+     * Removes an (empty) price level from the given side.
+     */
+    void removeLevel(OrderSide side, long price);
+
+    /**
+     * Aggregate resting quantity at this exact price, or 0 if there is no level there.
+     * In single-writer mode only the writer thread may call it.
+     */
+    long getLevelQuantity(OrderSide side, long price);
+
+    /**
+     * Numbers the next depth update of this book (1, 2, ... per process run). Called by the
+     * writer thread once per command that changed levels; the depth snapshots published after
+     * it report this number, so a client can line deltas up against a snapshot.
+     */
+    long nextDepthSequence();
+
+    /**
+     * Visits every resting order: bids then asks, best price first, time priority within a level.
+     * Restoring them in this order with addOrder rebuilds the same book (see BookSnapshotStore).
+     * In single-writer mode only the writer thread may call it.
+     */
+    void forEachOrder(java.util.function.Consumer<Order> action);
+
+    /**
+     * Safe to call from any thread. In single-writer mode this is the view last published
+     * by the writer, not the live book.
+     */
+    Map<String, List<PriceLevelSnapshot>> getSnapshot();
+
+    /**
+     * Same view as getSnapshot(), plus the depth sequence of the last update it includes: applying
+     * the deltas numbered after it rebuilds the live book. Exact in single-writer mode; in locking
+     * mode the number is taken after matching releases the lock, so it may lag the levels slightly.
+     */
+    DepthSnapshot getDepthSnapshot();
+
+    /**
+     * Single-writer mode: called by the writer thread (e.g. at the end of a Disruptor batch)
+     * to make the current book visible to getSnapshot() readers. No-op in locking mode or if
+     * nothing changed since the last publish.
+     */
+    void publishSnapshot();
+
+    boolean isSingleWriter();
+
+    String getSymbol();
+
+    PriceScale getPriceScale();
+
+    // Simple record for snapshot. Price is in ticks; convert with getPriceScale() at the edge.
+    record PriceLevelSnapshot(long price, long quantity) {}
+
+    // Levels best price first, as of depth update `sequence` (0 before the first update)
+    record DepthSnapshot(long sequence, List<PriceLevelSnapshot> bids, List<PriceLevelSnapshot> asks) {}
 }
@@ -0,0 +1,11 @@
+package com.example.dome.engine;
+
+/**
+ * Order book implementation selectable per symbol in EngineRegistry.
+ */
+public enum OrderBookType {
+    // Red-black tree per side. Works for any price distribution.
+    TREE_MAP,
+    // Direct-indexed ring of levels per side. O(1) level access for narrow-band instruments.
+    PRICE_LADDER
+}
@@ -0,0 +1,44 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.Order;
+import org.jctools.queues.SpscArrayQueue;
+
+/**
+ * Recycles Order objects for one MatchingEngine so resting and transient orders
+ * stop flowing into old gen.
+ *
+ * Ownership rules:
+ * - acquire() is called only by the engine's matching thread, when a NEW command enters.
+ * - release() is called only by the persistence stage of the same shard, once the batch holding the
+ *   command that made the order terminal (FILLED, CANCELED, or a MARKET remainder that never rests)
+ *   has been committed and its results published. Nothing may hold the order after that.
+ * One producer and one consumer per engine, hence the SPSC queue. If the pool is full a released
+ * order is simply dropped for the GC; if it is empty, acquire() allocates.
+ */
+public class OrderPool {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private final SpscArrayQueue<Order> free;
+
+    public OrderPool(int capacity) {
+        // SpscArrayQueue never holds fewer than 4
+        this.free = new SpscArrayQueue<>(Math.max(4, capacity));
+    }
+
+    /** Matching thread only. */
+    public Order acquire() {
+        Order order = free.relaxedPoll();
+        return order != null ? order : new Order();
+    }
+
+    /** Persistence stage only. */
+    public void release(Order order) {
+        order.reset();
+        free.relaxedOffer(order);
+    }
+
+    public int available() {
+        return free.size();
+    }
+}
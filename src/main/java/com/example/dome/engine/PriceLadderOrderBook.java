@@ -0,0 +1,197 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.OrderSide;
+
+import java.util.function.Consumer;
+
+/**
+ * Order book backed by a direct-indexed price ladder per side.
+ * Each side is a power-of-two ring of PriceLevel slots indexed by (ticks & mask), so level
+ * lookup, insert and removal are O(1) array accesses instead of red-black tree traversal.
+ * The occupied window [low, high] moves with the market; the ring only grows when the
+ * spread between the lowest and highest resting price no longer fits.
+ * Best bid / best ask are tracked as the window edges.
+ *
+ * Intended for instruments trading in a narrow band; use TreeMapOrderBook for sparse or wide-range ones.
+ */
+public class PriceLadderOrderBook extends AbstractOrderBook {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Hard cap on the ring size (ticks between the lowest and highest resting price on one side): 8 MB of slots
+    static final int MAX_CAPACITY = 1 << 20;
+
+    private final Ladder bids;
+    private final Ladder asks;
+
+    public PriceLadderOrderBook(String symbol, PriceScale priceScale) {
+        this(symbol, priceScale, DEFAULT_CAPACITY);
+    }
+
+    public PriceLadderOrderBook(String symbol, PriceScale priceScale, int initialCapacity) {
+        this(symbol, priceScale, initialCapacity, false);
+    }
+
+    public PriceLadderOrderBook(String symbol, PriceScale priceScale, int initialCapacity, boolean singleWriter) {
+        super(symbol, priceScale, singleWriter);
+        this.bids = new Ladder(true, initialCapacity);
+        this.asks = new Ladder(false, initialCapacity);
+    }
+
+    private Ladder side(OrderSide side) {
+        return side == OrderSide.BUY ? bids : asks;
+    }
+
+    @Override
+    protected PriceLevel findLevel(OrderSide side, long price) {
+        return side(side).get(price);
+    }
+
+    @Override
+    protected void insertLevel(OrderSide side, PriceLevel level) {
+        side(side).put(level);
+    }
+
+    @Override
+    protected void deleteLevel(OrderSide side, long price) {
+        side(side).remove(price);
+    }
+
+    @Override
+    protected boolean canHoldLevel(OrderSide side, long price) {
+        return side(side).canHold(price);
+    }
+
+    @Override
+    protected PriceLevel bestLevel(OrderSide side) {
+        return side(side).best();
+    }
+
+    @Override
+    protected void forEachLevel(OrderSide side, Consumer<PriceLevel> action) {
+        side(side).forEachBestFirst(action);
+    }
+
+    /**
+     * One side of the book. Every occupied price lies in [low, high] and high - low < slots.length,
+     * so (price & mask) maps each price in the window to a distinct slot.
+     */
+    private static final class Ladder {
+
+        private final boolean bestIsHighest;
+        private PriceLevel[] slots;
+        private int mask;
+        private int levelCount;
+        private long low;
+        private long high;
+
+        Ladder(boolean bestIsHighest, int initialCapacity) {
+            this.bestIsHighest = bestIsHighest;
+            int capacity = 2;
+            while (capacity < initialCapacity && capacity < MAX_CAPACITY) {
+                capacity <<= 1;
+            }
+            this.slots = new PriceLevel[capacity];
+            this.mask = capacity - 1;
+        }
+
+        PriceLevel get(long price) {
+            if (levelCount == 0 || price < low || price > high) {
+                return null;
+            }
+            return slots[(int) (price & mask)];
+        }
+
+        boolean canHold(long price) {
+            return levelCount == 0 || Math.max(high, price) - Math.min(low, price) < MAX_CAPACITY;
+        }
+
+        void put(PriceLevel level) {
+            long price = level.getPrice();
+            if (levelCount == 0) {
+                low = price;
+                high = price;
+            } else {
+                long newLow = Math.min(low, price);
+                long newHigh = Math.max(high, price);
+                if (newHigh - newLow >= slots.length) {
+                    grow(newHigh - newLow + 1, price);
+                }
+                low = newLow;
+                high = newHigh;
+            }
+            slots[(int) (price & mask)] = level;
+            levelCount++;
+        }
+
+        void remove(long price) {
+            if (get(price) == null) {
+                return;
+            }
+            slots[(int) (price & mask)] = null;
+            levelCount--;
+            if (levelCount == 0) {
+                return;
+            }
+            // Move the window edge to the next occupied slot
+            if (price == low) {
+                long p = price + 1;
+                while (slots[(int) (p & mask)] == null) {
+                    p++;
+                }
+                low = p;
+            } else if (price == high) {
+                long p = price - 1;
+                while (slots[(int) (p & mask)] == null) {
+                    p--;
+                }
+                high = p;
+            }
+        }
+
+        PriceLevel best() {
+            if (levelCount == 0) {
+                return null;
+            }
+            return slots[(int) ((bestIsHighest ? high : low) & mask)];
+        }
+
+        void forEachBestFirst(Consumer<PriceLevel> action) {
+            if (levelCount == 0) {
+                return;
+            }
+            if (bestIsHighest) {
+                for (long p = high; p >= low; p--) {
+                    PriceLevel level = slots[(int) (p & mask)];
+                    if (level != null) action.accept(level);
+                }
+            } else {
+                for (long p = low; p <= high; p++) {
+                    PriceLevel level = slots[(int) (p & mask)];
+                    if (level != null) action.accept(level);
+                }
+            }
+        }
+
+        private void grow(long requiredSpan, long price) {
+            if (requiredSpan > MAX_CAPACITY) {
+                // Callers check canRest first; reaching this would leave a matched order half-applied
+                throw new IllegalStateException("Price " + price + " is too far from the resting book for a price ladder ("
+                        + requiredSpan + " ticks); use a TreeMap order book for this symbol");
+            }
+            int capacity = slots.length;
+            while (capacity < requiredSpan) {
+                capacity <<= 1;
+            }
+            PriceLevel[] resized = new PriceLevel[capacity];
+            int resizedMask = capacity - 1;
+            for (PriceLevel level : slots) {
+                if (level != null) {
+                    resized[(int) (level.getPrice() & resizedMask)] = level;
+                }
+            }
+            this.slots = resized;
+            this.mask = resizedMask;
+        }
+    }
+}
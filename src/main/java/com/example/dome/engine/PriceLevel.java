@@ -1,87 +1,154 @@
 package com.example.dome.engine;
 
 import com.example.dome.model.Order;
-import org.jctools.queues.MpscLinkedQueue;
-
-import java.math.BigDecimal;
-import java.util.Queue;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a specific price level in the order book.
- * Contains a queue of orders at this price and the total quantity.
- * Uses JCTools MpscLinkedQueue for lock-free high-performance.
+ * Contains the FIFO of orders at this price and the total quantity.
+ * The FIFO is an intrusive doubly-linked list threaded through Order.prev/next,
+ * so a cancel unlinks its order in O(1) and no tombstones are left for the matcher to skip.
+ * Not thread-safe on its own: mutated only under the owning OrderBook's write lock (the matcher
+ * takes it through OrderBook.lockForMatching()) or by the single writer thread, so the total is a
+ * plain long rather than an atomic.
  */
 public class PriceLevel {
 
-    private final BigDecimal price;
-    private final Queue<Order> orders;
-    private final AtomicLong totalQuantity;
+    private final long price; // in ticks
+    private Order head;
+    private Order tail;
+    private int orderCount;
+    private long totalQuantity;
 
-    public PriceLevel(BigDecimal price) {
+    public PriceLevel(long price) {
         this.price = price;
-        // Multi-Producer Single-Consumer queue.
-        // Producers: multiple threads adding orders.
-        // Consumer: Single matching engine thread consuming orders.
-        this.orders = new MpscLinkedQueue<>();
-        this.totalQuantity = new AtomicLong(0);
     }
 
     public void addOrder(Order order) {
-        if (order.getPrice().compareTo(this.price) != 0) {
+        if (order.getPriceTicks() != this.price) {
+            throw new IllegalArgumentException("Order price does not match level price");
+        }
+        order.setPrev(tail);
+        order.setNext(null);
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.setNext(order);
+        }
+        tail = order;
+        orderCount++;
+        this.totalQuantity += order.getRemainingQuantity();
+    }
+
+    /**
+     * Recovery: links the order in behind every order stamped at or before it rather than at the
+     * back. Stored orders arrive in key (ID) order, which follows time except for orders renumbered
+     * by migration; only those walk back from the tail.
+     */
+    public void restoreOrder(Order order) {
+        if (order.getPriceTicks() != this.price) {
             throw new IllegalArgumentException("Order price does not match level price");
         }
-        this.orders.add(order);
-        this.totalQuantity.addAndGet(order.getRemainingQuantity());
+        Order prev = tail;
+        while (prev != null && prev.getTimestamp() > order.getTimestamp()) {
+            prev = prev.getPrev();
+        }
+        Order next = prev == null ? head : prev.getNext();
+        order.setPrev(prev);
+        order.setNext(next);
+        if (prev == null) {
+            head = order;
+        } else {
+            prev.setNext(order);
+        }
+        if (next == null) {
+            tail = order;
+        } else {
+            next.setPrev(order);
+        }
+        orderCount++;
+        this.totalQuantity += order.getRemainingQuantity();
     }
 
     /**
-     * logically cancels the order.
-     * Note: MPSC queue contains the order still. Matching engine must skip CANCELED orders.
-     * We decrement the volume immediately to reflect true book depth.
+     * Unlinks the order from this level and marks it CANCELED.
+     * Its remaining quantity is removed from the level total immediately.
      */
     public void cancelOrder(Order order) {
         if (order.getStatus() != com.example.dome.model.OrderStatus.CANCELED) {
-             long qty = order.getRemainingQuantity();
-             if (qty > 0) {
-                 this.totalQuantity.addAndGet(-qty);
+             if (contains(order)) {
+                 unlink(order);
+                 long qty = order.getRemainingQuantity();
+                 if (qty > 0) {
+                     this.totalQuantity -= qty;
+                 }
              }
              order.setStatus(com.example.dome.model.OrderStatus.CANCELED);
         }
     }
 
     public Order peek() {
-        return this.orders.peek();
+        return head;
     }
 
     public void reduceTotalQuantity(long quantity) {
         if (quantity > 0) {
-            this.totalQuantity.addAndGet(-quantity);
+            this.totalQuantity -= quantity;
         }
     }
 
     public Order poll() {
-        Order order = this.orders.poll();
-        if (order != null && order.getStatus() != com.example.dome.model.OrderStatus.CANCELED) {
-            // Only reduce quantity if NOT cancelled (cancelled orders already reduced totalQuantity)
-            // And if we rely on external reduction for Fills, we must be careful.
-            // If we reduce via reduceTotalQuantity during match, remainingQty decreases simultaneously.
-            // So if remainingQty is 0, we subtract 0. Correct.
-            // If remainingQty > 0 (polled prematurely?), we subtract remainder. Correct.
-            this.totalQuantity.addAndGet(-order.getRemainingQuantity());
+        Order order = head;
+        if (order != null) {
+            unlink(order);
+            // Fills are subtracted via reduceTotalQuantity as they happen, so a fully filled
+            // order subtracts 0 here; an order polled with quantity left subtracts the remainder.
+            this.totalQuantity -= order.getRemainingQuantity();
         }
         return order;
     }
 
+    /** Visits the level's orders in time priority. */
+    public void forEachOrder(java.util.function.Consumer<Order> action) {
+        for (Order order = head; order != null; order = order.getNext()) {
+            action.accept(order);
+        }
+    }
+
     public boolean isEmpty() {
-        return this.orders.isEmpty();
+        return head == null;
     }
-    
-    public BigDecimal getPrice() {
+
+    public long getPrice() {
         return price;
     }
 
     public long getTotalQuantity() {
-        return totalQuantity.get();
+        return totalQuantity;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    private boolean contains(Order order) {
+        return order.getPrev() != null || order.getNext() != null || head == order;
+    }
+
+    private void unlink(Order order) {
+        Order prev = order.getPrev();
+        Order next = order.getNext();
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.setNext(next);
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.setPrev(prev);
+        }
+        order.setPrev(null);
+        order.setNext(null);
+        orderCount--;
     }
 }
@@ -0,0 +1,45 @@
+package com.example.dome.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point price representation for a symbol.
+ * Inside the engine every price is a long count of ticks (price * 10^scale),
+ * so the book and the match loop never allocate or compare BigDecimals.
+ * Conversion to and from BigDecimal happens only at the REST / WebSocket / storage edges.
+ */
+public final class PriceScale {
+
+    public static final int DEFAULT_SCALE = 2;
+
+    private final int scale;
+
+    public PriceScale(int scale) {
+        if (scale < 0 || scale > 18) {
+            throw new IllegalArgumentException("Price scale must be between 0 and 18, got " + scale);
+        }
+        this.scale = scale;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Converts a client price into ticks.
+     * @throws IllegalArgumentException if the price is not a multiple of the tick size or overflows a long.
+     */
+    public long toTicks(BigDecimal price) {
+        try {
+            return price.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Price " + price.toPlainString()
+                    + " is not a valid multiple of tick size " + toPrice(1).toPlainString());
+        }
+    }
+
+    public BigDecimal toPrice(long ticks) {
+        return BigDecimal.valueOf(ticks, scale);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.dome.engine;
+
+import com.example.dome.persistence.SequenceStore;
+
+/**
+ * Monotonic 64-bit IDs for one matching shard, replacing UUID.randomUUID() (SecureRandom) on the hot path.
+ *
+ * Layout: [0][15-bit shard][48-bit sequence], so IDs are unique across shards and the owning
+ * shard can be read back from any ID. The sequence is reserved from the SequenceStore in blocks:
+ * the block's upper bound is persisted before any ID in it is handed out, so after a restart
+ * numbering resumes above everything previously issued (the unused rest of a block is skipped).
+ *
+ * Not thread-safe: owned by the shard's matching thread.
+ */
+public class SequenceIdGenerator {
+
+    static final int SEQUENCE_BITS = 48;
+    static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    public static final int MAX_SHARDS = 1 << 15;
+    // Never a matching shard: numbers orders migrated from UUID IDs (see RocksDBOrderDao)
+    public static final int MIGRATION_SHARD = MAX_SHARDS - 1;
+    public static final int DEFAULT_BLOCK_SIZE = 10_000;
+
+    private final String name;
+    private final SequenceStore store;
+    private final long shardBits;
+    private final int blockSize;
+
+    private long last;  // last sequence handed out
+    private long limit; // highest sequence reserved (persisted)
+
+    public SequenceIdGenerator(String kind, int shard, SequenceStore store) {
+        this(kind, shard, store, DEFAULT_BLOCK_SIZE);
+    }
+
+    public SequenceIdGenerator(String kind, int shard, SequenceStore store, int blockSize) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard must be in [0, " + MAX_SHARDS + "): " + shard);
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.name = kind + "/" + shard;
+        this.store = store;
+        this.shardBits = (long) shard << SEQUENCE_BITS;
+        this.blockSize = blockSize;
+        this.limit = store.load(name);
+        this.last = limit;
+    }
+
+    public long next() {
+        if (last == limit) {
+            reserve();
+        }
+        return shardBits | ++last;
+    }
+
+    public static int shardOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS);
+    }
+
+    private void reserve() {
+        long newLimit = Math.min(limit + blockSize, MAX_SEQUENCE);
+        if (newLimit == limit) {
+            throw new IllegalStateException("ID sequence " + name + " exhausted");
+        }
+        store.store(name, newLimit);
+        limit = newLimit;
+    }
+}
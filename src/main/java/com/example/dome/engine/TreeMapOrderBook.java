@@ -0,0 +1,66 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.OrderSide;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Order book backed by TreeMaps keyed by tick price.
+ * O(log n) level access, but no assumption about the price range:
+ * the fallback for sparse or wide-range instruments.
+ */
+public class TreeMapOrderBook extends AbstractOrderBook {
+
+    // Bids: Decreasing order (Highest buy price first)
+    private final TreeMap<Long, PriceLevel> bids;
+
+    // Asks: Increasing order (Lowest sell price first)
+    private final TreeMap<Long, PriceLevel> asks;
+
+    public TreeMapOrderBook(String symbol) {
+        this(symbol, new PriceScale(PriceScale.DEFAULT_SCALE));
+    }
+
+    public TreeMapOrderBook(String symbol, PriceScale priceScale) {
+        this(symbol, priceScale, false);
+    }
+
+    public TreeMapOrderBook(String symbol, PriceScale priceScale, boolean singleWriter) {
+        super(symbol, priceScale, singleWriter);
+        this.bids = new TreeMap<>(Comparator.reverseOrder());
+        this.asks = new TreeMap<>();
+    }
+
+    private TreeMap<Long, PriceLevel> side(OrderSide side) {
+        return side == OrderSide.BUY ? bids : asks;
+    }
+
+    @Override
+    protected PriceLevel findLevel(OrderSide side, long price) {
+        return side(side).get(price);
+    }
+
+    @Override
+    protected void insertLevel(OrderSide side, PriceLevel level) {
+        side(side).put(level.getPrice(), level);
+    }
+
+    @Override
+    protected void deleteLevel(OrderSide side, long price) {
+        side(side).remove(price);
+    }
+
+    @Override
+    protected PriceLevel bestLevel(OrderSide side) {
+        Map.Entry<Long, PriceLevel> entry = side(side).firstEntry();
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    protected void forEachLevel(OrderSide side, Consumer<PriceLevel> action) {
+        side(side).values().forEach(action);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.dome.engine.disruptor;
+
+/**
+ * What an OrderCommand asks the matching thread to do.
+ */
+public enum CommandType {
+    NEW,
+    CANCEL,
+    // Reserved for cancel/replace through the ring; rejected by the pipeline for now
+    MODIFY
+}
@@ -0,0 +1,40 @@
+package com.example.dome.engine.disruptor;
+
+import com.example.dome.engine.journal.CommandJournal;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+
+/**
+ * Appends every accepted command to the shard's CommandJournal once the matching stage has assigned its
+ * order ID, timestamp and trade IDs, so replay reproduces it exactly. Runs before the persistence
+ * stage, so nothing is acknowledged before it is journaled; with engine.journal.sync the records
+ * are forced to disk once per Disruptor batch.
+ */
+public class JournalEventHandler implements EventHandler<OrderCommand>, LifecycleAware {
+
+    private final CommandJournal journal;
+
+    public JournalEventHandler(CommandJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public void onEvent(OrderCommand event, long sequence, boolean endOfBatch) throws Exception {
+        // Numbered by the matching stage; rejected commands have no sequence and nothing to replay
+        if (event.getJournalSequence() > 0) {
+            journal.append(event);
+        }
+        if (endOfBatch) {
+            journal.flush();
+        }
+    }
+
+    @Override
+    public void onStart() {
+    }
+
+    @Override
+    public void onShutdown() {
+        journal.close();
+    }
+}
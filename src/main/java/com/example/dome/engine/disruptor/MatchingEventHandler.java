@@ -1,29 +1,202 @@
 package com.example.dome.engine.disruptor;
 
+import com.example.dome.engine.DepthChanges;
+import com.example.dome.engine.EngineClock;
+import com.example.dome.engine.Fills;
 import com.example.dome.engine.MatchingEngine;
-import com.example.dome.model.Trade;
+import com.example.dome.engine.OrderBook;
+import com.example.dome.engine.PriceLevel;
+import com.example.dome.engine.PriceScale;
+import com.example.dome.engine.SequenceIdGenerator;
+import com.example.dome.engine.snapshot.BookSnapshotter;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
 import com.lmax.disruptor.EventHandler;
-import lombok.RequiredArgsConstructor;
+import com.lmax.disruptor.LifecycleAware;
 
+import java.util.ArrayList;
 import java.util.List;
 
-@RequiredArgsConstructor
-public class MatchingEventHandler implements EventHandler<OrderCommand> {
+public class MatchingEventHandler implements EventHandler<OrderCommand>, LifecycleAware {
 
     private final com.example.dome.engine.EngineRegistry engineRegistry;
 
+    // This shard's ID sequences; only this thread touches them
+    private final SequenceIdGenerator orderIds;
+    private final SequenceIdGenerator tradeIds;
+
+    private final EngineClock clock = new EngineClock();
+
+    // Books changed in the current batch; their snapshots are published once at end of batch
+    private final List<OrderBook> touchedBooks = new ArrayList<>();
+
+    // With a journal: accepted commands are numbered here, so a book snapshot taken on this thread
+    // and the journal agree on which commands it contains. -1 when commands are not sequenced.
+    private long commandSequence;
+    private final boolean sequenced;
+    private final BookSnapshotter snapshotter;
+
+    public MatchingEventHandler(com.example.dome.engine.EngineRegistry engineRegistry,
+                                SequenceIdGenerator orderIds, SequenceIdGenerator tradeIds) {
+        this(engineRegistry, orderIds, tradeIds, -1, null);
+    }
+
+    /**
+     * @param lastCommandSequence sequence of the last journaled command, or -1 to leave commands unsequenced
+     * @param snapshotter         periodic book snapshots, or null
+     */
+    public MatchingEventHandler(com.example.dome.engine.EngineRegistry engineRegistry,
+                                SequenceIdGenerator orderIds, SequenceIdGenerator tradeIds,
+                                long lastCommandSequence, BookSnapshotter snapshotter) {
+        this.engineRegistry = engineRegistry;
+        this.orderIds = orderIds;
+        this.tradeIds = tradeIds;
+        this.commandSequence = lastCommandSequence;
+        this.sequenced = lastCommandSequence >= 0;
+        this.snapshotter = snapshotter;
+    }
+
     @Override
     public void onEvent(OrderCommand event, long sequence, boolean endOfBatch) throws Exception {
-        if (event.getOrder() == null) {
-            return;
+        event.setTimestamp(clock.now());
+        try {
+            switch (event.getType()) {
+                case NEW -> match(event);
+                case CANCEL -> cancel(event);
+                case MODIFY -> event.setRejectReason("MODIFY is not supported yet");
+            }
+            // Rejected commands changed nothing and are not journaled
+            if (sequenced && event.getRejectReason() == null && event.getOrder() != null) {
+                event.setJournalSequence(++commandSequence);
+            }
+        } finally {
+            if (endOfBatch) {
+                publishSnapshots();
+            }
         }
-        
-        com.example.dome.engine.MatchingEngine engine = engineRegistry.getEngine(event.getOrder().getSymbol());
+    }
+
+    private void match(OrderCommand event) {
+        com.example.dome.engine.MatchingEngine engine = engineRegistry.getEngine(event.getSymbol());
         // If engine doesn't exist? It should be created or validation happens before.
         // Assuming validation happens at Controller level.
-        
-        com.example.dome.engine.MatchResult result = engine.match(event.getOrder());
-        event.setTrades(result.trades());
-        event.setModifiedOrders(result.modifiedOrders());
+
+        // Checked before anything is matched: once fills are applied the remainder must be addable
+        if (event.getOrderType() == com.example.dome.model.OrderType.LIMIT) {
+            if (event.getPrice() == null) {
+                event.setRejectReason("LIMIT order requires a price");
+                return;
+            }
+            if (!engine.getOrderBook().canRest(event.getSide(), event.getPriceTicks())) {
+                event.setRejectReason("Price " + event.getPrice() + " is too far from the resting book for " + event.getSymbol());
+                return;
+            }
+        }
+
+        // The publisher only wrote the request fields; the Order itself comes from this engine's pool
+        Order order = engine.getOrderPool().acquire();
+        order.setOrderId(orderIds.next());
+        order.setClientOrderId(event.getClientOrderId());
+        order.setSymbol(event.getSymbol());
+        order.setSide(event.getSide());
+        order.setType(event.getOrderType());
+        order.setPrice(event.getPrice());
+        order.setPriceTicks(event.getPriceTicks());
+        order.setQuantity(event.getQuantity());
+        order.setStatus(com.example.dome.model.OrderStatus.NEW);
+        // One stamp per event: the order and all its fills share it
+        order.setTimestamp(event.getTimestamp());
+        event.setOrder(order);
+        event.setOrderId(order.getOrderId());
+
+        // Writes into the command's own fill slots: nothing is allocated per fill
+        engine.match(order, event.getFills());
+        event.getFills().assignTradeIds(tradeIds);
+
+        // Filled, or a MARKET remainder: it never rests, so this command owns it to the end
+        event.setReleaseOrder(order.getRemainingQuantity() == 0
+                || order.getType() == com.example.dome.model.OrderType.MARKET);
+
+        OrderBook book = engine.getOrderBook();
+        DepthChanges changes = event.getDepthChanges();
+        Fills fills = event.getFills();
+        OrderSide restingSide = order.getSide() == OrderSide.BUY ? OrderSide.SELL : OrderSide.BUY;
+        for (int i = 0; i < fills.size(); i++) {
+            long price = fills.get(i).getPrice();
+            // Fills of one level are consecutive: look its total up once
+            if (i == 0 || fills.get(i - 1).getPrice() != price) {
+                changes.add(restingSide, price, book.getLevelQuantity(restingSide, price));
+            }
+        }
+        // A LIMIT remainder was added to the book by the engine
+        if (order.getRemainingQuantity() > 0 && order.getType() == com.example.dome.model.OrderType.LIMIT) {
+            changes.add(order.getSide(), order.getPriceTicks(), book.getLevelQuantity(order.getSide(), order.getPriceTicks()));
+        }
+        numberDepthChanges(changes, book);
+
+        touch(book);
+    }
+
+    private void cancel(OrderCommand event) {
+        MatchingEngine engine = engineRegistry.getEngine(event.getSymbol());
+        Order cancelled = engine.cancel(event.getOrderId());
+        if (cancelled == null) {
+            // Already filled or cancelled by an earlier command in the ring
+            event.setRejectReason("Order not found: " + event.getOrderId());
+            return;
+        }
+        event.setOrder(cancelled);
+        event.setReleaseOrder(true);
+
+        // Read top of book here: only the matching thread may touch a single-writer book
+        OrderBook book = engine.getOrderBook();
+        PriceScale priceScale = book.getPriceScale();
+        PriceLevel bestBid = book.getBestBid();
+        PriceLevel bestAsk = book.getBestAsk();
+        event.setBestBid(bestBid != null ? priceScale.toPrice(bestBid.getPrice()) : null);
+        event.setBestAsk(bestAsk != null ? priceScale.toPrice(bestAsk.getPrice()) : null);
+
+        DepthChanges changes = event.getDepthChanges();
+        changes.add(cancelled.getSide(), cancelled.getPriceTicks(), book.getLevelQuantity(cancelled.getSide(), cancelled.getPriceTicks()));
+        numberDepthChanges(changes, book);
+
+        touch(book);
+    }
+
+    // Numbered here, before the end-of-batch publish, so a published snapshot's sequence covers exactly its changes
+    private static void numberDepthChanges(DepthChanges changes, OrderBook book) {
+        if (!changes.isEmpty()) {
+            changes.setSequence(book.nextDepthSequence());
+        }
+    }
+
+    private void touch(OrderBook book) {
+        if (!touchedBooks.contains(book)) {
+            touchedBooks.add(book);
+        }
+    }
+
+    private void publishSnapshots() {
+        for (int i = 0; i < touchedBooks.size(); i++) {
+            touchedBooks.get(i).publishSnapshot();
+            if (snapshotter != null) {
+                snapshotter.touch(touchedBooks.get(i));
+            }
+        }
+        touchedBooks.clear();
+        if (snapshotter != null) {
+            snapshotter.onEndOfBatch(commandSequence);
+        }
+    }
+
+    @Override
+    public void onStart() {
+    }
+
+    @Override
+    public void onShutdown() {
+        if (snapshotter != null) {
+            snapshotter.close();
+        }
     }
 }
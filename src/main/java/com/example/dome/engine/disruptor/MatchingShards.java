@@ -0,0 +1,63 @@
+package com.example.dome.engine.disruptor;
+
+import com.lmax.disruptor.EventTranslator;
+import com.lmax.disruptor.dsl.Disruptor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The matching pipelines, one Disruptor ring per shard.
+ * Each shard has its own ring, matching thread and persistence stage; a symbol always maps
+ * to the same shard, so every book still has exactly one writer thread.
+ * Symbols go to the shard given in the explicit mapping, otherwise to hash(symbol) mod shards.
+ */
+public class MatchingShards {
+
+    private final List<Disruptor<OrderCommand>> shards;
+    private final Map<String, Integer> symbolShards;
+
+    public MatchingShards(List<Disruptor<OrderCommand>> shards, Map<String, Integer> symbolShards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one matching shard is required");
+        }
+        symbolShards.forEach((symbol, shard) -> {
+            if (shard < 0 || shard >= shards.size()) {
+                throw new IllegalArgumentException("Symbol " + symbol + " mapped to shard " + shard
+                        + " but only " + shards.size() + " shards are configured");
+            }
+        });
+        this.shards = List.copyOf(shards);
+        this.symbolShards = Map.copyOf(symbolShards);
+    }
+
+    public int shardFor(String symbol) {
+        return shardFor(symbol, symbolShards, shards.size());
+    }
+
+    /** The placement rule, for code that needs it before the shards exist (e.g. a shard's own stages). */
+    public static int shardFor(String symbol, Map<String, Integer> symbolShards, int shardCount) {
+        Integer shard = symbolShards.get(symbol);
+        if (shard != null) {
+            return shard;
+        }
+        return Math.floorMod(symbol.hashCode(), shardCount);
+    }
+
+    /**
+     * Publishes a command into the ring that owns this symbol.
+     */
+    public void publish(String symbol, EventTranslator<OrderCommand> translator) {
+        shards.get(shardFor(symbol)).publishEvent(translator);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public void shutdown() {
+        for (Disruptor<OrderCommand> shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
@@ -1,27 +1,80 @@
 package com.example.dome.engine.disruptor;
 
+import com.example.dome.engine.DepthChanges;
+import com.example.dome.engine.Fills;
 import com.example.dome.model.Order;
-import com.example.dome.model.Trade;
 import lombok.Data;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderType;
+
+import java.math.BigDecimal;
+import java.util.UUID;
 
 @Data
 public class OrderCommand {
+    private CommandType type = CommandType.NEW;
+
+    // Epoch nanos, stamped once when the matching stage picks the command up
+    private long timestamp;
+
+    // NEW: request fields written by the publisher. The matching thread copies them into an Order
+    // taken from the engine's pool, so no Order is allocated per request.
+    private String symbol; // also the routing symbol for CANCEL
+    private OrderSide side;
+    private OrderType orderType;
+    private BigDecimal price;
+    private long priceTicks;
+    private long quantity;
+    private UUID clientOrderId;
+
+    // NEW: the pooled incoming order. CANCEL: the resting order that was cancelled. Set by the matching thread.
     private Order order;
-    private List<Trade> trades = new ArrayList<>();
-    private List<Order> modifiedOrders = new ArrayList<>();
-    
-    private java.util.concurrent.CompletableFuture<List<Trade>> resultFuture;
+
+    // Set by the matching thread when this command made `order` terminal (or it never rests):
+    // the persistence stage returns it to the pool once it is saved
+    private boolean releaseOrder;
+
+    // The order this command is about: CANCEL's target, or the ID the matching thread assigned to a NEW order
+    private long orderId;
+
+    // Position in the shard's command journal, set by the journal stage (0 when journaling is off)
+    private long journalSequence;
+
+    // Preallocated execution slots written by the matching thread; converted to Trades by the persistence stage
+    private final Fills fills = new Fills();
+
+    // Levels the command changed and their new totals, numbered by the book; published by the persistence stage
+    private final DepthChanges depthChanges = new DepthChanges();
+
+    // Top of book captured on the matching thread after a cancel, published by the persistence stage
+    private BigDecimal bestBid;
+    private BigDecimal bestAsk;
+
+    // Set by the matching thread when the command could not be applied
+    private String rejectReason;
     
-    // Command Type? For now, just processing orders.
-    // Could add CANCEL command here later.
+    private java.util.concurrent.CompletableFuture<OrderResult> resultFuture;
     
     public void clear() {
+        this.type = CommandType.NEW;
+        this.timestamp = 0;
+        this.symbol = null;
+        this.side = null;
+        this.orderType = null;
+        this.price = null;
+        this.priceTicks = 0;
+        this.quantity = 0;
+        this.clientOrderId = null;
         this.order = null;
-        this.trades.clear();
-        this.modifiedOrders.clear();
+        this.releaseOrder = false;
+        this.orderId = 0;
+        this.journalSequence = 0;
+        this.fills.clear();
+        this.depthChanges.clear();
+        this.bestBid = null;
+        this.bestAsk = null;
+        this.rejectReason = null;
         this.resultFuture = null;
     }
 }
@@ -0,0 +1,14 @@
+package com.example.dome.engine.disruptor;
+
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.Trade;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What the caller of a command gets back. Captured by the persistence stage before the Order
+ * can go back to its pool, so callers never read a recycled Order.
+ */
+public record OrderResult(long orderId, UUID clientOrderId, OrderStatus status, long timestamp, List<Trade> trades) {
+}
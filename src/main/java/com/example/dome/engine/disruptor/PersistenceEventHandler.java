@@ -1,54 +1,355 @@
 package com.example.dome.engine.disruptor;
 
+import com.example.dome.engine.EngineRegistry;
+import com.example.dome.engine.Fill;
+import com.example.dome.engine.Fills;
+import com.example.dome.engine.MatchingEngine;
+import com.example.dome.engine.PriceScale;
+import com.example.dome.engine.journal.CommandJournal;
+import com.example.dome.event.DepthUpdate;
 import com.example.dome.event.EventProcessor;
 import com.example.dome.event.TradeEvent;
 import com.example.dome.model.Order;
 import com.example.dome.model.Trade;
 import com.example.dome.persistence.OrderDao;
+import com.example.dome.persistence.OrderWriteBatch;
 import com.lmax.disruptor.EventHandler;
-import lombok.RequiredArgsConstructor;
+import com.lmax.disruptor.LifecycleAware;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
-@RequiredArgsConstructor
-public class PersistenceEventHandler implements EventHandler<OrderCommand> {
+/**
+ * Persists what the matching stage did, one RocksDB write per Disruptor batch.
+ * Order saves go into a WriteBatch that is committed at endOfBatch, or earlier once it holds
+ * maxBatchWrites writes or has been open for maxBatchDelay (so a sustained burst still commits).
+ * Futures, trade events, book updates and depth updates for a command are held back until its commit:
+ * nothing is acknowledged or published before it is durable.
+ * With a command journal, each commit also records the last journal sequence it covers, so
+ * recovery knows where to start replaying.
+ *
+ * If a commit fails, the books already reflect its commands, so they are still published as applied
+ * and the store falls behind: instead of being encoded into batches, the latest state of every order
+ * touched since the last good commit is kept in memory (one copy per order), and the stage retries
+ * writing all of it in one batch with doubling backoff, RETRY_BACKOFF_MIN_MILLIS up to
+ * RETRY_BACKOFF_MAX_MILLIS. Once a retry commits, normal batching resumes; with a journal that also
+ * moves the store's journal position on, so segments are pruned again. While behind, a journaled
+ * stage records in journalDir how far it has published (CommandJournal.storePublishedSequence), so
+ * replay after a restart does not publish those trades again; without a journal, a restart loses
+ * the commands the store has not caught up with.
+ */
+public class PersistenceEventHandler implements EventHandler<OrderCommand>, LifecycleAware {
+
+    public static final int DEFAULT_MAX_BATCH_WRITES = 1000;
+    public static final long DEFAULT_MAX_BATCH_DELAY_MILLIS = 5;
+    public static final long RETRY_BACKOFF_MIN_MILLIS = 100;
+    public static final long RETRY_BACKOFF_MAX_MILLIS = 5000;
 
     private final OrderDao orderDao;
     private final EventProcessor eventProcessor;
+    private final EngineRegistry engineRegistry;
+    private final int shard;
+    private final int maxBatchWrites;
+    private final long maxBatchDelayNanos;
+    // Where the journal lives, or null without one
+    private final Path journalDir;
+
+    private OrderWriteBatch writeBatch;
+    private long batchStartNanos;
+    // Highest journal sequence whose command is in the open batch
+    private long journalSequence;
+    // Orders saved into the open batch; copied into unstored if its commit fails
+    private final List<Order> batchOrders = new ArrayList<>();
+
+    // Set after a failed commit until a retry writes everything in unstored
+    private boolean storeBehind;
+    // Order ID -> latest state the store does not have yet, while storeBehind
+    private final Map<Long, Order> unstored = new LinkedHashMap<>();
+    private long retryBackoffNanos;
+    private long nextRetryNanos;
+
+    // Completions of commands whose writes are in the open batch, in ring order
+    private final List<PendingResult> pending = new ArrayList<>();
+    // Orders those commands finished with, returned to their pools once the batch is committed
+    private final List<Order> finished = new ArrayList<>();
+
+    public PersistenceEventHandler(OrderDao orderDao, EventProcessor eventProcessor, EngineRegistry engineRegistry) {
+        this(orderDao, eventProcessor, engineRegistry, 0, DEFAULT_MAX_BATCH_WRITES, DEFAULT_MAX_BATCH_DELAY_MILLIS);
+    }
+
+    public PersistenceEventHandler(OrderDao orderDao, EventProcessor eventProcessor, EngineRegistry engineRegistry,
+                                   int shard, int maxBatchWrites, long maxBatchDelayMillis) {
+        this(orderDao, eventProcessor, engineRegistry, shard, maxBatchWrites, maxBatchDelayMillis, null);
+    }
+
+    public PersistenceEventHandler(OrderDao orderDao, EventProcessor eventProcessor, EngineRegistry engineRegistry,
+                                   int shard, int maxBatchWrites, long maxBatchDelayMillis, Path journalDir) {
+        this.orderDao = orderDao;
+        this.eventProcessor = eventProcessor;
+        this.engineRegistry = engineRegistry;
+        this.shard = shard;
+        this.maxBatchWrites = Math.max(1, maxBatchWrites);
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMillis);
+        this.journalDir = journalDir;
+    }
 
     @Override
     public void onEvent(OrderCommand event, long sequence, boolean endOfBatch) throws Exception {
+        try {
+            journalSequence = Math.max(journalSequence, event.getJournalSequence());
+            process(event);
+        } finally {
+            event.clear();
+            if (endOfBatch || batchFull()) {
+                commit();
+            }
+        }
+    }
+
+    private void process(OrderCommand event) {
+        if (event.getRejectReason() != null) {
+            // Nothing was written for it, so there is nothing to wait for
+            if (event.getResultFuture() != null) {
+                event.getResultFuture().completeExceptionally(new IllegalArgumentException(event.getRejectReason()));
+            }
+            return;
+        }
+
         Order order = event.getOrder();
         if (order == null) {
             return;
         }
 
+        if (event.getType() == CommandType.CANCEL) {
+            onCancel(event, order);
+            return;
+        }
+
         // 1. Persist Modified Resting Orders
-        List<Order> modifiedOrders = event.getModifiedOrders();
-        if (modifiedOrders != null) {
-            for (Order modifiedOrder : modifiedOrders) {
-                orderDao.save(modifiedOrder);
-            }
+        Fills fills = event.getFills();
+        for (int i = 0; i < fills.size(); i++) {
+            Order modifiedOrder = fills.get(i).getResting();
+            save(modifiedOrder);
+            engineRegistry.updateRoute(modifiedOrder);
         }
-        
+
         // 2. Persist the Incoming Order (Matched or New)
         // Note: The order state (filled quantity) was mutated by MatchingEngine.
-        orderDao.save(order);
-        
-        // 3. Persist Trades and Publish Events
-        List<Trade> trades = event.getTrades();
-        if (trades != null) {
-            for (Trade trade : trades) {
-                 eventProcessor.onTrade(new TradeEvent(trade));
-            }
-        }
-        
-        // Complete the future for the caller (Controller)
-        if (event.getResultFuture() != null) {
-            event.getResultFuture().complete(trades);
-        }
-        
-        // Clean up command for reuse? No, Disruptor reuses event object.
-        event.clear();
+        save(order);
+        engineRegistry.updateRoute(order);
+
+        // 3. Build Trades from the fill slots (off the matching thread); published after the commit
+        PriceScale priceScale = engineRegistry.getEngine(order.getSymbol()).getPriceScale();
+        List<Trade> trades = fills.toTrades(order, priceScale);
+        pending.add(new PendingResult(event.getResultFuture(), toResult(order, trades), null, null, null,
+                event.getDepthChanges().toUpdate(order.getSymbol(), priceScale, event.getTimestamp())));
+
+        // 4. Orders this command finished with go back to the pool after the commit
+        for (int i = 0; i < fills.size(); i++) {
+            Fill fill = fills.get(i);
+            if (fill.isRestingCompleted()) {
+                finished.add(fill.getResting());
+            }
+        }
+        if (event.isReleaseOrder()) {
+            finished.add(order);
+        }
+    }
+
+    private void onCancel(OrderCommand event, Order order) {
+        // The matching thread already unlinked the order and marked it CANCELED
+        save(order);
+        engineRegistry.updateRoute(order);
+
+        MatchingEngine engine = engineRegistry.getEngine(order.getSymbol());
+        pending.add(new PendingResult(event.getResultFuture(), toResult(order, Collections.emptyList()),
+                order.getSymbol(), event.getBestBid(), event.getBestAsk(),
+                event.getDepthChanges().toUpdate(order.getSymbol(), engine.getPriceScale(), event.getTimestamp())));
+
+        if (event.isReleaseOrder()) {
+            finished.add(order);
+        }
+    }
+
+    private void commit() {
+        // Every write belongs to a pending command, so an empty list means an empty batch
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (storeBehind) {
+            retryStore();
+        } else {
+            try {
+                if (journalSequence > 0) {
+                    writeBatch.setJournalPosition(shard, journalSequence);
+                }
+                writeBatch.commit();
+            } catch (RuntimeException e) {
+                fallBehind(e);
+            }
+        }
+        batchOrders.clear();
+
+        for (PendingResult result : pending) {
+            for (Trade trade : result.result().trades()) {
+                eventProcessor.onTrade(new TradeEvent(trade));
+            }
+            if (result.bookSymbol() != null) {
+                eventProcessor.onBookUpdate(result.bookSymbol(), result.bestBid(), result.bestAsk());
+            }
+            if (result.depth() != null) {
+                eventProcessor.onDepthUpdate(result.depth());
+            }
+            // Complete the future for the caller (Controller)
+            if (result.future() != null) {
+                result.future().complete(result.result());
+            }
+        }
+        pending.clear();
+        releaseFinished();
+        if (storeBehind) {
+            recordPublished();
+        }
+        // Once per batch: a sweep becomes one trades message per symbol, a burst of cancels one top-of-book message
+        eventProcessor.flushTrades();
+        eventProcessor.flushBookUpdates();
+    }
+
+    private void save(Order order) {
+        if (storeBehind) {
+            // Nothing is encoded until the store answers again; only the latest state of each order is kept
+            unstored.put(order.getOrderId(), order.copy());
+            startBatchClock();
+            return;
+        }
+        OrderWriteBatch batch = batch();
+        batch.save(order);
+        batchOrders.add(order);
+    }
+
+    /**
+     * The books, trade IDs and depth sequences already reflect the batch's commands, so they are
+     * published as applied. Their orders are not recycled before this point, so their current state
+     * is what the store is missing.
+     */
+    private void fallBehind(RuntimeException e) {
+        for (Order order : batchOrders) {
+            unstored.put(order.getOrderId(), order.copy());
+        }
+        writeBatch.close();
+        writeBatch = null;
+        storeBehind = true;
+        retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MIN_MILLIS);
+        nextRetryNanos = System.nanoTime() + retryBackoffNanos;
+        System.err.println("Failed to commit to the order store of shard " + shard + "; keeping "
+                + (journalSequence > 0 ? "its journal position and retrying" : "the unwritten orders in memory and retrying (a restart loses them)")
+                + ": " + e.getMessage());
+    }
+
+    // Writes every order the store is missing, with the journal position they bring it to, once the backoff has passed
+    private void retryStore() {
+        long now = System.nanoTime();
+        if (now - nextRetryNanos < 0) {
+            return;
+        }
+        try (OrderWriteBatch retry = orderDao.newWriteBatch()) {
+            for (Order order : unstored.values()) {
+                retry.save(order);
+            }
+            if (journalSequence > 0) {
+                retry.setJournalPosition(shard, journalSequence);
+            }
+            retry.commit();
+        } catch (RuntimeException e) {
+            retryBackoffNanos = Math.min(retryBackoffNanos * 2, TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MAX_MILLIS));
+            nextRetryNanos = now + retryBackoffNanos;
+            return;
+        }
+        System.out.println("Order store of shard " + shard + " caught up (" + unstored.size() + " orders written).");
+        unstored.clear();
+        storeBehind = false;
+    }
+
+    private void releaseFinished() {
+        for (Order order : finished) {
+            engineRegistry.getEngine(order.getSymbol()).getOrderPool().release(order);
+        }
+        finished.clear();
+    }
+
+    // The store's journal position does not say what was published while it is behind: keep that separately
+    private void recordPublished() {
+        if (journalDir == null || journalSequence == 0) {
+            return;
+        }
+        try {
+            CommandJournal.storePublishedSequence(journalDir, shard, journalSequence);
+        } catch (IOException e) {
+            System.err.println("Failed to record the published journal sequence of shard " + shard
+                    + "; a restart may publish trades after " + journalSequence + " again: " + e.getMessage());
+        }
+    }
+
+    private boolean batchFull() {
+        if (pending.isEmpty()) {
+            return false;
+        }
+        return (writeBatch != null && writeBatch.size() >= maxBatchWrites)
+                || System.nanoTime() - batchStartNanos >= maxBatchDelayNanos;
+    }
+
+    private OrderWriteBatch batch() {
+        if (writeBatch == null) {
+            writeBatch = orderDao.newWriteBatch();
+        }
+        if (writeBatch.size() == 0) {
+            startBatchClock();
+        }
+        return writeBatch;
+    }
+
+    private void startBatchClock() {
+        if (pending.isEmpty()) {
+            batchStartNanos = System.nanoTime();
+        }
+    }
+
+    // A copy: the Order itself may be recycled before the commit
+    private static OrderResult toResult(Order order, List<Trade> trades) {
+        return new OrderResult(order.getOrderId(), order.getClientOrderId(), order.getStatus(),
+                order.getTimestamp(), trades);
+    }
+
+    /**
+     * A command's outcome held until its batch is committed. bookSymbol is set for cancels only;
+     * depth is null if the command changed no level.
+     */
+    private record PendingResult(CompletableFuture<OrderResult> future, OrderResult result,
+                                 String bookSymbol, BigDecimal bestBid, BigDecimal bestAsk, DepthUpdate depth) {
+    }
+
+    @Override
+    public void onStart() {
+    }
+
+    @Override
+    public void onShutdown() {
+        commit();
+        if (storeBehind) {
+            // One last attempt regardless of the backoff
+            nextRetryNanos = System.nanoTime();
+            retryStore();
+        }
+        if (writeBatch != null) {
+            writeBatch.close();
+        }
     }
 }
@@ -0,0 +1,354 @@
+package com.example.dome.engine.journal;
+
+import com.example.dome.engine.Fills;
+import com.example.dome.engine.disruptor.CommandType;
+import com.example.dome.engine.disruptor.OrderCommand;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of one shard's sequenced commands, written to memory-mapped segment files.
+ *
+ * Segments are named shard-{shard}-{first sequence}.journal and preallocated to segmentSize;
+ * a full segment is forced to disk and the next one mapped. Each record is
+ * [int payload length][int CRC32 of payload][payload]. The length is written last and unused
+ * space is zero, so a reader stops at the first zero length or checksum mismatch (a torn tail).
+ *
+ * Record sequences are per shard, start at 1 and continue across restarts. Segments whose records
+ * are all at or below persistedSequence (what the order store has committed) are deleted when
+ * the journal is opened and whenever it rolls to a new segment.
+ *
+ * Prices are journaled as ticks only; replay converts them with the symbol's PriceScale.
+ *
+ * Next to the segments, shard-{shard}.published records how far the shard's trades have been
+ * published while the order store was not being written (see PersistenceEventHandler), so
+ * replay does not publish them twice.
+ *
+ * Not thread-safe: written only by the shard's journal stage.
+ */
+public class CommandJournal implements AutoCloseable {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    private static final int HEADER = 2 * Integer.BYTES;
+    private static final int FIXED_PAYLOAD = 68;
+    private static final int FLAG_PRICE = 1;
+    private static final int FLAG_CLIENT_ORDER_ID = 1 << 1;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("shard-(\\d+)-(\\d{20})\\.journal");
+
+    private static final CommandType[] TYPES = CommandType.values();
+    private static final OrderSide[] SIDES = OrderSide.values();
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+
+    private final Path dir;
+    private final int shard;
+    private final long segmentSize;
+    private final boolean sync;
+    private final LongSupplier persistedSequence;
+
+    // Closed segments, oldest first; candidates for deletion
+    private final List<Segment> closedSegments = new ArrayList<>();
+    private final Map<String, byte[]> symbolBytes = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+
+    private Segment activeSegment;
+    private MappedByteBuffer buffer;
+    private ByteBuffer checksumView;
+    private long lastSequence;
+
+    /**
+     * Opens the shard's journal for appending after its last valid record.
+     * @param persistedSequence highest sequence whose effects are committed to the order store
+     */
+    public CommandJournal(Path dir, int shard, long segmentSize, boolean sync, LongSupplier persistedSequence) throws IOException {
+        this.dir = dir;
+        this.shard = shard;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+        this.persistedSequence = persistedSequence;
+        Files.createDirectories(dir);
+
+        List<Segment> segments = segments(dir, shard);
+        if (segments.isEmpty()) {
+            lastSequence = persistedSequence.getAsLong();
+            map(new Segment(dir.resolve(segmentName(shard, lastSequence + 1)), lastSequence + 1));
+        } else {
+            closedSegments.addAll(segments.subList(0, segments.size() - 1));
+            Segment last = segments.get(segments.size() - 1);
+            map(last);
+            // Find the end of the valid records: the next append goes there
+            lastSequence = last.firstSequence() - 1;
+            int position = 0;
+            int length;
+            while ((length = validRecordAt(buffer, position)) > 0) {
+                lastSequence = buffer.getLong(position + HEADER);
+                position += HEADER + length;
+            }
+            buffer.position(position);
+            // Never reuse a sequence the order store has already committed
+            lastSequence = Math.max(lastSequence, persistedSequence.getAsLong());
+        }
+        pruneSegments();
+    }
+
+    /**
+     * Appends the command as the matching stage left it (assigned order ID, timestamp, trade IDs
+     * and journal sequence, which must follow getLastSequence()).
+     * @return the record's sequence
+     */
+    public long append(OrderCommand command) throws IOException {
+        long sequence = command.getJournalSequence();
+        if (sequence != lastSequence + 1) {
+            throw new IllegalStateException("Journal sequence " + sequence + " does not follow " + lastSequence);
+        }
+        byte[] symbol = symbolBytes.computeIfAbsent(command.getSymbol(), s -> s.getBytes(StandardCharsets.UTF_8));
+        Fills fills = command.getFills();
+        int payload = FIXED_PAYLOAD + symbol.length + fills.size() * Long.BYTES;
+        // Keep room for a zero header after the record, so the end is always detectable
+        if (buffer.remaining() < HEADER + payload + HEADER) {
+            roll(payload);
+        }
+
+        UUID clientOrderId = command.getClientOrderId();
+        int start = buffer.position();
+        buffer.position(start + HEADER);
+        buffer.putLong(sequence);
+        buffer.put((byte) command.getType().ordinal());
+        buffer.putLong(command.getTimestamp());
+        buffer.putLong(command.getOrderId());
+        buffer.put((byte) ((command.getPrice() != null ? FLAG_PRICE : 0) | (clientOrderId != null ? FLAG_CLIENT_ORDER_ID : 0)));
+        buffer.put((byte) (command.getSide() != null ? command.getSide().ordinal() : -1));
+        buffer.put((byte) (command.getOrderType() != null ? command.getOrderType().ordinal() : -1));
+        buffer.putLong(command.getPriceTicks());
+        buffer.putLong(command.getQuantity());
+        buffer.putLong(clientOrderId != null ? clientOrderId.getMostSignificantBits() : 0);
+        buffer.putLong(clientOrderId != null ? clientOrderId.getLeastSignificantBits() : 0);
+        buffer.putInt(symbol.length);
+        buffer.put(symbol);
+        buffer.putInt(fills.size());
+        for (int i = 0; i < fills.size(); i++) {
+            buffer.putLong(fills.get(i).getTradeId());
+        }
+
+        buffer.putInt(start + Integer.BYTES, checksum(crc, checksumView, start + HEADER, payload));
+        // Length last: until it is written the record reads as end-of-journal
+        buffer.putInt(start, payload);
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    /** End of a Disruptor batch: forces the batch's records to disk if the journal is synced. */
+    public void flush() {
+        if (sync) {
+            buffer.force();
+        }
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void close() {
+        buffer.force();
+    }
+
+    /**
+     * Reads the shard's records with a sequence above afterSequence, in order, stopping at the end
+     * of the valid records.
+     */
+    public static void replay(Path dir, int shard, long afterSequence, Consumer<JournalRecord> consumer) throws IOException {
+        List<Segment> segments = segments(dir, shard);
+        for (int i = 0; i < segments.size(); i++) {
+            // Skip segments that end at or before afterSequence
+            if (i + 1 < segments.size() && segments.get(i + 1).firstSequence() - 1 <= afterSequence) {
+                continue;
+            }
+            ByteBuffer segment;
+            try (FileChannel channel = FileChannel.open(segments.get(i).path(), StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            int position = 0;
+            int length;
+            while ((length = validRecordAt(segment, position)) > 0) {
+                JournalRecord record = read(segment, position + HEADER);
+                if (record.sequence() > afterSequence) {
+                    consumer.accept(record);
+                }
+                position += HEADER + length;
+            }
+        }
+    }
+
+    /**
+     * Records that the shard's trades up to sequence have been published although the order store
+     * is not at that position. Written to a temporary file and renamed, so a reader sees either value.
+     */
+    public static void storePublishedSequence(Path dir, int shard, long sequence) throws IOException {
+        Path target = dir.resolve(publishedName(shard));
+        Path temp = dir.resolve(publishedName(shard) + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(sequence).flip());
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** @return the last sequence passed to storePublishedSequence for the shard, or 0 */
+    public static long loadPublishedSequence(Path dir, int shard) throws IOException {
+        Path file = dir.resolve(publishedName(shard));
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(file)).getLong();
+    }
+
+    /** Shards that have journal segments in dir. */
+    public static TreeSet<Integer> shards(Path dir) throws IOException {
+        TreeSet<Integer> shards = new TreeSet<>();
+        if (!Files.isDirectory(dir)) {
+            return shards;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    shards.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        return shards;
+    }
+
+    private void roll(int payload) throws IOException {
+        if (HEADER + payload + HEADER > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + payload + " bytes does not fit a segment of " + segmentSize);
+        }
+        buffer.force();
+        closedSegments.add(activeSegment);
+        map(new Segment(dir.resolve(segmentName(shard, lastSequence + 1)), lastSequence + 1));
+        pruneSegments();
+    }
+
+    private void map(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past the end preallocates the file to the full segment size
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+        }
+        this.checksumView = buffer.duplicate();
+        this.activeSegment = segment;
+    }
+
+    // Deletes closed segments the order store no longer needs for recovery
+    private void pruneSegments() throws IOException {
+        long persisted = persistedSequence.getAsLong();
+        while (!closedSegments.isEmpty()) {
+            long nextFirst = closedSegments.size() > 1 ? closedSegments.get(1).firstSequence() : activeSegment.firstSequence();
+            if (nextFirst - 1 > persisted) {
+                break;
+            }
+            Files.deleteIfExists(closedSegments.remove(0).path());
+        }
+    }
+
+    /** @return the payload length of a complete, intact record at position, or 0 at the end of the journal */
+    private static int validRecordAt(ByteBuffer segment, int position) {
+        if (segment.limit() - position < HEADER) {
+            return 0;
+        }
+        int length = segment.getInt(position);
+        if (length < FIXED_PAYLOAD || length > segment.limit() - position - HEADER) {
+            return 0;
+        }
+        int expected = segment.getInt(position + Integer.BYTES);
+        return checksum(new CRC32(), segment.duplicate(), position + HEADER, length) == expected ? length : 0;
+    }
+
+    private static int checksum(CRC32 crc, ByteBuffer view, int from, int length) {
+        crc.reset();
+        view.limit(from + length).position(from);
+        crc.update(view);
+        view.limit(view.capacity());
+        return (int) crc.getValue();
+    }
+
+    private static JournalRecord read(ByteBuffer segment, int position) {
+        ByteBuffer in = segment.duplicate().position(position);
+        long sequence = in.getLong();
+        CommandType type = TYPES[in.get()];
+        long timestamp = in.getLong();
+        long orderId = in.getLong();
+        int flags = in.get();
+        int side = in.get();
+        int orderType = in.get();
+        long priceTicks = in.getLong();
+        long quantity = in.getLong();
+        long msb = in.getLong();
+        long lsb = in.getLong();
+        byte[] symbol = new byte[in.getInt()];
+        in.get(symbol);
+        long[] tradeIds = new long[in.getInt()];
+        for (int i = 0; i < tradeIds.length; i++) {
+            tradeIds[i] = in.getLong();
+        }
+        return new JournalRecord(sequence, type, timestamp, orderId, new String(symbol, StandardCharsets.UTF_8),
+                side >= 0 ? SIDES[side] : null,
+                orderType >= 0 ? ORDER_TYPES[orderType] : null,
+                (flags & FLAG_PRICE) != 0, priceTicks, quantity,
+                (flags & FLAG_CLIENT_ORDER_ID) != 0 ? new UUID(msb, lsb) : null,
+                tradeIds);
+    }
+
+    private static List<Segment> segments(Path dir, int shard) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches() && Integer.parseInt(matcher.group(1)) == shard) {
+                    segments.add(new Segment(file, Long.parseLong(matcher.group(2))));
+                }
+            });
+        }
+        segments.sort(Comparator.comparingLong(Segment::firstSequence));
+        return segments;
+    }
+
+    private static String publishedName(int shard) {
+        return "shard-" + shard + ".published";
+    }
+
+    private static String segmentName(int shard, long firstSequence) {
+        return String.format("shard-%d-%020d.journal", shard, firstSequence);
+    }
+
+    private record Segment(Path path, long firstSequence) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.dome.engine.journal;
+
+import com.example.dome.engine.PriceScale;
+import com.example.dome.engine.disruptor.CommandType;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+
+import java.util.UUID;
+
+/**
+ * One journaled command as read back for replay.
+ * NEW carries the request fields plus the order ID, timestamp and trade IDs the matching stage
+ * assigned, so replaying it reproduces the same order and trades. CANCEL carries the target orderId.
+ */
+public record JournalRecord(long sequence, CommandType type, long timestamp, long orderId, String symbol,
+                            OrderSide side, OrderType orderType, boolean hasPrice, long priceTicks,
+                            long quantity, UUID clientOrderId, long[] tradeIds) {
+
+    /** The incoming order of a NEW command, as it entered the matching stage, priced in the symbol's scale. */
+    public Order toOrder(PriceScale priceScale) {
+        return Order.builder()
+                .orderId(orderId)
+                .clientOrderId(clientOrderId)
+                .symbol(symbol)
+                .side(side)
+                .type(orderType)
+                .price(hasPrice ? priceScale.toPrice(priceTicks) : null)
+                .priceTicks(priceTicks)
+                .quantity(quantity)
+                .status(OrderStatus.NEW)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.dome.engine.recovery;
+
+import com.example.dome.model.Order;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Rebuilds books from a stream of orders on a fork-join pool.
+ *
+ * One thread (the one reading the store) feeds orders through add(). They are grouped by symbol
+ * into chunks of chunkSize, and every full chunk becomes a task that loads it into its symbol's book.
+ * A symbol's chunks run one after another in the order they were read: each book is written by one
+ * thread at a time and receives its orders in stored order, while different symbols
+ * load in parallel. At most four chunks per thread wait for the pool; add() blocks beyond that, so a
+ * store read faster than the books are built does not pile up in memory.
+ *
+ * Not thread-safe: add() and finish() must be called from the same thread.
+ */
+public class ParallelBookLoader implements AutoCloseable {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final String source;
+    private final int chunkSize;
+    private final BiConsumer<String, List<Order>> loadChunk;
+    private final ForkJoinPool pool;
+    private final Semaphore inFlight;
+
+    // Feeding thread only
+    private final Map<String, List<Order>> openChunks = new HashMap<>();
+    private final Map<String, CompletableFuture<Void>> lastChunks = new HashMap<>();
+    private final long startNanos = System.nanoTime();
+    private long nextProgressNanos = startNanos + PROGRESS_INTERVAL_NANOS;
+    private long read;
+
+    private final AtomicLong loaded = new AtomicLong();
+    private volatile Throwable failure;
+
+    /**
+     * @param source      what is being read, for the progress lines
+     * @param parallelism worker threads; 0 for one per available processor
+     * @param loadChunk   loads orders of one symbol into its book; never called concurrently for the same symbol
+     */
+    public ParallelBookLoader(String source, int parallelism, int chunkSize, BiConsumer<String, List<Order>> loadChunk) {
+        this.source = source;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.loadChunk = loadChunk;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+        this.inFlight = new Semaphore(threads * 4);
+    }
+
+    public void add(Order order) {
+        String symbol = order.getSymbol();
+        List<Order> chunk = openChunks.computeIfAbsent(symbol, s -> new ArrayList<>(chunkSize));
+        chunk.add(order);
+        if (chunk.size() >= chunkSize) {
+            submit(symbol, openChunks.remove(symbol));
+        }
+        if ((++read & 0xFFF) == 0) {
+            reportProgress();
+        }
+    }
+
+    /**
+     * Loads what is left and waits for every book to be complete.
+     * @throws CompletionException wrapping the first failure of any chunk
+     */
+    public Result finish() {
+        openChunks.forEach(this::submit);
+        openChunks.clear();
+        CompletableFuture.allOf(lastChunks.values().toArray(CompletableFuture[]::new)).join();
+        Result result = new Result(loaded.get(), lastChunks.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        System.out.println("Loaded " + result.orders() + " orders of " + result.symbols() + " symbols from "
+                + source + " in " + result.elapsedMillis() + " ms (" + result.ordersPerSecond() + " orders/s, "
+                + pool.getParallelism() + " threads).");
+        return result;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private void submit(String symbol, List<Order> chunk) {
+        if (failure != null) {
+            // No point reading on: the caller falls back or fails startup
+            throw new CompletionException(failure);
+        }
+        inFlight.acquireUninterruptibly();
+        CompletableFuture<Void> previous = lastChunks.getOrDefault(symbol, CompletableFuture.completedFuture(null));
+        // After a failed chunk the symbol's later chunks fail straight away, still releasing their permits
+        CompletableFuture<Void> next = previous.thenRunAsync(() -> {
+            loadChunk.accept(symbol, chunk);
+            loaded.addAndGet(chunk.size());
+        }, pool);
+        next.whenComplete((ignored, error) -> {
+            if (error != null && failure == null) {
+                failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            }
+            inFlight.release();
+        });
+        lastChunks.put(symbol, next);
+    }
+
+    private void reportProgress() {
+        long now = System.nanoTime();
+        if (now - nextProgressNanos < 0) {
+            return;
+        }
+        nextProgressNanos = now + PROGRESS_INTERVAL_NANOS;
+        System.out.println("Recovery from " + source + ": read " + read + " orders, loaded " + loaded.get()
+                + " into " + lastChunks.size() + " books after " + TimeUnit.NANOSECONDS.toSeconds(now - startNanos) + " s");
+    }
+
+    /** Orders loaded, books they went into, and wall time from construction to the end of finish(). */
+    public record Result(long orders, int symbols, long elapsedMillis) {
+
+        public long ordersPerSecond() {
+            return orders * 1000 / Math.max(1, elapsedMillis);
+        }
+    }
+}
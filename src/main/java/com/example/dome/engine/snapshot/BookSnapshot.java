@@ -0,0 +1,12 @@
+package com.example.dome.engine.snapshot;
+
+import com.example.dome.model.Order;
+
+import java.util.List;
+
+/**
+ * A book as read back from its snapshot file: the resting orders in book order (see
+ * OrderBook.forEachOrder) as of command sequence `sequence` of the owning shard.
+ */
+public record BookSnapshot(String symbol, long sequence, List<Order> orders) {
+}
@@ -0,0 +1,142 @@
+package com.example.dome.engine.snapshot;
+
+import com.example.dome.model.Order;
+import com.example.dome.persistence.OrderCodec;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Book snapshot files, one directory per shard:
+ * <pre>
+ * {dir}/shard-{n}/{symbol}.book   latest snapshot of each book the shard owns
+ * {dir}/shard-{n}/MANIFEST        command sequence every book file in the directory is valid as of
+ * </pre>
+ * A book file holds [int magic][byte version][long sequence][int order count], then each order as
+ * [int length][OrderCodec record], then a CRC32 of everything before it. Files are written to a
+ * temporary name, forced, then renamed over the old one, so a reader sees either the old or the new file.
+ *
+ * A book is valid as of the later of its own sequence and the manifest's: the manifest is written
+ * only once every book that changed since the previous one has been written.
+ */
+public class BookSnapshotStore {
+
+    public static final long NO_SNAPSHOT = -1;
+
+    private static final int MAGIC = 0x424F4F4B; // "BOOK"
+    private static final byte VERSION_1 = 1;
+    private static final String BOOK_SUFFIX = ".book";
+    private static final String MANIFEST = "MANIFEST";
+
+    private final Path dir;
+
+    public BookSnapshotStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param orders the book's orders, encoded back to back as [int length][OrderCodec record]
+     */
+    public void write(int shard, String symbol, long sequence, int orderCount, byte[] orders) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 1 + Long.BYTES + Integer.BYTES)
+                .putInt(MAGIC).put(VERSION_1).putLong(sequence).putInt(orderCount).flip();
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate());
+        crc.update(orders);
+        ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).flip();
+
+        writeAtomically(shardDir(shard).resolve(fileName(symbol)), header, ByteBuffer.wrap(orders), trailer);
+    }
+
+    public void writeManifest(int shard, long sequence) throws IOException {
+        writeAtomically(shardDir(shard).resolve(MANIFEST), ByteBuffer.allocate(Long.BYTES).putLong(sequence).flip());
+    }
+
+    /** @return the shard's manifest sequence, or NO_SNAPSHOT if it has never completed a snapshot */
+    public long loadManifest(int shard) throws IOException {
+        Path manifest = shardDir(shard).resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return NO_SNAPSHOT;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(manifest)).getLong();
+    }
+
+    /** Reads every book file of the shard; a corrupt file fails the whole load. */
+    public List<BookSnapshot> load(int shard) throws IOException {
+        List<BookSnapshot> books = new ArrayList<>();
+        Path shardDir = shardDir(shard);
+        if (!Files.isDirectory(shardDir)) {
+            return books;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(shardDir)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(BOOK_SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            books.add(read(file));
+        }
+        return books;
+    }
+
+    private BookSnapshot read(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        String name = file.getFileName().toString();
+        String symbol = URLDecoder.decode(name.substring(0, name.length() - BOOK_SUFFIX.length()), StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < Integer.BYTES + 1 + Long.BYTES + 2 * Integer.BYTES
+                || buffer.getInt() != MAGIC || buffer.get() != VERSION_1) {
+            throw new IOException("Not a book snapshot: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        if ((int) crc.getValue() != buffer.getInt(bytes.length - Integer.BYTES)) {
+            throw new IOException("Corrupt book snapshot: " + file);
+        }
+
+        long sequence = buffer.getLong();
+        int count = buffer.getInt();
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] record = new byte[buffer.getInt()];
+            buffer.get(record);
+            orders.add(OrderCodec.decode(record));
+        }
+        return new BookSnapshot(symbol, sequence, orders);
+    }
+
+    private Path shardDir(int shard) {
+        return dir.resolve("shard-" + shard);
+    }
+
+    // Symbols become file names; escape anything a file system might not accept
+    private static String fileName(String symbol) {
+        return URLEncoder.encode(symbol, StandardCharsets.UTF_8) + BOOK_SUFFIX;
+    }
+
+    private static void writeAtomically(Path target, ByteBuffer... parts) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer part : parts) {
+                while (part.hasRemaining()) {
+                    channel.write(part);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.dome.engine.snapshot;
+
+import com.example.dome.engine.OrderBook;
+import com.example.dome.persistence.OrderCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Periodically snapshots one shard's books into a BookSnapshotStore.
+ *
+ * The matching thread reports the books each batch changed and, at the end of the batch, the
+ * sequence of the last command applied. Once the interval has passed it copies the changed books'
+ * orders into byte arrays (the only work done on the matching thread) and hands them to a
+ * background thread, which writes the files and then the manifest. The first round, and any round
+ * after a failed one, copies every book the shard owns so the manifest always covers all of them.
+ *
+ * Files are written only once the order store has committed up to the snapshot's sequence:
+ * recovery can then replay the journal from the snapshot and rewrite the store idempotently.
+ */
+public class BookSnapshotter {
+
+    // How long a round waits for the order store to catch up before it is abandoned
+    private static final long PERSIST_WAIT_MILLIS = 10_000;
+
+    private final BookSnapshotStore store;
+    private final int shard;
+    private final long intervalNanos;
+    private final Supplier<Collection<OrderBook>> ownedBooks;
+    private final LongSupplier persistedSequence;
+    private final ExecutorService writer;
+
+    // Matching thread only
+    private final Set<OrderBook> changedBooks = new HashSet<>();
+    private ByteBuffer scratch = ByteBuffer.allocate(64 * 1024);
+    private long nextSnapshotNanos;
+
+    // Set by the writer when a round fails, so the next one rewrites every book
+    private final AtomicBoolean fullRound = new AtomicBoolean(true);
+    private volatile boolean writing;
+
+    /**
+     * @param ownedBooks        every book the shard owns (read on the matching thread)
+     * @param persistedSequence highest command sequence the order store has committed for this shard
+     */
+    public BookSnapshotter(BookSnapshotStore store, int shard, long intervalMillis,
+                           Supplier<Collection<OrderBook>> ownedBooks, LongSupplier persistedSequence) {
+        this.store = store;
+        this.shard = shard;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.ownedBooks = ownedBooks;
+        this.persistedSequence = persistedSequence;
+        this.nextSnapshotNanos = System.nanoTime() + intervalNanos;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "book-snapshots-" + shard);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Matching thread: a command changed this book. */
+    public void touch(OrderBook book) {
+        changedBooks.add(book);
+    }
+
+    /** Matching thread, end of a batch: sequence is the last command applied to the books. */
+    public void onEndOfBatch(long sequence) {
+        long now = System.nanoTime();
+        // A round still being written delays the next one; its changed books keep accumulating
+        if (now - nextSnapshotNanos < 0 || writing) {
+            return;
+        }
+        nextSnapshotNanos = now + intervalNanos;
+        boolean full = fullRound.getAndSet(false);
+        if (!full && changedBooks.isEmpty()) {
+            return;
+        }
+
+        List<Capture> captures = new ArrayList<>();
+        for (OrderBook book : full ? ownedBooks.get() : changedBooks) {
+            captures.add(capture(book));
+        }
+        changedBooks.clear();
+        writing = true;
+        writer.execute(() -> write(sequence, captures));
+    }
+
+    public void close() {
+        writer.shutdown();
+    }
+
+    private Capture capture(OrderBook book) {
+        scratch.clear();
+        int[] count = {0};
+        book.forEachOrder(order -> {
+            int size = OrderCodec.encodedSize(order);
+            ensureCapacity(Integer.BYTES + size);
+            scratch.putInt(size);
+            OrderCodec.encode(order, scratch);
+            count[0]++;
+        });
+        byte[] orders = new byte[scratch.position()];
+        scratch.flip().get(orders);
+        return new Capture(book.getSymbol(), count[0], orders);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            scratch.flip();
+            grown.put(scratch);
+            scratch = grown;
+        }
+    }
+
+    private void write(long sequence, List<Capture> captures) {
+        try {
+            awaitPersisted(sequence);
+            for (Capture capture : captures) {
+                store.write(shard, capture.symbol(), sequence, capture.orderCount(), capture.orders());
+            }
+            store.writeManifest(shard, sequence);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Book snapshot of shard " + shard + " at sequence " + sequence + " failed: " + e.getMessage());
+            fullRound.set(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fullRound.set(true);
+        } finally {
+            writing = false;
+        }
+    }
+
+    private void awaitPersisted(long sequence) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + PERSIST_WAIT_MILLIS;
+        while (persistedSequence.getAsLong() < sequence) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("order store has not committed up to sequence " + sequence);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /** A book's orders copied on the matching thread: [int length][OrderCodec record] each. */
+    private record Capture(String symbol, int orderCount, byte[] orders) {
+    }
+}
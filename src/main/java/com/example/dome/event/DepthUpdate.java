@@ -0,0 +1,19 @@
+package com.example.dome.event;
+
+import com.example.dome.model.OrderSide;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The price levels of one symbol changed by one command, published on /topic/depth/{symbol}.
+ * Sequences are consecutive per symbol: a client applies the updates after the sequence of an
+ * order book snapshot (GET /api/orderbook/{symbol}) and resyncs from a new snapshot on a gap.
+ * Timestamp is the engine stamp of the command (epoch nanos).
+ */
+public record DepthUpdate(String symbol, long sequence, long timestamp, List<LevelChange> changes) {
+
+    /** The level's aggregate resting quantity after the command; 0 means the level was removed. */
+    public record LevelChange(OrderSide side, BigDecimal price, long quantity) {
+    }
+}
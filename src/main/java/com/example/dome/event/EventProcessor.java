@@ -1,5 +1,6 @@
 package com.example.dome.event;
 
+import com.example.dome.marketdata.BinaryMarketDataHandler;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.BlockingQueue;
@@ -13,16 +14,43 @@ import java.util.concurrent.LinkedBlockingQueue;
 @Component
 public class EventProcessor {
 
-    private final com.example.dome.persistence.TradeRepository tradeRepository;
+    private final com.example.dome.persistence.TradeWriter tradeWriter;
+    private final com.example.dome.analytics.archive.TradeArchive tradeArchive;
     private final com.example.dome.cache.MarketDataCache marketDataCache;
     private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    private final BinaryMarketDataHandler binaryMarketData;
 
-    public EventProcessor(com.example.dome.persistence.TradeRepository tradeRepository,
+    // Latest unpublished top of book per symbol: bursts collapse to one message per symbol per flush
+    private final java.util.concurrent.ConcurrentHashMap<String, BookUpdate> pendingBookUpdates =
+            new java.util.concurrent.ConcurrentHashMap<>();
+
+    // 0: flush at the end of every Disruptor batch; otherwise at most once per interval, on a timer
+    @org.springframework.beans.factory.annotation.Value("${marketdata.book.flush-interval-ms:0}")
+    private long bookFlushIntervalMillis;
+
+    // Trades not yet published, per symbol in trade order; sent as one array message per symbol
+    private final java.util.concurrent.ConcurrentHashMap<String, java.util.List<com.example.dome.model.Trade>> pendingTrades =
+            new java.util.concurrent.ConcurrentHashMap<>();
+
+    // 0: flush at the end of every Disruptor batch; otherwise every linger interval, on a timer
+    @org.springframework.beans.factory.annotation.Value("${marketdata.trades.linger-ms:0}")
+    private long tradeLingerMillis;
+
+    // Topic names per symbol, built once instead of concatenated per message
+    private final java.util.concurrent.ConcurrentHashMap<String, Topics> topics = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private java.util.concurrent.ScheduledExecutorService flusher;
+
+    public EventProcessor(com.example.dome.persistence.TradeWriter tradeWriter,
+                          com.example.dome.analytics.archive.TradeArchive tradeArchive,
                           com.example.dome.cache.MarketDataCache marketDataCache,
-                          org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate) {
-        this.tradeRepository = tradeRepository;
+                          org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate,
+                          BinaryMarketDataHandler binaryMarketData) {
+        this.tradeWriter = tradeWriter;
+        this.tradeArchive = tradeArchive;
         this.marketDataCache = marketDataCache;
         this.messagingTemplate = messagingTemplate;
+        this.binaryMarketData = binaryMarketData;
     }
 
     // For buffering events if needed.
@@ -33,26 +61,142 @@ public class EventProcessor {
         com.example.dome.model.Trade trade = event.trade();
         
         try {
-            tradeRepository.save(trade);
+            // Queued for a batched insert on the trade writer's own thread; never blocks the pipeline
+            tradeWriter.write(trade);
+            // Columnar copy for analytics, also written on its own thread
+            tradeArchive.append(trade);
             
-            // Publish to WebSocket
-            messagingTemplate.convertAndSend("/topic/trades/" + trade.getSymbol(), trade);
+            // Published to WebSocket with the rest of its batch by flushTrades()
+            pendingTrades.compute(trade.getSymbol(), (symbol, trades) -> {
+                if (trades == null) {
+                    trades = new java.util.ArrayList<>();
+                }
+                trades.add(trade);
+                return trades;
+            });
             
         } catch (Exception e) {
             System.err.println("Failed to persist/publish trade: " + e.getMessage());
         }
     }
     
+    /** Publishes the level changes of one command; subscribers keep their book from a snapshot plus these. */
+    public void onDepthUpdate(DepthUpdate update) {
+        try {
+            messagingTemplate.convertAndSend(topics(update.symbol()).depth(), update);
+            binaryMarketData.publishDepth(update);
+        } catch (Exception e) {
+            System.err.println("Failed to publish depth update: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records the symbol's latest top of book. Nothing is sent yet: an update still waiting replaces
+     * the previous one, and flushBookUpdates() (or the flush interval) publishes the survivors.
+     */
     public void onBookUpdate(String symbol, java.math.BigDecimal bestBid, java.math.BigDecimal bestAsk) {
-        // Simple DTO for book update
-        record BookUpdate(String symbol, java.math.BigDecimal bestBid, java.math.BigDecimal bestAsk, long timestamp) {}
-        
-        BookUpdate update = new BookUpdate(symbol, bestBid, bestAsk, System.currentTimeMillis());
-        
-        messagingTemplate.convertAndSend("/topic/book/" + symbol, update);
-        
-        // Also update Redis Cache
-        marketDataCache.updateBestBid(symbol, bestBid);
-        marketDataCache.updateBestAsk(symbol, bestAsk);
+        pendingBookUpdates.put(symbol, new BookUpdate(symbol, bestBid, bestAsk, System.currentTimeMillis()));
+    }
+
+    /**
+     * End of a Disruptor batch (or of a synchronous command): publishes the trades received since the
+     * last flush as one array per symbol on /topic/trades/{symbol}, unless marketdata.trades.linger-ms
+     * is set, in which case only the flusher thread does.
+     */
+    public void flushTrades() {
+        if (tradeLingerMillis <= 0) {
+            publishTrades();
+        }
+    }
+
+    // Serialized like publishBookUpdates(), so a symbol's arrays go out in trade order
+    private void publishTrades() {
+        synchronized (pendingTrades) {
+            for (String symbol : pendingTrades.keySet()) {
+                java.util.List<com.example.dome.model.Trade> trades = pendingTrades.remove(symbol);
+                if (trades == null) {
+                    continue;
+                }
+                try {
+                    messagingTemplate.convertAndSend(topics(symbol).trades(), trades);
+                    binaryMarketData.publishTrades(symbol, trades);
+                } catch (Exception e) {
+                    System.err.println("Failed to publish " + trades.size() + " trades: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * End of a Disruptor batch (or of a synchronous command): publishes the conflated book updates,
+     * unless marketdata.book.flush-interval-ms is set, in which case only the flusher thread does.
+     */
+    public void flushBookUpdates() {
+        if (bookFlushIntervalMillis <= 0) {
+            publishBookUpdates();
+        }
+    }
+
+    // Serialized: of two flushes racing for one symbol, the older update must not be sent last
+    private void publishBookUpdates() {
+        synchronized (pendingBookUpdates) {
+            for (String symbol : pendingBookUpdates.keySet()) {
+                BookUpdate update = pendingBookUpdates.remove(symbol);
+                if (update == null) {
+                    continue;
+                }
+                try {
+                    messagingTemplate.convertAndSend(topics(symbol).book(), update);
+
+                    // Also update Redis Cache
+                    marketDataCache.updateBestBid(symbol, update.bestBid());
+                    marketDataCache.updateBestAsk(symbol, update.bestAsk());
+                } catch (Exception e) {
+                    System.err.println("Failed to publish book update: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Topics topics(String symbol) {
+        return topics.computeIfAbsent(symbol, Topics::new);
+    }
+
+    @jakarta.annotation.PostConstruct
+    public void start() {
+        if (bookFlushIntervalMillis <= 0 && tradeLingerMillis <= 0) {
+            return;
+        }
+        flusher = java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "market-data-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (bookFlushIntervalMillis > 0) {
+            flusher.scheduleWithFixedDelay(this::publishBookUpdates, bookFlushIntervalMillis,
+                    bookFlushIntervalMillis, java.util.concurrent.TimeUnit.MILLISECONDS);
+        }
+        if (tradeLingerMillis > 0) {
+            flusher.scheduleWithFixedDelay(this::publishTrades, tradeLingerMillis,
+                    tradeLingerMillis, java.util.concurrent.TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @jakarta.annotation.PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        publishTrades();
+        publishBookUpdates();
+    }
+
+    public record BookUpdate(String symbol, java.math.BigDecimal bestBid, java.math.BigDecimal bestAsk, long timestamp) {
+    }
+
+    private record Topics(String trades, String book, String depth) {
+        Topics(String symbol) {
+            this("/topic/trades/" + symbol, "/topic/book/" + symbol, "/topic/depth/" + symbol);
+        }
     }
 }
@@ -1,14 +1,14 @@
 package com.example.dome.event;
 
 import com.example.dome.model.Trade;
-import java.time.Instant;
 
 /**
  * Event representing a completed trade.
  * Wraps the Trade entity with event-specific metadata if needed.
  */
-public record TradeEvent(Trade trade, Instant eventTimestamp) {
+public record TradeEvent(Trade trade, long eventTimestamp) {
+    // The event time is the engine stamp of the trade (epoch nanos); no extra clock read
     public TradeEvent(Trade trade) {
-        this(trade, Instant.now());
+        this(trade, trade.getTimestamp());
     }
 }
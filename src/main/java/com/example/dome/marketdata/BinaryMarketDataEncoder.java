@@ -0,0 +1,94 @@
+package com.example.dome.marketdata;
+
+import com.example.dome.event.DepthUpdate;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.Trade;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed-layout binary encoding of market data for the binary WebSocket endpoint. Big-endian:
+ * <pre>
+ * header  [u8 type][u8 price scale][u16 symbol length][symbol, UTF-8]
+ * TRADES  [i32 count] then per trade:  [i64 trade ID][i64 timestamp][i64 price][i64 quantity][i64 buy order ID][i64 sell order ID]
+ * DEPTH   [i64 sequence][i64 timestamp][i32 count] then per level: [u8 side][i64 price][i64 quantity]
+ * </pre>
+ * Prices are unscaled: price = value / 10^scale. Timestamps are epoch nanos. Side is 0 for BUY,
+ * 1 for SELL; a depth quantity of 0 means the level was removed (see DepthUpdate).
+ *
+ * Messages are written into one reusable buffer and copied out once, so a frame is a single
+ * exact-size array shared by every subscriber. Not thread-safe: one encoder per thread.
+ */
+public class BinaryMarketDataEncoder {
+
+    public static final byte TRADES = 1;
+    public static final byte DEPTH = 2;
+
+    static final int TRADE_BYTES = 6 * Long.BYTES;
+    static final int LEVEL_BYTES = 1 + 2 * Long.BYTES;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    private final Map<String, byte[]> symbolBytes = new HashMap<>();
+
+    /** @param trades one symbol's trades, non-empty */
+    public byte[] encodeTrades(String symbol, List<Trade> trades) {
+        int scale = trades.get(0).getPrice().scale();
+        ByteBuffer out = header(TRADES, symbol, scale, Integer.BYTES + trades.size() * TRADE_BYTES);
+        out.putInt(trades.size());
+        for (Trade trade : trades) {
+            out.putLong(trade.getTradeId())
+                    .putLong(trade.getTimestamp())
+                    .putLong(unscaled(trade.getPrice(), scale))
+                    .putLong(trade.getQuantity())
+                    .putLong(trade.getBuyOrderId())
+                    .putLong(trade.getSellOrderId());
+        }
+        return copy(out);
+    }
+
+    /** @param update a non-empty depth update */
+    public byte[] encodeDepth(DepthUpdate update) {
+        List<DepthUpdate.LevelChange> changes = update.changes();
+        int scale = changes.get(0).price().scale();
+        ByteBuffer out = header(DEPTH, update.symbol(), scale, 2 * Long.BYTES + Integer.BYTES + changes.size() * LEVEL_BYTES);
+        out.putLong(update.sequence())
+                .putLong(update.timestamp())
+                .putInt(changes.size());
+        for (DepthUpdate.LevelChange change : changes) {
+            out.put(change.side() == OrderSide.BUY ? (byte) 0 : (byte) 1)
+                    .putLong(unscaled(change.price(), scale))
+                    .putLong(change.quantity());
+        }
+        return copy(out);
+    }
+
+    private ByteBuffer header(byte type, String symbol, int scale, int bodyBytes) {
+        byte[] name = symbolBytes.computeIfAbsent(symbol, s -> s.getBytes(StandardCharsets.UTF_8));
+        int bytes = 2 + Short.BYTES + name.length + bodyBytes;
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+        }
+        return buffer.clear()
+                .put(type)
+                .put((byte) scale)
+                .putShort((short) name.length)
+                .put(name);
+    }
+
+    // Prices of one symbol share its tick scale, so this is exact
+    private static long unscaled(BigDecimal price, int scale) {
+        return price.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private static byte[] copy(ByteBuffer out) {
+        byte[] frame = new byte[out.position()];
+        out.flip().get(frame);
+        return frame;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.dome.marketdata;
+
+import com.example.dome.event.DepthUpdate;
+import com.example.dome.model.Trade;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Raw (non-STOMP) WebSocket endpoint streaming trades and depth deltas in the BinaryMarketDataEncoder
+ * layout, for subscribers that do not want JSON. Registered at marketdata.binary.path when
+ * marketdata.binary.enabled is set (see BinaryWebSocketConfig).
+ *
+ * Clients send text frames "SUBSCRIBE {symbol}" / "UNSUBSCRIBE {symbol}" and receive binary frames.
+ * Each message is encoded once, on the publishing thread, however many sessions receive it. Sends
+ * go through a ConcurrentWebSocketSessionDecorator, so a slow client is buffered up to a limit and
+ * then disconnected instead of holding up the publisher.
+ */
+@Component
+public class BinaryMarketDataHandler extends BinaryWebSocketHandler {
+
+    private final boolean enabled;
+    private final int sendTimeLimitMillis;
+    private final int bufferSizeLimit;
+
+    // Session ID -> the decorated session sends go through
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<WebSocketSession>> subscribers = new ConcurrentHashMap<>();
+
+    // Publishing threads (persistence stages, flusher) each reuse their own buffer
+    private final ThreadLocal<BinaryMarketDataEncoder> encoders = ThreadLocal.withInitial(BinaryMarketDataEncoder::new);
+
+    public BinaryMarketDataHandler(@Value("${marketdata.binary.enabled:false}") boolean enabled,
+                                   @Value("${marketdata.binary.send-time-limit-ms:1000}") int sendTimeLimitMillis,
+                                   @Value("${marketdata.binary.buffer-size-limit:1048576}") int bufferSizeLimit) {
+        this.enabled = enabled;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void publishTrades(String symbol, List<Trade> trades) {
+        Set<WebSocketSession> targets = subscribers.get(symbol);
+        // Nothing is encoded for a symbol nobody subscribed to
+        if (targets == null || targets.isEmpty() || trades.isEmpty()) {
+            return;
+        }
+        send(targets, encoders.get().encodeTrades(symbol, trades));
+    }
+
+    public void publishDepth(DepthUpdate update) {
+        Set<WebSocketSession> targets = subscribers.get(update.symbol());
+        if (targets == null || targets.isEmpty() || update.changes().isEmpty()) {
+            return;
+        }
+        send(targets, encoders.get().encodeDepth(update));
+    }
+
+    private void send(Set<WebSocketSession> targets, byte[] frame) {
+        for (WebSocketSession session : targets) {
+            try {
+                // The array is shared; each message gets its own ByteBuffer position
+                session.sendMessage(new BinaryMessage(frame));
+            } catch (IOException | RuntimeException e) {
+                // Includes SessionLimitExceededException: the decorator already closed a client that fell too far behind
+                close(session, CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        sessions.put(session.getId(), new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMillis, bufferSizeLimit));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        WebSocketSession decorated = sessions.get(session.getId());
+        String[] command = message.getPayload().trim().split("\\s+");
+        if (decorated == null || command.length != 2) {
+            close(session, CloseStatus.BAD_DATA);
+            return;
+        }
+        String symbol = command[1];
+        switch (command[0]) {
+            case "SUBSCRIBE" -> subscribers.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(decorated);
+            case "UNSUBSCRIBE" -> {
+                Set<WebSocketSession> targets = subscribers.get(symbol);
+                if (targets != null) {
+                    targets.remove(decorated);
+                }
+            }
+            default -> close(session, CloseStatus.BAD_DATA);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        remove(session.getId());
+    }
+
+    // Unsubscribes the session and closes it; a session that is already gone is just forgotten
+    private void close(WebSocketSession session, CloseStatus status) {
+        remove(session.getId());
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            // Nothing left to tell the client
+        }
+    }
+
+    private void remove(String sessionId) {
+        WebSocketSession decorated = sessions.remove(sessionId);
+        if (decorated != null) {
+            subscribers.values().forEach(targets -> targets.remove(decorated));
+        }
+    }
+}
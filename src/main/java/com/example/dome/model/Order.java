@@ -2,31 +2,48 @@ package com.example.dome.model;
 
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
+import lombok.ToString;
 
 import java.math.BigDecimal;
-import java.time.Instant;
 import java.util.UUID;
 
+/**
+ * Mutable so the matching shard can recycle instances through an OrderPool (see reset()).
+ */
 @Data
 @Builder
+@lombok.NoArgsConstructor
+@lombok.AllArgsConstructor
 public class Order {
 
-    @NonNull
-    private final UUID orderId;
+    /**
+     * Engine-assigned monotonic ID (see SequenceIdGenerator); 0 until the matching shard assigns it.
+     */
+    private long orderId;
+
+    // Optional client-facing alias; never used for lookup inside the engine
+    private UUID clientOrderId;
 
     @NonNull
-    private final String symbol;
+    private String symbol;
 
     @NonNull
-    private final OrderSide side;
+    private OrderSide side;
 
     @NonNull
-    private final OrderType type;
+    private OrderType type;
 
-    private final BigDecimal price;
+    private BigDecimal price;
 
-    private final long quantity;
+    /**
+     * Price in ticks of the symbol's PriceScale.
+     * Stamped once when the order enters the engine; the book and matching only ever read this.
+     */
+    private long priceTicks;
+
+    private long quantity;
 
     @Builder.Default
     private long filledQuantity = 0;
@@ -34,25 +51,84 @@ public class Order {
     @NonNull
     private OrderStatus status;
 
-    @NonNull
-    private final Instant timestamp;
+    /**
+     * Entry time in epoch nanoseconds, stamped once by the matching shard's EngineClock.
+     */
+    private long timestamp;
+
+    // Intrusive FIFO links, owned by the PriceLevel this order rests in (null when not resting).
+    // Lets a cancel unlink the order in O(1) instead of leaving a tombstone in a queue.
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Order prev;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Order next;
 
     /**
      * Basic validation of order state.
      * More complex validation (like price ticks, symbol existence) happens in OrderValidator.
      */
     public void validate() {
+        validate(type, price, quantity);
+        if (filledQuantity < 0) {
+             throw new IllegalArgumentException("Filled quantity cannot be negative");
+        }
+    }
+
+    /**
+     * The same checks on raw request fields, for callers that validate before an Order exists
+     * (orders are taken from the engine's pool on the matching thread).
+     */
+    public static void validate(OrderType type, BigDecimal price, long quantity) {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Quantity must be positive");
         }
         if (price != null && price.compareTo(BigDecimal.ZERO) <= 0 && type != OrderType.MARKET) {
             throw new IllegalArgumentException("Price must be positive for non-market orders");
         }
-        if (filledQuantity < 0) {
-             throw new IllegalArgumentException("Filled quantity cannot be negative");
-        }
+    }
+
+    /**
+     * Clears every field so the instance can go back to an OrderPool.
+     */
+    public void reset() {
+        this.orderId = 0;
+        this.clientOrderId = null;
+        this.symbol = null;
+        this.side = null;
+        this.type = null;
+        this.price = null;
+        this.priceTicks = 0;
+        this.quantity = 0;
+        this.filledQuantity = 0;
+        this.status = null;
+        this.timestamp = 0;
+        this.prev = null;
+        this.next = null;
     }
     
+    /**
+     * A detached copy of the stored fields (no book links), for keeping an order's state after the
+     * pooled instance may have been reused.
+     */
+    public Order copy() {
+        return Order.builder()
+                .orderId(orderId)
+                .clientOrderId(clientOrderId)
+                .symbol(symbol)
+                .side(side)
+                .type(type)
+                .price(price)
+                .priceTicks(priceTicks)
+                .quantity(quantity)
+                .filledQuantity(filledQuantity)
+                .status(status)
+                .timestamp(timestamp)
+                .build();
+    }
+
     public long getRemainingQuantity() {
         return quantity - filledQuantity;
     }
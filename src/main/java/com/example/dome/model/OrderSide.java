@@ -1,5 +1,6 @@
 package com.example.dome.model;
 
+// Persisted by ordinal (see OrderCodec): append new constants only, never reorder
 public enum OrderSide {
     BUY,
     SELL
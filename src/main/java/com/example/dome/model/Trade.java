@@ -5,7 +5,6 @@ import lombok.Data;
 import lombok.NonNull;
 
 import java.math.BigDecimal;
-import java.time.Instant;
 import java.util.UUID;
 
 @Data
@@ -14,25 +13,22 @@ import java.util.UUID;
 @lombok.AllArgsConstructor
 public class Trade {
 
-    @NonNull
-    private UUID tradeId;
+    private long tradeId;
 
     @NonNull
     private String symbol;
 
-    @NonNull
-    private UUID buyOrderId;
+    private long buyOrderId;
 
-    @NonNull
-    private UUID sellOrderId;
+    private long sellOrderId;
 
     @NonNull
     private BigDecimal price;
 
     private long quantity;
 
-    @NonNull
-    private Instant timestamp;
+    // Epoch nanoseconds; shared by every fill of the same aggressive order
+    private long timestamp;
     
     // Optional: identifier for the matching event if needed for grouping
     private UUID matchEventId;
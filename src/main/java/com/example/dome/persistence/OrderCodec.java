@@ -0,0 +1,264 @@
+package com.example.dome.persistence;
+
+import com.example.dome.engine.EngineClock;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Binary encoding of an Order as stored in RocksDB.
+ *
+ * Version 1 layout, fixed-width fields first, then the symbol:
+ * <pre>
+ *  0  byte    version (0x81)
+ *  1  long    orderId
+ *  9  byte    flags (bit 0: clientOrderId present, bit 1: price present)
+ * 10  long    clientOrderId msb  } raw 16 bytes, zero if absent
+ * 18  long    clientOrderId lsb  }
+ * 26  byte    side ordinal
+ * 27  byte    type ordinal
+ * 28  byte    status ordinal
+ * 29  long    price unscaled value (0 if absent)
+ * 37  byte    price scale
+ * 38  long    quantity
+ * 46  long    filledQuantity
+ * 54  long    timestamp (epoch nanos)
+ * 62  short   symbol length, then the symbol as UTF-8
+ * </pre>
+ * Enums are stored by ordinal: OrderSide, OrderType and OrderStatus may only ever be appended to.
+ *
+ * Prices are stored as they were normalised at the REST edge (PriceScale.toPrice), so the unscaled
+ * value is the tick count and the scale is the symbol's tick scale. A price that was not normalised
+ * (a scale outside PriceScale's 0..18, or an unscaled value beyond a long) is rejected with an
+ * IllegalArgumentException rather than written in a form that cannot be read back.
+ *
+ * Two older layouts are still readable; only version 1 is written:
+ * - Records written before versioning (DataOutputStream with UTF strings) start with the order ID,
+ *   whose top bit is always 0 (see SequenceIdGenerator), so a first byte with the high bit set
+ *   identifies a versioned record.
+ * - The original records, from when orders had UUID IDs, start with that UUID as a UTF string:
+ *   length 36, then the canonical hex-and-dash form. They have no long ID; they decode with
+ *   orderId 0 and the old UUID as clientOrderId, and RocksDBOrderDao numbers them when it migrates them.
+ */
+public final class OrderCodec {
+
+    static final byte VERSION_1 = (byte) 0x81;
+
+    private static final int FLAG_CLIENT_ORDER_ID = 1;
+    private static final int FLAG_PRICE = 1 << 1;
+
+    private static final int FIXED_SIZE = 64;
+
+    // Same bounds as PriceScale
+    private static final int MAX_PRICE_SCALE = 18;
+
+    // Characters in a UUID's canonical string form
+    private static final int UUID_LENGTH = 36;
+
+    private static final OrderSide[] SIDES = OrderSide.values();
+    private static final OrderType[] TYPES = OrderType.values();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private OrderCodec() {
+    }
+
+    /** A heap copy of the record; RocksDBOrderDao encodes into a reused direct buffer instead. */
+    public static byte[] encode(Order order) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(order));
+        encode(order, buffer);
+        return buffer.array();
+    }
+
+    /** Bytes encode(order, buffer) will write. */
+    public static int encodedSize(Order order) {
+        return FIXED_SIZE + order.getSymbol().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /** Writes the record at the buffer's position, e.g. into a larger buffer holding many orders. */
+    public static void encode(Order order, ByteBuffer buffer) {
+        byte[] symbol = order.getSymbol().getBytes(StandardCharsets.UTF_8);
+
+        UUID clientOrderId = order.getClientOrderId();
+        BigDecimal price = order.getPrice();
+        long unscaledPrice = price != null ? unscaledPrice(order.getOrderId(), price) : 0;
+        int flags = (clientOrderId != null ? FLAG_CLIENT_ORDER_ID : 0) | (price != null ? FLAG_PRICE : 0);
+
+        buffer.put(VERSION_1);
+        buffer.putLong(order.getOrderId());
+        buffer.put((byte) flags);
+        buffer.putLong(clientOrderId != null ? clientOrderId.getMostSignificantBits() : 0);
+        buffer.putLong(clientOrderId != null ? clientOrderId.getLeastSignificantBits() : 0);
+        buffer.put((byte) order.getSide().ordinal());
+        buffer.put((byte) order.getType().ordinal());
+        buffer.put((byte) order.getStatus().ordinal());
+        // Normalised to the symbol's tick scale at the edge, so the unscaled value is the tick count
+        buffer.putLong(unscaledPrice);
+        buffer.put((byte) (price != null ? price.scale() : 0));
+        buffer.putLong(order.getQuantity());
+        buffer.putLong(order.getFilledQuantity());
+        buffer.putLong(order.getTimestamp());
+        buffer.putShort((short) symbol.length);
+        buffer.put(symbol);
+    }
+
+    private static long unscaledPrice(long orderId, BigDecimal price) {
+        if (price.scale() < 0 || price.scale() > MAX_PRICE_SCALE) {
+            throw new IllegalArgumentException("Price " + price + " of order " + orderId + " has scale " + price.scale()
+                    + "; it must be normalised to a tick scale between 0 and " + MAX_PRICE_SCALE + " before it is stored");
+        }
+        if (price.unscaledValue().bitLength() >= Long.SIZE) {
+            throw new IllegalArgumentException("Price " + price + " of order " + orderId
+                    + " has more ticks than fit in a long at scale " + price.scale());
+        }
+        return price.unscaledValue().longValue();
+    }
+
+    public static Order decode(byte[] bytes) {
+        if (bytes.length > 0 && bytes[0] == VERSION_1) {
+            return decodeV1(ByteBuffer.wrap(bytes));
+        }
+        if (bytes.length > 0 && bytes[0] < 0) {
+            throw new IllegalArgumentException("Unknown order record version: " + (bytes[0] & 0xFF));
+        }
+        if (isUuidRecord(bytes)) {
+            return decodeUuidRecord(bytes);
+        }
+        return decodeLegacy(bytes);
+    }
+
+    /**
+     * Whether this is an original record, written when orders had UUID IDs. An unversioned record
+     * can start with the same two bytes (ID shard 36), but not with 36 more bytes of UUID text.
+     */
+    static boolean isUuidRecord(byte[] bytes) {
+        if (bytes.length < 2 + UUID_LENGTH || bytes[0] != 0 || bytes[1] != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = (char) bytes[2 + i];
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Order decodeV1(ByteBuffer buffer) {
+        buffer.get(); // version
+        long orderId = buffer.getLong();
+        int flags = buffer.get();
+        long msb = buffer.getLong();
+        long lsb = buffer.getLong();
+        OrderSide side = SIDES[buffer.get()];
+        OrderType type = TYPES[buffer.get()];
+        OrderStatus status = STATUSES[buffer.get()];
+        long unscaledPrice = buffer.getLong();
+        int priceScale = buffer.get();
+        long quantity = buffer.getLong();
+        long filledQuantity = buffer.getLong();
+        long timestamp = buffer.getLong();
+        byte[] symbol = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(symbol);
+
+        return Order.builder()
+                .orderId(orderId)
+                .clientOrderId((flags & FLAG_CLIENT_ORDER_ID) != 0 ? new UUID(msb, lsb) : null)
+                .symbol(new String(symbol, StandardCharsets.UTF_8))
+                .side(side)
+                .type(type)
+                .price((flags & FLAG_PRICE) != 0 ? BigDecimal.valueOf(unscaledPrice, priceScale) : null)
+                .quantity(quantity)
+                .filledQuantity(filledQuantity)
+                .status(status)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    // The pre-versioning DataOutputStream format, kept so existing databases still load
+    private static Order decodeLegacy(byte[] bytes) {
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+             DataInputStream dis = new DataInputStream(bais)) {
+
+            long orderId = dis.readLong();
+            UUID clientOrderId = null;
+            if (dis.readBoolean()) {
+                clientOrderId = new UUID(dis.readLong(), dis.readLong());
+            }
+            String symbol = dis.readUTF();
+            OrderSide side = OrderSide.valueOf(dis.readUTF());
+            OrderType type = OrderType.valueOf(dis.readUTF());
+
+            BigDecimal price = null;
+            if (dis.readBoolean()) {
+                price = new BigDecimal(dis.readUTF());
+            }
+
+            long quantity = dis.readLong();
+            long filledQuantity = dis.readLong();
+            OrderStatus status = OrderStatus.valueOf(dis.readUTF());
+            long timestamp = dis.readLong();
+
+            return Order.builder()
+                    .orderId(orderId)
+                    .clientOrderId(clientOrderId)
+                    .symbol(symbol)
+                    .side(side)
+                    .type(type)
+                    .price(price)
+                    .quantity(quantity)
+                    .filledQuantity(filledQuantity)
+                    .status(status)
+                    .timestamp(timestamp)
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt legacy order record", e);
+        }
+    }
+
+    // The original format: UUID ID, UTF enum names and price string, timestamp in epoch millis
+    private static Order decodeUuidRecord(byte[] bytes) {
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+             DataInputStream dis = new DataInputStream(bais)) {
+
+            UUID uuid = UUID.fromString(dis.readUTF());
+            String symbol = dis.readUTF();
+            OrderSide side = OrderSide.valueOf(dis.readUTF());
+            OrderType type = OrderType.valueOf(dis.readUTF());
+
+            BigDecimal price = null;
+            if (dis.readBoolean()) {
+                price = new BigDecimal(dis.readUTF());
+            }
+
+            long quantity = dis.readLong();
+            long filledQuantity = dis.readLong();
+            OrderStatus status = OrderStatus.valueOf(dis.readUTF());
+            long timestampMillis = dis.readLong();
+
+            return Order.builder()
+                    .clientOrderId(uuid)
+                    .symbol(symbol)
+                    .side(side)
+                    .type(type)
+                    .price(price)
+                    .quantity(quantity)
+                    .filledQuantity(filledQuantity)
+                    .status(status)
+                    .timestamp(EngineClock.epochNanos(Instant.ofEpochMilli(timestampMillis)))
+                    .build();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Corrupt UUID-keyed order record", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.dome.persistence;
+
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.RocksDB;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Column families of the orders RocksDB (key layouts in OrderKeys).
+ * - live: orders that can still trade (NEW, PARTIALLY_FILLED), keyed by symbol prefix then ID, so
+ *   one symbol's orders are a prefix scan. Recovery scans only this one.
+ * - archive: terminal orders, moved here in the same write that makes them terminal.
+ * - live_ids: order ID -> symbol prefix of each live order, so findById needs no symbol.
+ * The default column family keeps non-order keys (sequence high-water marks) and, until migrated,
+ * orders written by versions that had no column families.
+ */
+public record OrderColumnFamilies(ColumnFamilyHandle live, ColumnFamilyHandle archive, ColumnFamilyHandle liveIds) {
+
+    public static final String LIVE = "live";
+    public static final String ARCHIVE = "archive";
+    public static final String LIVE_IDS = "live_ids";
+
+    /** Pass to RocksDB.open (with createMissingColumnFamilies); the handles come back in this order. */
+    public static List<ColumnFamilyDescriptor> descriptors() {
+        return descriptors(new ColumnFamilyOptions(), new ColumnFamilyOptions());
+    }
+
+    /**
+     * As {@link #descriptors()}, with tuned options: liveOptions for the live family, which also get its
+     * symbol prefix extractor, and orderOptions for the ID-keyed ones.
+     */
+    public static List<ColumnFamilyDescriptor> descriptors(ColumnFamilyOptions liveOptions, ColumnFamilyOptions orderOptions) {
+        liveOptions.useFixedLengthPrefixExtractor(OrderKeys.SYMBOL_PREFIX_BYTES);
+        return List.of(
+                new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY),
+                new ColumnFamilyDescriptor(LIVE.getBytes(StandardCharsets.UTF_8), liveOptions),
+                new ColumnFamilyDescriptor(ARCHIVE.getBytes(StandardCharsets.UTF_8), orderOptions),
+                new ColumnFamilyDescriptor(LIVE_IDS.getBytes(StandardCharsets.UTF_8), orderOptions));
+    }
+
+    /** @param handles as filled in by RocksDB.open with {@link #descriptors()} */
+    public static OrderColumnFamilies of(List<ColumnFamilyHandle> handles) {
+        return new OrderColumnFamilies(handles.get(1), handles.get(2), handles.get(3));
+    }
+}
@@ -3,10 +3,48 @@ package com.example.dome.persistence;
 import com.example.dome.model.Order;
 
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface OrderDao {
     void save(Order order);
-    void delete(String orderId);
-    Order findById(String orderId);
+    void delete(long orderId);
+    Order findById(long orderId);
     List<Order> findAll();
+
+    /**
+     * The ID an order known by its UUID (from before IDs were longs) was given when it was migrated,
+     * or null if there is none. Stores that never held UUID-keyed orders have none.
+     */
+    default Long findMigratedId(UUID uuid) {
+        return null;
+    }
+
+    /** Orders that can still trade (not FILLED, CANCELED or REJECTED). */
+    List<Order> findActive();
+
+    /**
+     * Streams the active orders without collecting them, for stores too large to hold twice in
+     * memory (recovery). Each symbol's orders come in ID order, which is almost always time order; books
+     * are rebuilt by timestamp (OrderBook.restoreOrder), so the exceptions land in place too. Across symbols the order is the store's (RocksDB: by symbol key prefix), not global ID order.
+     * The default collects findActive() first.
+     */
+    default void forEachActive(Consumer<Order> consumer) {
+        findActive().forEach(consumer);
+    }
+
+    /** As forEachActive, for one symbol only (lazy engine loading). The default filters a full scan. */
+    default void forEachActive(String symbol, Consumer<Order> consumer) {
+        forEachActive(order -> {
+            if (order.getSymbol().equals(symbol)) {
+                consumer.accept(order);
+            }
+        });
+    }
+
+    /** Last journal sequence of the shard whose effects are committed here; 0 if none. */
+    long loadJournalPosition(int shard);
+
+    /** A batch of saves committed together; see OrderWriteBatch. */
+    OrderWriteBatch newWriteBatch();
 }
@@ -0,0 +1,68 @@
+package com.example.dome.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RocksDB key layouts of the order column families.
+ * <pre>
+ * live      [8-byte symbol prefix][8-byte order ID]  -> order record
+ * live_ids  [8-byte order ID]                        -> 8-byte symbol prefix of its live key
+ * archive   [8-byte order ID]                        -> order record
+ * </pre>
+ * The symbol prefix is a 64-bit FNV-1a hash of the symbol's UTF-8 bytes, so a symbol's live orders
+ * are contiguous and sorted by ID behind a fixed-length prefix the live family's
+ * prefix extractor and bloom filters understand. Different symbols may share a prefix, so a prefix
+ * scan must still compare the decoded symbol. All values are big-endian.
+ *
+ * The hash is part of the stored format: it must never change.
+ */
+public final class OrderKeys {
+
+    public static final int SYMBOL_PREFIX_BYTES = Long.BYTES;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private OrderKeys() {
+    }
+
+    public static long symbolPrefix(String symbol) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : symbol.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public static byte[] prefixKey(long symbolPrefix) {
+        return ByteBuffer.allocate(SYMBOL_PREFIX_BYTES).putLong(symbolPrefix).array();
+    }
+
+    public static byte[] liveKey(long symbolPrefix, long orderId) {
+        return ByteBuffer.allocate(SYMBOL_PREFIX_BYTES + Long.BYTES).putLong(symbolPrefix).putLong(orderId).array();
+    }
+
+    public static byte[] liveKey(String symbol, long orderId) {
+        return liveKey(symbolPrefix(symbol), orderId);
+    }
+
+    // Big-endian, so keys sort in ID order
+    public static byte[] idKey(long orderId) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(orderId).array();
+    }
+
+    /** Whether key starts with the given prefix key. */
+    static boolean hasPrefix(byte[] key, byte[] prefixKey) {
+        if (key.length < prefixKey.length) {
+            return false;
+        }
+        for (int i = 0; i < prefixKey.length; i++) {
+            if (key[i] != prefixKey[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.dome.persistence;
+
+import com.example.dome.model.Order;
+
+/**
+ * Order writes collected in memory and applied to the store in one atomic write.
+ * save() serializes immediately, so the Order may change (or be recycled) afterwards.
+ * Not thread-safe: each persistence stage owns its own batch.
+ */
+public interface OrderWriteBatch extends AutoCloseable {
+
+    void save(Order order);
+
+    /**
+     * Records that the order store reflects the given shard's command journal up to sequence.
+     * Committed atomically with the batch's orders; recovery replays the journal from there.
+     */
+    void setJournalPosition(int shard, long sequence);
+
+    /** Orders saved since the last commit. */
+    int size();
+
+    /**
+     * Applies all buffered writes at once and empties the batch. If the write fails the batch keeps
+     * them, so the next commit applies them together with whatever was saved since.
+     */
+    void commit();
+
+    @Override
+    void close();
+}
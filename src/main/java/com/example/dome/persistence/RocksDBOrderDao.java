@@ -1,130 +1,387 @@
 package com.example.dome.persistence;
 
+import com.example.dome.engine.SequenceIdGenerator;
 import com.example.dome.model.Order;
-import com.example.dome.model.OrderSide;
 import com.example.dome.model.OrderStatus;
-import com.example.dome.model.OrderType;
+import jakarta.annotation.PostConstruct;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.io.*;
-import java.math.BigDecimal;
-import java.time.Instant;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+/**
+ * Orders split across column families (see OrderColumnFamilies, key layouts in OrderKeys):
+ * resting orders in "live" under their symbol prefix, terminal ones in "archive" by ID. Every save
+ * writes the order to the family matching its status, with its live_ids entry, and deletes it from
+ * the other in one atomic write, so an order is never in both, recovery only has to read "live"
+ * and one symbol's resting orders are a prefix scan.
+ */
 @Repository
 public class RocksDBOrderDao implements OrderDao {
 
+    static final String JOURNAL_POSITION_PREFIX = "__journal__/";
+    // Old UUID of a migrated UUID-keyed order -> the 8-byte ID it was given
+    static final String MIGRATED_ID_PREFIX = "__uuid__/";
+
+    private static final long SCAN_READAHEAD_BYTES = 2 * 1024 * 1024;
+
+    // Per writing thread (each shard's persistence stage writes its own batches); the value buffer grows for long symbols
+    private static final ThreadLocal<ByteBuffer> KEY_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(OrderKeys.SYMBOL_PREFIX_BYTES + Long.BYTES));
+    private static final ThreadLocal<ByteBuffer> VALUE_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(256));
+
     private final RocksDB rocksDB;
+    private final ColumnFamilyHandle live;
+    private final ColumnFamilyHandle archive;
+    private final ColumnFamilyHandle liveIds;
+
+    // fsync the WAL on every batch commit. Off: a commit survives a process crash but not an OS crash.
+    @Value("${rocksdb.wal.sync:false}")
+    private boolean syncWrites = false;
 
-    public RocksDBOrderDao(RocksDB rocksDB) {
+    // Numbers UUID-keyed orders when they are migrated
+    private final SequenceStore sequenceStore;
+
+    public RocksDBOrderDao(RocksDB rocksDB, OrderColumnFamilies columnFamilies, SequenceStore sequenceStore) {
         this.rocksDB = rocksDB;
+        this.live = columnFamilies.live();
+        this.archive = columnFamilies.archive();
+        this.liveIds = columnFamilies.liveIds();
+        this.sequenceStore = sequenceStore;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        migrateDefaultColumnFamily();
+        migrateLiveKeys();
     }
 
+    /**
+     * Moves orders written before column families existed out of the default family.
+     * Orders from when IDs were UUIDs (keyed by the UUID string) get new IDs from the reserved
+     * SequenceIdGenerator.MIGRATION_SHARD in timestamp order, keep the UUID as clientOrderId, and are
+     * recorded under "__uuid__/{uuid}" so the old ID can still be resolved (see findMigratedId).
+     * Their IDs sort after every live shard's, so recovery takes time priority from the timestamp
+     * (OrderBook.restoreOrder), not from the ID.
+     * One batch: either all of them move or none do. A key this method does not recognise fails
+     * startup rather than being left behind.
+     */
+    public void migrateDefaultColumnFamily() {
+        int moved = 0;
+        List<Order> uuidKeyed = new ArrayList<>();
+        try (WriteBatch batch = new WriteBatch();
+             RocksIterator iterator = rocksDB.newIterator()) {
+            iterator.seekToFirst();
+            while (iterator.isValid()) {
+                byte[] key = iterator.key();
+                if (key.length == Long.BYTES) {
+                    put(batch, OrderCodec.decode(iterator.value()));
+                    batch.delete(key);
+                    moved++;
+                } else if (OrderCodec.isUuidRecord(iterator.value())) {
+                    // Numbered below, once they can be put in time order; the UUID string key is effectively random
+                    uuidKeyed.add(OrderCodec.decode(iterator.value()));
+                    batch.delete(key);
+                    moved++;
+                } else if (!isMetadataKey(key)) {
+                    throw new IllegalStateException("Unrecognised key in the default column family: "
+                            + new String(key, StandardCharsets.UTF_8) + "; refusing to start with orders that cannot be migrated");
+                }
+                iterator.next();
+            }
+            if (!uuidKeyed.isEmpty()) {
+                uuidKeyed.sort(Comparator.comparingLong(Order::getTimestamp)
+                        .thenComparing(order -> order.getClientOrderId().toString()));
+                SequenceIdGenerator migratedIds = new SequenceIdGenerator("order", SequenceIdGenerator.MIGRATION_SHARD, sequenceStore);
+                for (Order order : uuidKeyed) {
+                    order.setOrderId(migratedIds.next());
+                    put(batch, order);
+                    batch.put(migratedIdKey(order.getClientOrderId()), OrderKeys.idKey(order.getOrderId()));
+                }
+            }
+            if (moved > 0) {
+                try (WriteOptions writeOptions = new WriteOptions().setSync(true)) {
+                    rocksDB.write(writeOptions, batch);
+                }
+                System.out.println("Migrated " + moved + " orders into the live/archive column families ("
+                        + uuidKeyed.size() + " renumbered from UUID IDs).");
+            }
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Error migrating orders to column families", e);
+        }
+    }
+
+    /** The ID a UUID-keyed order was given by migrateDefaultColumnFamily, or null if there is none. */
     @Override
-    public void save(Order order) {
+    public Long findMigratedId(UUID uuid) {
         try {
-            rocksDB.put(order.getOrderId().toString().getBytes(), serialize(order));
-        } catch (RocksDBException | IOException e) {
+            byte[] bytes = rocksDB.get(migratedIdKey(uuid));
+            return bytes == null ? null : ByteBuffer.wrap(bytes).getLong();
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Error loading migrated ID of order " + uuid, e);
+        }
+    }
+
+    /**
+     * Rewrites live orders stored under bare 8-byte IDs (before symbol prefixes) to the prefixed
+     * layout and indexes them in live_ids. One batch, like migrateDefaultColumnFamily.
+     */
+    public void migrateLiveKeys() {
+        int moved = 0;
+        try (WriteBatch batch = new WriteBatch();
+             ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+             RocksIterator iterator = rocksDB.newIterator(live, readOptions)) {
+            iterator.seekToFirst();
+            while (iterator.isValid()) {
+                if (iterator.key().length == Long.BYTES) {
+                    batch.delete(live, iterator.key());
+                    put(batch, OrderCodec.decode(iterator.value()));
+                    moved++;
+                }
+                iterator.next();
+            }
+            if (moved > 0) {
+                try (WriteOptions writeOptions = new WriteOptions().setSync(true)) {
+                    rocksDB.write(writeOptions, batch);
+                }
+                System.out.println("Migrated " + moved + " live orders to symbol-prefixed keys.");
+            }
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Error migrating live orders to symbol-prefixed keys", e);
+        }
+    }
+
+    @Override
+    public void save(Order order) {
+        try (WriteBatch batch = new WriteBatch();
+             WriteOptions writeOptions = new WriteOptions().setSync(syncWrites)) {
+            put(batch, order);
+            rocksDB.write(writeOptions, batch);
+        } catch (RocksDBException e) {
             throw new RuntimeException("Error saving order to RocksDB", e);
         }
     }
 
     @Override
-    public void delete(String orderId) {
-        try {
-            rocksDB.delete(orderId.getBytes());
+    public void delete(long orderId) {
+        try (WriteBatch batch = new WriteBatch();
+             WriteOptions writeOptions = new WriteOptions()) {
+            byte[] prefix = rocksDB.get(liveIds, OrderKeys.idKey(orderId));
+            if (prefix != null) {
+                batch.delete(live, OrderKeys.liveKey(ByteBuffer.wrap(prefix).getLong(), orderId));
+                batch.delete(liveIds, OrderKeys.idKey(orderId));
+            }
+            batch.delete(archive, OrderKeys.idKey(orderId));
+            rocksDB.write(writeOptions, batch);
         } catch (RocksDBException e) {
             throw new RuntimeException("Error deleting order from RocksDB", e);
         }
     }
 
     @Override
-    public Order findById(String orderId) {
+    public Order findById(long orderId) {
         try {
-            byte[] bytes = rocksDB.get(orderId.getBytes());
+            byte[] bytes = null;
+            byte[] prefix = rocksDB.get(liveIds, OrderKeys.idKey(orderId));
+            if (prefix != null) {
+                bytes = rocksDB.get(live, OrderKeys.liveKey(ByteBuffer.wrap(prefix).getLong(), orderId));
+            }
+            if (bytes == null) {
+                bytes = rocksDB.get(archive, OrderKeys.idKey(orderId));
+            }
             if (bytes == null) return null;
-            return deserialize(bytes);
-        } catch (RocksDBException | IOException e) {
+            return OrderCodec.decode(bytes);
+        } catch (RocksDBException e) {
             throw new RuntimeException("Error finding order in RocksDB", e);
         }
     }
 
+    @Override
+    public List<Order> findActive() {
+        List<Order> orders = new ArrayList<>();
+        scan(live, orders);
+        return orders;
+    }
+
+    @Override
+    public void forEachActive(Consumer<Order> consumer) {
+        // One pass over the whole family: read ahead, and keep it from evicting the hot blocks from the cache
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true)
+                .setFillCache(false).setReadaheadSize(SCAN_READAHEAD_BYTES)) {
+            scan(live, readOptions, consumer);
+        }
+    }
+
+    @Override
+    public void forEachActive(String symbol, Consumer<Order> consumer) {
+        byte[] prefix = OrderKeys.prefixKey(OrderKeys.symbolPrefix(symbol));
+        // Seeks straight to the symbol; the prefix bloom filters skip files without it
+        try (ReadOptions readOptions = new ReadOptions().setPrefixSameAsStart(true);
+             RocksIterator iterator = rocksDB.newIterator(live, readOptions)) {
+            iterator.seek(prefix);
+            while (iterator.isValid() && OrderKeys.hasPrefix(iterator.key(), prefix)) {
+                Order order = OrderCodec.decode(iterator.value());
+                // Another symbol with the same hash
+                if (order.getSymbol().equals(symbol)) {
+                    consumer.accept(order);
+                }
+                iterator.next();
+            }
+        }
+    }
+
     @Override
     public List<Order> findAll() {
         List<Order> orders = new ArrayList<>();
-        try (RocksIterator iterator = rocksDB.newIterator()) {
+        scan(live, orders);
+        scan(archive, orders);
+        return orders;
+    }
+
+    @Override
+    public long loadJournalPosition(int shard) {
+        try {
+            byte[] bytes = rocksDB.get(journalPositionKey(shard));
+            return bytes == null ? 0 : ByteBuffer.wrap(bytes).getLong();
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Error loading journal position of shard " + shard, e);
+        }
+    }
+
+    @Override
+    public OrderWriteBatch newWriteBatch() {
+        return new RocksOrderWriteBatch();
+    }
+
+    private void scan(ColumnFamilyHandle columnFamily, List<Order> into) {
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true)) {
+            scan(columnFamily, readOptions, into::add);
+        }
+    }
+
+    private void scan(ColumnFamilyHandle columnFamily, ReadOptions readOptions, Consumer<Order> consumer) {
+        try (RocksIterator iterator = rocksDB.newIterator(columnFamily, readOptions)) {
             iterator.seekToFirst();
             while (iterator.isValid()) {
-                orders.add(deserialize(iterator.value()));
+                consumer.accept(OrderCodec.decode(iterator.value()));
                 iterator.next();
             }
-        } catch (IOException e) {
-             throw new RuntimeException("Error reading orders from RocksDB", e);
         }
-        return orders;
     }
 
-    private byte[] serialize(Order order) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             DataOutputStream dos = new DataOutputStream(baos)) {
-            
-            dos.writeUTF(order.getOrderId().toString());
-            dos.writeUTF(order.getSymbol());
-            dos.writeUTF(order.getSide().name());
-            dos.writeUTF(order.getType().name());
-            
-            // Price can be null for Market orders
-            if (order.getPrice() != null) {
-                dos.writeBoolean(true);
-                dos.writeUTF(order.getPrice().toString());
-            } else {
-                dos.writeBoolean(false);
+    // Writes the order to the family for its status and removes it from the other one
+    private void put(WriteBatch batch, Order order) throws RocksDBException {
+        long prefix = OrderKeys.symbolPrefix(order.getSymbol());
+        byte[] idKey = OrderKeys.idKey(order.getOrderId());
+        if (isTerminal(order.getStatus())) {
+            batch.delete(live, OrderKeys.liveKey(prefix, order.getOrderId()));
+            batch.delete(liveIds, idKey);
+            putEncoded(batch, archive, idKey, order);
+        } else {
+            putEncoded(batch, live, OrderKeys.liveKey(prefix, order.getOrderId()), order);
+            batch.put(liveIds, idKey, OrderKeys.prefixKey(prefix));
+        }
+    }
+
+    // Encodes into this thread's direct buffers, which the batch copies from without a Java array in between
+    private static void putEncoded(WriteBatch batch, ColumnFamilyHandle family, byte[] key, Order order) throws RocksDBException {
+        int size = OrderCodec.encodedSize(order);
+        ByteBuffer value = VALUE_BUFFER.get();
+        if (value.capacity() < size) {
+            value = ByteBuffer.allocateDirect(size);
+            VALUE_BUFFER.set(value);
+        }
+        value.clear();
+        OrderCodec.encode(order, value);
+        value.flip();
+
+        ByteBuffer keyBuffer = KEY_BUFFER.get();
+        keyBuffer.clear();
+        keyBuffer.put(key).flip();
+        batch.put(family, keyBuffer, value);
+    }
+
+    private static boolean isTerminal(OrderStatus status) {
+        return status == OrderStatus.FILLED || status == OrderStatus.CANCELED || status == OrderStatus.REJECTED;
+    }
+
+    // In the default family, next to the sequence high-water marks; never 8 bytes, so never mistaken for an order
+    private static byte[] journalPositionKey(int shard) {
+        return (JOURNAL_POSITION_PREFIX + shard).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] migratedIdKey(UUID uuid) {
+        return (MIGRATED_ID_PREFIX + uuid).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Everything the default family holds besides orders awaiting migration
+    private static boolean isMetadataKey(byte[] key) {
+        String name = new String(key, StandardCharsets.UTF_8);
+        return name.startsWith(RocksDBSequenceStore.KEY_PREFIX) || name.startsWith(JOURNAL_POSITION_PREFIX)
+                || name.startsWith(MIGRATED_ID_PREFIX);
+    }
+
+    private final class RocksOrderWriteBatch implements OrderWriteBatch {
+
+        private final WriteBatch batch = new WriteBatch();
+        private int orders;
+
+        @Override
+        public void save(Order order) {
+            try {
+                put(batch, order);
+                orders++;
+            } catch (RocksDBException e) {
+                throw new RuntimeException("Error adding order to RocksDB write batch", e);
+            }
+        }
+
+        @Override
+        public void setJournalPosition(int shard, long sequence) {
+            try {
+                batch.put(journalPositionKey(shard), ByteBuffer.allocate(Long.BYTES).putLong(sequence).array());
+            } catch (RocksDBException e) {
+                throw new RuntimeException("Error adding journal position to RocksDB write batch", e);
+            }
+        }
+
+        @Override
+        public int size() {
+            return orders;
+        }
+
+        @Override
+        public void commit() {
+            // count() includes journal positions, which are worth committing on their own
+            if (batch.count() == 0) {
+                return;
             }
-            
-            dos.writeLong(order.getQuantity());
-            dos.writeLong(order.getFilledQuantity());
-            dos.writeUTF(order.getStatus().name());
-            dos.writeLong(order.getTimestamp().toEpochMilli());
-            
-            return baos.toByteArray();
-        }
-    }
-
-    private Order deserialize(byte[] bytes) throws IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             DataInputStream dis = new DataInputStream(bais)) {
-            
-            UUID orderId = UUID.fromString(dis.readUTF());
-            String symbol = dis.readUTF();
-            OrderSide side = OrderSide.valueOf(dis.readUTF());
-            OrderType type = OrderType.valueOf(dis.readUTF());
-            
-            BigDecimal price = null;
-            if (dis.readBoolean()) {
-                price = new BigDecimal(dis.readUTF());
+            try (WriteOptions writeOptions = new WriteOptions().setSync(syncWrites)) {
+                rocksDB.write(writeOptions, batch);
+            } catch (RocksDBException e) {
+                // Kept for the next commit; later saves of the same order overwrite these in write order
+                throw new RuntimeException("Error committing order batch to RocksDB", e);
             }
-            
-            long quantity = dis.readLong();
-            long filledQuantity = dis.readLong();
-            OrderStatus status = OrderStatus.valueOf(dis.readUTF());
-            Instant timestamp = Instant.ofEpochMilli(dis.readLong());
-            
-            return Order.builder()
-                    .orderId(orderId)
-                    .symbol(symbol)
-                    .side(side)
-                    .type(type)
-                    .price(price)
-                    .quantity(quantity)
-                    .filledQuantity(filledQuantity)
-                    .status(status)
-                    .timestamp(timestamp)
-                    .build();
+            batch.clear();
+            orders = 0;
+        }
+
+        @Override
+        public void close() {
+            batch.close();
         }
     }
 }
@@ -0,0 +1,13 @@
+package com.example.dome.persistence;
+
+/**
+ * Durable high-water marks for engine-assigned ID sequences.
+ */
+public interface SequenceStore {
+
+    /** @return the last stored value for this sequence, or 0 if it was never stored. */
+    long load(String name);
+
+    /** Stores the value durably before returning. */
+    void store(String name, long value);
+}
@@ -1,10 +1,16 @@
 package com.example.dome.persistence;
 
+import com.example.dome.engine.EngineClock;
 import com.example.dome.model.Trade;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
 
 @Repository
 public class TradeRepository {
@@ -19,12 +25,17 @@ public class TradeRepository {
     private void initTable() {
         // Basic table creation.
         // In a real production setup, use Flyway or Liquibase.
+        try {
+            migrateUuidTable();
+        } catch (Exception e) {
+            System.err.println("Warning: Could not migrate the UUID-keyed trades table: " + e.getMessage());
+        }
         String sql = """
             CREATE TABLE IF NOT EXISTS trades (
-                trade_id VARCHAR(36) PRIMARY KEY,
+                trade_id BIGINT PRIMARY KEY,
                 symbol VARCHAR(20) NOT NULL,
-                buy_order_id VARCHAR(36) NOT NULL,
-                sell_order_id VARCHAR(36) NOT NULL,
+                buy_order_id BIGINT NOT NULL,
+                sell_order_id BIGINT NOT NULL,
                 price DECIMAL(20, 8) NOT NULL,
                 quantity BIGINT NOT NULL,
                 timestamp TIMESTAMP NOT NULL
@@ -41,6 +52,27 @@ public class TradeRepository {
         }
     }
 
+    /**
+     * A trades table from when trade and order IDs were UUIDs has VARCHAR(36) ID columns, which
+     * CREATE TABLE IF NOT EXISTS would leave in place and findAll could not read. Its rows are kept,
+     * unchanged, in trades_legacy (their IDs have no numeric form); trades from now on go to a new
+     * table with BIGINT IDs.
+     */
+    private void migrateUuidTable() {
+        Integer idType;
+        try {
+            idType = jdbcTemplate.query("SELECT trade_id FROM trades WHERE 1 = 0",
+                    (ResultSetExtractor<Integer>) rs -> rs.getMetaData().getColumnType(1));
+        } catch (DataAccessException e) {
+            // No trades table yet
+            return;
+        }
+        if (idType != null && (idType == Types.VARCHAR || idType == Types.CHAR || idType == Types.NVARCHAR)) {
+            jdbcTemplate.execute("ALTER TABLE trades RENAME TO trades_legacy");
+            System.out.println("Moved the UUID-keyed trades table to trades_legacy; new trades are written to a new trades table.");
+        }
+    }
+
     public void save(Trade trade) {
         String sql = """
             INSERT INTO trades (trade_id, symbol, buy_order_id, sell_order_id, price, quantity, timestamp)
@@ -48,26 +80,48 @@ public class TradeRepository {
             """;
         
         jdbcTemplate.update(sql,
-                trade.getTradeId().toString(),
+                trade.getTradeId(),
                 trade.getSymbol(),
-                trade.getBuyOrderId().toString(),
-                trade.getSellOrderId().toString(),
+                trade.getBuyOrderId(),
+                trade.getSellOrderId(),
                 trade.getPrice(),
                 trade.getQuantity(),
-                Timestamp.from(trade.getTimestamp())
+                Timestamp.from(EngineClock.toInstant(trade.getTimestamp()))
         );
     }
     
+    /**
+     * Inserts the trades with one JDBC batch in one transaction: either all of them are written or
+     * none are, so a failed batch can be retried (or spilled) as a whole without duplicates.
+     */
+    @Transactional
+    public void saveAll(List<Trade> trades) {
+        String sql = """
+            INSERT INTO trades (trade_id, symbol, buy_order_id, sell_order_id, price, quantity, timestamp)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+        jdbcTemplate.batchUpdate(sql, trades, trades.size(), (ps, trade) -> {
+            ps.setLong(1, trade.getTradeId());
+            ps.setString(2, trade.getSymbol());
+            ps.setLong(3, trade.getBuyOrderId());
+            ps.setLong(4, trade.getSellOrderId());
+            ps.setBigDecimal(5, trade.getPrice());
+            ps.setLong(6, trade.getQuantity());
+            ps.setTimestamp(7, Timestamp.from(EngineClock.toInstant(trade.getTimestamp())));
+        });
+    }
+
     public java.util.List<Trade> findAll() {
         String sql = "SELECT * FROM trades ORDER BY timestamp DESC LIMIT 50";
         return jdbcTemplate.query(sql, (rs, rowNum) -> Trade.builder()
-                .tradeId(java.util.UUID.fromString(rs.getString("trade_id")))
+                .tradeId(rs.getLong("trade_id"))
                 .symbol(rs.getString("symbol"))
-                .buyOrderId(java.util.UUID.fromString(rs.getString("buy_order_id")))
-                .sellOrderId(java.util.UUID.fromString(rs.getString("sell_order_id")))
+                .buyOrderId(rs.getLong("buy_order_id"))
+                .sellOrderId(rs.getLong("sell_order_id"))
                 .price(rs.getBigDecimal("price"))
                 .quantity(rs.getLong("quantity"))
-                .timestamp(rs.getTimestamp("timestamp").toInstant())
+                .timestamp(EngineClock.epochNanos(rs.getTimestamp("timestamp").toInstant()))
                 .build());
     }
 }
@@ -0,0 +1,371 @@
+package com.example.dome.persistence;
+
+import com.example.dome.model.Trade;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes trades to the SQL trade history off the pipeline threads.
+ *
+ * write() only enqueues into a bounded queue. A single writer thread drains it into
+ * TradeRepository.saveAll batches of up to batchSize trades, waiting at most linger for a batch to
+ * fill. A failed batch is retried maxRetries times with doubling backoff. If it still fails, the
+ * trades are appended to a local spill file instead, so a stalled database never blocks the caller.
+ * A trade that arrives while the queue is full is set aside in memory and spilled by the writer
+ * thread too: the caller never does file I/O. The spill file is written back to the database after
+ * the next successful batch and on startup. A spilled line that can never be written (unparseable,
+ * or rejected by a constraint such as the trade_id key) is moved to a rejected-lines file instead of
+ * holding up the rest.
+ *
+ * Spill lines are tradeId,symbol,buyOrderId,sellOrderId,price,quantity,timestamp, with '%', ',',
+ * CR and LF in the symbol written as %25, %2C, %0D and %0A.
+ */
+@Component
+public class TradeWriter {
+
+    static final String SPILL_FILE = "trades.spill";
+    // The spill file is moved here while being written back, so new spills go to a fresh file
+    static final String REPLAY_FILE = "trades.spill.replay";
+    // Spilled lines the database will never accept, kept for an operator
+    static final String REJECTED_FILE = "trades.spill.rejected";
+
+    private final TradeRepository tradeRepository;
+    private final BlockingQueue<Trade> queue;
+    // Trades that did not fit the queue, waiting for the writer thread to spill them
+    private final Queue<Trade> overflow = new ConcurrentLinkedQueue<>();
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final Path spillDir;
+
+    // Writer thread only, apart from start()
+    private boolean spilled;
+    private volatile boolean running;
+    private Thread thread;
+
+    public TradeWriter(TradeRepository tradeRepository,
+                       @Value("${trades.writer.queue-capacity:65536}") int queueCapacity,
+                       @Value("${trades.writer.batch-size:500}") int batchSize,
+                       @Value("${trades.writer.linger-ms:10}") long lingerMillis,
+                       @Value("${trades.writer.max-retries:3}") int maxRetries,
+                       @Value("${trades.writer.retry-backoff-ms:100}") long retryBackoffMillis,
+                       @Value("${trades.writer.spill-dir:data/trade-spill}") String spillDir) {
+        this.tradeRepository = tradeRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.spillDir = Path.of(spillDir);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(spillDir);
+        // Left over from a previous run: written back by the writer thread before anything else
+        spilled = Files.exists(spillDir.resolve(SPILL_FILE)) || Files.exists(spillDir.resolve(REPLAY_FILE));
+        running = true;
+        thread = new Thread(this::run, "trade-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Never blocks or touches disk: a trade that does not fit the queue is left for the writer thread to spill. */
+    public void write(Trade trade) {
+        if (!queue.offer(trade)) {
+            overflow.offer(trade);
+        }
+    }
+
+    /** Stops the writer thread once it has written (or spilled) everything queued. */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private void run() {
+        List<Trade> batch = new ArrayList<>(batchSize);
+        if (spilled) {
+            replaySpill();
+        }
+        try {
+            while (running || !queue.isEmpty() || !overflow.isEmpty()) {
+                spillOverflow();
+                if (fill(batch)) {
+                    flush(batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.drainTo(batch);
+            spill(batch);
+            spillOverflow();
+        }
+    }
+
+    // The queue was full, so the database is behind: these skip it and wait in the spill file
+    private void spillOverflow() {
+        if (overflow.isEmpty()) {
+            return;
+        }
+        List<Trade> trades = new ArrayList<>();
+        for (Trade trade; (trade = overflow.poll()) != null; ) {
+            trades.add(trade);
+        }
+        System.err.println(trades.size() + " trades did not fit the write queue; spilling to " + spillDir.resolve(SPILL_FILE));
+        spill(trades);
+    }
+
+    // Waits for a first trade, then up to linger for the batch to fill
+    private boolean fill(List<Trade> batch) throws InterruptedException {
+        Trade first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            Trade next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+        return true;
+    }
+
+    private void flush(List<Trade> batch) throws InterruptedException {
+        if (save(batch)) {
+            if (spilled) {
+                // The database is answering again
+                replaySpill();
+            }
+        } else {
+            System.err.println("Trade batch of " + batch.size() + " failed " + (maxRetries + 1)
+                    + " times; spilling to " + spillDir.resolve(SPILL_FILE));
+            spill(batch);
+        }
+    }
+
+    private boolean save(List<Trade> batch) throws InterruptedException {
+        long backoff = retryBackoffMillis;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                tradeRepository.saveAll(batch);
+                return true;
+            } catch (RuntimeException e) {
+                // Shutting down: spill rather than hold up the stop
+                if (attempt >= maxRetries || !running) {
+                    System.err.println("Failed to write trades: " + e.getMessage());
+                    return false;
+                }
+                Thread.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private void spill(List<Trade> trades) {
+        try (BufferedWriter out = Files.newBufferedWriter(spillDir.resolve(SPILL_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Trade trade : trades) {
+                out.write(toLine(trade));
+                out.newLine();
+            }
+            spilled = true;
+        } catch (IOException e) {
+            // Nowhere left to put them; the order store and journal still hold the fills
+            System.err.println("Failed to spill " + trades.size() + " trades: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes spilled trades back in batches. A batch that fails is retried line by line: lines the
+     * database rejects for good go to the rejected file, and any other failure stops the write-back
+     * with the lines not yet handled kept for the next attempt. Every write is its own transaction,
+     * so nothing is written twice.
+     */
+    private void replaySpill() {
+        Path replay = spillDir.resolve(REPLAY_FILE);
+        List<String> lines;
+        try {
+            Path spill = spillDir.resolve(SPILL_FILE);
+            if (Files.exists(spill)) {
+                if (Files.exists(replay)) {
+                    // A previous write-back stopped part way: keep its remainder first
+                    List<String> merged = new ArrayList<>(Files.readAllLines(replay, StandardCharsets.UTF_8));
+                    merged.addAll(Files.readAllLines(spill, StandardCharsets.UTF_8));
+                    Files.write(replay, merged, StandardCharsets.UTF_8);
+                    Files.delete(spill);
+                } else {
+                    Files.move(spill, replay, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            spilled = false;
+            if (!Files.exists(replay)) {
+                return;
+            }
+            lines = Files.readAllLines(replay, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Error reading spilled trades in " + spillDir + ": " + e.getMessage());
+            spilled = true;
+            return;
+        }
+
+        // Lines written or rejected, from the start of the file
+        int handled = 0;
+        int rejected = 0;
+        try {
+            while (handled < lines.size()) {
+                List<String> chunk = lines.subList(handled, Math.min(lines.size(), handled + batchSize));
+                if (saveLines(chunk)) {
+                    handled += chunk.size();
+                    continue;
+                }
+                for (String line : chunk) {
+                    if (!saveLine(line)) {
+                        rejected++;
+                    }
+                    handled++;
+                }
+            }
+            Files.delete(replay);
+            System.out.println("Wrote back " + (handled - rejected) + " spilled trades"
+                    + (rejected > 0 ? "; " + rejected + " rejected, see " + spillDir.resolve(REJECTED_FILE) : "") + ".");
+        } catch (RuntimeException | IOException e) {
+            System.err.println("Writing back spilled trades stopped after " + handled + ": " + e.getMessage());
+            try {
+                Files.write(replay, lines.subList(handled, lines.size()), StandardCharsets.UTF_8,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException rewrite) {
+                // The old file is still there: the next attempt may write some trades twice and reject them
+                System.err.println("Error keeping spilled trades in " + replay + ": " + rewrite.getMessage());
+            }
+            spilled = true;
+        }
+    }
+
+    // One batch; false if any line is unreadable or the write fails
+    private boolean saveLines(List<String> lines) {
+        try {
+            tradeRepository.saveAll(lines.stream().map(TradeWriter::fromLine).toList());
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes one line on its own. Returns false if it was moved to the rejected file; throws if the
+     * write failed for any other reason (the database is still unavailable).
+     */
+    private boolean saveLine(String line) throws IOException {
+        Trade trade;
+        try {
+            trade = fromLine(line);
+        } catch (RuntimeException e) {
+            reject(line, "unreadable: " + e.getMessage());
+            return false;
+        }
+        try {
+            tradeRepository.saveAll(List.of(trade));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            reject(line, e.getMessage());
+            return false;
+        }
+    }
+
+    private void reject(String line, String reason) throws IOException {
+        System.err.println("Spilled trade rejected (" + reason + "): " + line);
+        try (BufferedWriter out = Files.newBufferedWriter(spillDir.resolve(REJECTED_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(line);
+            out.newLine();
+        }
+    }
+
+    static String toLine(Trade trade) {
+        return trade.getTradeId() + "," + escape(trade.getSymbol()) + "," + trade.getBuyOrderId() + "," + trade.getSellOrderId()
+                + "," + trade.getPrice().toPlainString() + "," + trade.getQuantity() + "," + trade.getTimestamp();
+    }
+
+    static Trade fromLine(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 7) {
+            throw new IllegalArgumentException("expected 7 fields, found " + fields.length);
+        }
+        return Trade.builder()
+                .tradeId(Long.parseLong(fields[0]))
+                .symbol(unescape(fields[1]))
+                .buyOrderId(Long.parseLong(fields[2]))
+                .sellOrderId(Long.parseLong(fields[3]))
+                .price(new BigDecimal(fields[4]))
+                .quantity(Long.parseLong(fields[5]))
+                .timestamp(Long.parseLong(fields[6]))
+                .build();
+    }
+
+    private static String escape(String field) {
+        StringBuilder escaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '%' -> escaped.append("%25");
+                case ',' -> escaped.append("%2C");
+                case '\r' -> escaped.append("%0D");
+                case '\n' -> escaped.append("%0A");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('%') < 0) {
+            return field;
+        }
+        StringBuilder unescaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '%') {
+                unescaped.append(c);
+                continue;
+            }
+            if (i + 2 >= field.length()) {
+                throw new IllegalArgumentException("truncated escape in " + field);
+            }
+            unescaped.append((char) Integer.parseInt(field.substring(i + 1, i + 3), 16));
+            i += 2;
+        }
+        return unescaped.toString();
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.dome.analytics;
 
+import com.example.dome.analytics.archive.TradeArchive;
+import com.example.dome.analytics.archive.TradeColumns;
+import com.example.dome.engine.EngineClock;
 import com.example.dome.model.Trade;
 import com.example.dome.persistence.TradeRepository;
 import org.junit.jupiter.api.Test;
@@ -12,12 +15,13 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Arrays;
-import java.util.UUID;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = AnalyticsController.class,
@@ -33,16 +37,19 @@ public class AnalyticsControllerTest {
     @MockBean
     private TradeRepository tradeRepository;
 
+    @MockBean
+    private TradeArchive tradeArchive;
+
     @Test
     public void testExportCsv() throws Exception {
         Trade t1 = Trade.builder()
-            .tradeId(UUID.randomUUID())
+            .tradeId(1L)
             .symbol("AAPL")
             .price(new BigDecimal("150.00"))
             .quantity(10)
-            .buyOrderId(UUID.randomUUID())
-            .sellOrderId(UUID.randomUUID())
-            .timestamp(Instant.now())
+            .buyOrderId(1L)
+            .sellOrderId(2L)
+            .timestamp(EngineClock.epochNanos(Instant.now()))
             .build();
 
         when(tradeRepository.findAll()).thenReturn(Arrays.asList(t1));
@@ -51,4 +58,21 @@ public class AnalyticsControllerTest {
             .andExpect(status().isOk())
             .andExpect(content().contentType("text/csv"));
     }
+
+    @Test
+    public void testTradeSummaryFromArchive() throws Exception {
+        when(tradeArchive.isEnabled()).thenReturn(true);
+        when(tradeArchive.columns("AAPL", LocalDate.of(2024, 3, 1))).thenReturn(TradeColumns.EMPTY);
+
+        mockMvc.perform(get("/api/analytics/trades/AAPL/summary").param("date", "2024-03-01"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.symbol").value("AAPL"))
+            .andExpect(jsonPath("$.trades").value(0));
+    }
+
+    @Test
+    public void testTradeSummaryWithArchiveDisabled() throws Exception {
+        mockMvc.perform(get("/api/analytics/trades/AAPL/summary"))
+            .andExpect(status().isServiceUnavailable());
+    }
 }
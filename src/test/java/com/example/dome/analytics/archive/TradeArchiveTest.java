@@ -0,0 +1,128 @@
+package com.example.dome.analytics.archive;
+
+import com.example.dome.analytics.TradeAnalytics;
+import com.example.dome.engine.EngineClock;
+import com.example.dome.model.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeArchiveTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+    private static final Instant MIDNIGHT = Instant.parse("2024-03-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private long nextTradeId = 1;
+
+    @Test
+    void testPartitionsBySymbolAndDay() throws Exception {
+        TradeArchive archive = open();
+        archive.append(trade("AAPL", "150.00", 10, MIDNIGHT.plusSeconds(1)));
+        archive.append(trade("MSFT", "300.00", 5, MIDNIGHT.plusSeconds(2)));
+        archive.append(trade("AAPL", "151.50", 20, MIDNIGHT.plusSeconds(3)));
+        archive.append(trade("AAPL", "149.00", 30, MIDNIGHT.plusSeconds(86_400)));
+        archive.close();
+
+        TradeColumns aapl = archive.columns("AAPL", DAY);
+        assertEquals(2, aapl.rows());
+        assertEquals(new BigDecimal("150.00"), aapl.price(0));
+        assertEquals(15150, aapl.unscaledPrice(1));
+        assertEquals(20, aapl.quantity(1));
+        assertEquals(EngineClock.epochNanos(MIDNIGHT.plusSeconds(3)), aapl.timestamp(1));
+        assertEquals(aapl.symbolId(0), aapl.symbolId(1));
+
+        assertEquals(1, archive.columns("MSFT", DAY).rows());
+        assertEquals(1, archive.columns("AAPL", DAY.plusDays(1)).rows());
+        assertEquals(0, archive.columns("GOOG", DAY).rows());
+    }
+
+    @Test
+    void testReopenKeepsSymbolsAndCutsTornBatch() throws Exception {
+        TradeArchive archive = open();
+        archive.append(trade("AAPL", "150.00", 10, MIDNIGHT.plusSeconds(1)));
+        archive.close();
+
+        // A crash part way through a batch: one column got a row the others did not
+        Path partition = dir.resolve(DAY.toString()).resolve("0");
+        Files.write(partition.resolve(TradeColumns.Column.PRICE.fileName()), new byte[Long.BYTES], StandardOpenOption.APPEND);
+        assertEquals(1, archive.columns("AAPL", DAY).rows());
+
+        TradeArchive reopened = open();
+        reopened.append(trade("AAPL", "151.00", 20, MIDNIGHT.plusSeconds(2)));
+        reopened.close();
+
+        TradeColumns aapl = reopened.columns("AAPL", DAY);
+        assertEquals(2, aapl.rows());
+        assertEquals(new BigDecimal("151.00"), aapl.price(1));
+        assertEquals(20, aapl.quantity(1));
+    }
+
+    @Test
+    void testSummaryAndBars() throws Exception {
+        TradeArchive archive = open();
+        archive.append(trade("AAPL", "100.00", 10, MIDNIGHT.plusSeconds(5)));
+        archive.append(trade("AAPL", "102.00", 30, MIDNIGHT.plusSeconds(30)));
+        archive.append(trade("AAPL", "99.00", 10, MIDNIGHT.plusSeconds(65)));
+        archive.close();
+
+        TradeColumns aapl = archive.columns("AAPL", DAY);
+        TradeAnalytics.Summary summary = TradeAnalytics.summarize("AAPL", DAY, aapl);
+        assertEquals(3, summary.trades());
+        assertEquals(50, summary.volume());
+        assertEquals(new BigDecimal("5050.00"), summary.notional());
+        assertEquals(0, new BigDecimal("101").compareTo(summary.vwap()));
+        assertEquals(new BigDecimal("100.00"), summary.open());
+        assertEquals(new BigDecimal("102.00"), summary.high());
+        assertEquals(new BigDecimal("99.00"), summary.low());
+        assertEquals(new BigDecimal("99.00"), summary.close());
+
+        List<TradeAnalytics.Bar> bars = TradeAnalytics.bars(aapl, Duration.ofMinutes(1));
+        assertEquals(2, bars.size());
+        assertEquals(MIDNIGHT, bars.get(0).start());
+        assertEquals(40, bars.get(0).volume());
+        assertEquals(new BigDecimal("102.00"), bars.get(0).close());
+        assertEquals(MIDNIGHT.plusSeconds(60), bars.get(1).start());
+        assertEquals(1, bars.get(1).trades());
+    }
+
+    @Test
+    void testFullQueueDropsAndCountsTrades() throws Exception {
+        // Not started, so nothing drains the queue
+        TradeArchive archive = new TradeArchive(true, dir.toString(), 2, 16);
+        for (int i = 0; i < 5; i++) {
+            archive.append(trade("AAPL", "150.00", 10, MIDNIGHT.plusSeconds(i)));
+        }
+        assertEquals(3, archive.getDroppedTrades());
+    }
+
+    private TradeArchive open() throws Exception {
+        TradeArchive archive = new TradeArchive(true, dir.toString(), 1024, 16);
+        archive.start();
+        return archive;
+    }
+
+    private Trade trade(String symbol, String price, long quantity, Instant time) {
+        return Trade.builder()
+                .tradeId(nextTradeId++)
+                .symbol(symbol)
+                .buyOrderId(1)
+                .sellOrderId(2)
+                .price(new BigDecimal(price))
+                .quantity(quantity)
+                .timestamp(EngineClock.epochNanos(time))
+                .build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.dome.benchmark;
 
+import com.example.dome.engine.EngineClock;
 import com.example.dome.engine.OrderBook;
+import com.example.dome.engine.TreeMapOrderBook;
 import com.example.dome.model.Order;
 import com.example.dome.model.OrderSide;
 import com.example.dome.model.OrderStatus;
@@ -21,22 +23,25 @@ import java.util.concurrent.TimeUnit;
 @Measurement(iterations = 5, time = 1)
 public class OrderBookBenchmark {
 
+    private long nextOrderId = 1;
+
     private OrderBook orderBook;
     private Order buyOrder;
 
     @Setup
     public void setup() {
-        orderBook = new OrderBook("AAPL");
+        orderBook = new TreeMapOrderBook("AAPL");
         buyOrder = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
                 .price(new BigDecimal("150.00"))
+                .priceTicks(15000)
                 .quantity(100)
                 .filledQuantity(0)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
     }
 
@@ -0,0 +1,62 @@
+package com.example.dome.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class MarketDataCacheTest {
+
+    private ValueOperations<String, String> valueOperations;
+    private MarketDataCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = Mockito.mock(StringRedisTemplate.class);
+        valueOperations = Mockito.mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        cache = new MarketDataCache(redisTemplate);
+    }
+
+    @Test
+    void testReadsAreServedLocallyAndWritesAreCoalesced() {
+        cache.updateBestBid("AAPL", new BigDecimal("99.00"));
+        cache.updateBestBid("AAPL", new BigDecimal("99.50"));
+        cache.updateBestAsk("AAPL", new BigDecimal("101.00"));
+
+        assertEquals("99.50", cache.getBestBid("AAPL"));
+        assertEquals("101.00", cache.getBestAsk("AAPL"));
+        assertNull(cache.getBestBid("MSFT"));
+        verifyNoInteractions(valueOperations);
+
+        cache.flush();
+        verify(valueOperations).multiSet(Map.of("market:AAPL:bestBid", "99.50", "market:AAPL:bestAsk", "101.00"));
+
+        // Nothing changed since: no write
+        cache.flush();
+        verify(valueOperations, times(1)).multiSet(anyMap());
+    }
+
+    @Test
+    void testRedisFailureKeepsSymbolsForTheNextFlush() {
+        doThrow(new RuntimeException("connection refused")).doNothing().when(valueOperations).multiSet(anyMap());
+
+        cache.updateBestBid("AAPL", new BigDecimal("99.00"));
+        cache.flush();
+        // Updates keep working locally during the outage
+        cache.updateBestBid("AAPL", new BigDecimal("98.00"));
+        assertEquals("98.00", cache.getBestBid("AAPL"));
+
+        cache.flush();
+        verify(valueOperations).multiSet(Map.of("market:AAPL:bestBid", "98.00"));
+    }
+}
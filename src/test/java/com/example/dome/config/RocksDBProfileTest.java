@@ -0,0 +1,43 @@
+package com.example.dome.config;
+
+import org.junit.jupiter.api.Test;
+import org.rocksdb.CompressionType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RocksDBProfileTest {
+
+    @Test
+    void testFromPropertyAcceptsPropertyAndEnumNames() {
+        assertEquals(RocksDBProfile.LOW_LATENCY, RocksDBProfile.fromProperty("low-latency"));
+        assertEquals(RocksDBProfile.HIGH_THROUGHPUT, RocksDBProfile.fromProperty(" HIGH_THROUGHPUT "));
+        assertEquals(RocksDBProfile.BALANCED, RocksDBProfile.fromProperty("balanced"));
+        assertThrows(IllegalArgumentException.class, () -> RocksDBProfile.fromProperty("fastest"));
+    }
+
+    @Test
+    void testOverrideReplacesOnlyGivenSettings() {
+        RocksDBProfile.RocksDBTuning base = RocksDBProfile.BALANCED.tuning();
+
+        RocksDBProfile.RocksDBTuning tuned = base.override(1024L, null, null, null, 8, true,
+                List.of(CompressionType.NO_COMPRESSION));
+
+        assertEquals(1024, tuned.blockCacheMb());
+        assertEquals(base.bloomBitsPerKey(), tuned.bloomBitsPerKey());
+        assertEquals(base.writeBufferMb(), tuned.writeBufferMb());
+        assertEquals(base.maxWriteBufferNumber(), tuned.maxWriteBufferNumber());
+        assertEquals(8, tuned.maxBackgroundJobs());
+        assertTrue(tuned.optimizeForPointLookup());
+        assertEquals(List.of(CompressionType.NO_COMPRESSION), tuned.compressionPerLevel());
+    }
+
+    @Test
+    void testEmptyCompressionOverrideKeepsProfile() {
+        RocksDBProfile.RocksDBTuning base = RocksDBProfile.HIGH_THROUGHPUT.tuning();
+        RocksDBProfile.RocksDBTuning tuned = base.override(null, null, null, null, null, null, List.of());
+        assertEquals(base.compressionPerLevel(), tuned.compressionPerLevel());
+        assertEquals(base.blockCacheMb(), tuned.blockCacheMb());
+    }
+}
@@ -28,7 +28,7 @@ public class OrderControllerSecurityTest {
     private TradeRepository tradeRepository;
 
     @MockBean
-    private com.lmax.disruptor.dsl.Disruptor<com.example.dome.engine.disruptor.OrderCommand> disruptor;
+    private com.example.dome.engine.disruptor.MatchingShards matchingShards;
 
     @Test
     public void testUnauthorizedAccess() throws Exception {
@@ -3,6 +3,8 @@ package com.example.dome.controller;
 import com.example.dome.dto.OrderRequest;
 import com.example.dome.engine.MatchingEngine;
 import com.example.dome.engine.OrderBook;
+import com.example.dome.engine.PriceScale;
+import com.example.dome.engine.TreeMapOrderBook;
 import com.example.dome.model.Order;
 import com.example.dome.model.OrderSide;
 import com.example.dome.model.OrderType;
@@ -26,6 +28,7 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -50,7 +53,7 @@ public class OrderControllerTest {
     private ObjectMapper objectMapper;
 
     @MockBean
-    private com.lmax.disruptor.dsl.Disruptor<com.example.dome.engine.disruptor.OrderCommand> disruptor;
+    private com.example.dome.engine.disruptor.MatchingShards matchingShards;
 
     @Test
     public void testPlaceOrder() throws Exception {
@@ -63,32 +66,109 @@ public class OrderControllerTest {
 
         matchingEngine = org.mockito.Mockito.mock(MatchingEngine.class);
         when(engineRegistry.getEngine("AAPL")).thenReturn(matchingEngine);
+        when(matchingEngine.getPriceScale()).thenReturn(new PriceScale(2));
         
-        // Mock Disruptor behavior
+        // Mock shard (Disruptor) behavior
         org.mockito.Mockito.doAnswer(invocation -> {
             com.lmax.disruptor.EventTranslator<com.example.dome.engine.disruptor.OrderCommand> translator = 
-                invocation.getArgument(0);
+                invocation.getArgument(1);
             
             // Create dummy event and translate
             com.example.dome.engine.disruptor.OrderCommand command = new com.example.dome.engine.disruptor.OrderCommand();
             translator.translateTo(command, 0);
             
+            // The controller publishes request fields only; the matching thread owns the Order
+            org.junit.jupiter.api.Assertions.assertNull(command.getOrder());
+            org.junit.jupiter.api.Assertions.assertEquals(15000, command.getPriceTicks());
+            org.junit.jupiter.api.Assertions.assertEquals(100, command.getQuantity());
+
             // Simulate processing and complete future
             if (command.getResultFuture() != null) {
-                command.getResultFuture().complete(new ArrayList<>());
+                command.getResultFuture().complete(new com.example.dome.engine.disruptor.OrderResult(
+                        7, null, com.example.dome.model.OrderStatus.NEW, 0, new ArrayList<>()));
             }
             return null;
-        }).when(disruptor).publishEvent(any(com.lmax.disruptor.EventTranslator.class));
+        }).when(matchingShards).publish(any(String.class), any(com.lmax.disruptor.EventTranslator.class));
 
         mockMvc.perform(post("/api/orders")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath("$.orderId").value(7));
     }
     
+    @Test
+    public void testCancelOrderIsSequencedThroughDisruptor() throws Exception {
+        long orderId = 42;
+        when(engineRegistry.findSymbol(orderId)).thenReturn("AAPL");
+
+        List<com.example.dome.engine.disruptor.OrderCommand> published = new ArrayList<>();
+        org.mockito.Mockito.doAnswer(invocation -> {
+            com.lmax.disruptor.EventTranslator<com.example.dome.engine.disruptor.OrderCommand> translator =
+                invocation.getArgument(1);
+            com.example.dome.engine.disruptor.OrderCommand command = new com.example.dome.engine.disruptor.OrderCommand();
+            translator.translateTo(command, 0);
+            published.add(command);
+            command.getResultFuture().complete(new com.example.dome.engine.disruptor.OrderResult(
+                    orderId, null, com.example.dome.model.OrderStatus.CANCELED, 0, new ArrayList<>()));
+            return null;
+        }).when(matchingShards).publish(any(String.class), any(com.lmax.disruptor.EventTranslator.class));
+
+        mockMvc.perform(delete("/api/orders/" + orderId))
+                .andExpect(status().isOk());
+
+        org.junit.jupiter.api.Assertions.assertEquals(1, published.size());
+        org.junit.jupiter.api.Assertions.assertEquals(com.example.dome.engine.disruptor.CommandType.CANCEL, published.get(0).getType());
+        org.junit.jupiter.api.Assertions.assertEquals(orderId, published.get(0).getOrderId());
+        org.junit.jupiter.api.Assertions.assertEquals("AAPL", published.get(0).getSymbol());
+    }
+
+    @Test
+    public void testCancelUnknownOrderReturnsNotFound() throws Exception {
+        long orderId = 43;
+        when(engineRegistry.findSymbol(orderId)).thenReturn(null);
+
+        mockMvc.perform(delete("/api/orders/" + orderId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testCancelByPreMigrationUuidUsesTheMigratedId() throws Exception {
+        java.util.UUID uuid = java.util.UUID.randomUUID();
+        long orderId = 44;
+        when(engineRegistry.findMigratedOrderId(uuid)).thenReturn(orderId);
+        when(engineRegistry.findSymbol(orderId)).thenReturn("AAPL");
+
+        List<com.example.dome.engine.disruptor.OrderCommand> published = new ArrayList<>();
+        org.mockito.Mockito.doAnswer(invocation -> {
+            com.lmax.disruptor.EventTranslator<com.example.dome.engine.disruptor.OrderCommand> translator =
+                invocation.getArgument(1);
+            com.example.dome.engine.disruptor.OrderCommand command = new com.example.dome.engine.disruptor.OrderCommand();
+            translator.translateTo(command, 0);
+            published.add(command);
+            command.getResultFuture().complete(new com.example.dome.engine.disruptor.OrderResult(
+                    orderId, null, com.example.dome.model.OrderStatus.CANCELED, 0, new ArrayList<>()));
+            return null;
+        }).when(matchingShards).publish(any(String.class), any(com.lmax.disruptor.EventTranslator.class));
+
+        mockMvc.perform(delete("/api/orders/" + uuid))
+                .andExpect(status().isOk());
+
+        org.junit.jupiter.api.Assertions.assertEquals(orderId, published.get(0).getOrderId());
+    }
+
+    @Test
+    public void testCancelUnknownUuidReturnsNotFound() throws Exception {
+        java.util.UUID uuid = java.util.UUID.randomUUID();
+        when(engineRegistry.findMigratedOrderId(uuid)).thenReturn(null);
+
+        mockMvc.perform(delete("/api/orders/" + uuid))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void testGetOrderBook() throws Exception {
-        OrderBook mockBook = new OrderBook("AAPL");
+        OrderBook mockBook = new TreeMapOrderBook("AAPL");
         matchingEngine = org.mockito.Mockito.mock(MatchingEngine.class);
         when(engineRegistry.getEngine("AAPL")).thenReturn(matchingEngine);
         when(matchingEngine.getOrderBook()).thenReturn(mockBook);
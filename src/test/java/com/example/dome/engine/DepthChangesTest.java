@@ -0,0 +1,87 @@
+package com.example.dome.engine;
+
+import com.example.dome.event.DepthUpdate;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthChangesTest {
+
+    private static final PriceScale SCALE = new PriceScale(2);
+
+    @Test
+    void testRepeatedLevelOverwritesAndSlotsGrow() {
+        DepthChanges changes = new DepthChanges(1);
+        changes.add(OrderSide.SELL, 10000, 30);
+        changes.add(OrderSide.SELL, 10000, 20);
+        changes.add(OrderSide.SELL, 10001, 5);
+        changes.add(OrderSide.BUY, 10001, 7);
+
+        assertEquals(3, changes.size());
+        assertEquals(20, changes.quantity(0));
+        assertEquals(OrderSide.BUY, changes.side(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> changes.price(3));
+
+        changes.clear();
+        assertTrue(changes.isEmpty());
+        assertEquals(0, changes.getSequence());
+        assertNull(changes.toUpdate("AAPL", SCALE, 0));
+    }
+
+    @Test
+    void testToUpdateConvertsTicks() {
+        DepthChanges changes = new DepthChanges();
+        changes.add(OrderSide.SELL, 10000, 0);
+        changes.setSequence(42);
+
+        DepthUpdate update = changes.toUpdate("AAPL", SCALE, 123);
+
+        assertEquals("AAPL", update.symbol());
+        assertEquals(42, update.sequence());
+        assertEquals(123, update.timestamp());
+        assertEquals(List.of(new DepthUpdate.LevelChange(OrderSide.SELL, new BigDecimal("100.00"), 0)), update.changes());
+    }
+
+    @Test
+    void testDepthSequenceIsPublishedWithTheSnapshot() {
+        OrderBook book = new TreeMapOrderBook("AAPL", SCALE, true);
+        MatchingEngine engine = new MatchingEngine("AAPL", book, null, null);
+        Fills fills = new Fills();
+
+        Order sell = order(1, OrderSide.SELL, 10000, 10);
+        engine.match(sell, fills);
+        book.nextDepthSequence();
+        book.publishSnapshot();
+
+        // A partial fill only shrinks the level; numbering the change still republishes it
+        engine.match(order(2, OrderSide.BUY, 10000, 4), fills);
+        assertEquals(6, book.getLevelQuantity(OrderSide.SELL, 10000));
+        assertEquals(0, book.getLevelQuantity(OrderSide.SELL, 10001));
+        assertEquals(2, book.nextDepthSequence());
+        book.publishSnapshot();
+
+        OrderBook.DepthSnapshot snapshot = book.getDepthSnapshot();
+        assertEquals(2, snapshot.sequence());
+        assertEquals(6, snapshot.asks().get(0).quantity());
+    }
+
+    private static Order order(long orderId, OrderSide side, long priceTicks, long quantity) {
+        return Order.builder()
+                .orderId(orderId)
+                .symbol("AAPL")
+                .side(side)
+                .type(OrderType.LIMIT)
+                .price(SCALE.toPrice(priceTicks))
+                .priceTicks(priceTicks)
+                .quantity(quantity)
+                .status(OrderStatus.NEW)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.dome.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineClockTest {
+
+    @Test
+    void testNowIsMonotonicAndTracksWallClock() {
+        EngineClock clock = new EngineClock();
+        long before = EngineClock.epochNanos(Instant.now());
+
+        long previous = clock.now();
+        for (int i = 0; i < 10_000; i++) {
+            long now = clock.now();
+            assertTrue(now >= previous);
+            previous = now;
+        }
+
+        long after = EngineClock.epochNanos(Instant.now());
+        // Within a second of the wall clock either way
+        assertTrue(Math.abs(previous - after) < 1_000_000_000L);
+        assertTrue(previous > before - 1_000_000_000L);
+    }
+
+    @Test
+    void testInstantRoundTrip() {
+        Instant instant = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+
+        long nanos = EngineClock.epochNanos(instant);
+
+        assertEquals(1_700_000_000_123_456_789L, nanos);
+        assertEquals(instant, EngineClock.toInstant(nanos));
+        assertEquals(Instant.ofEpochSecond(-1, 999_999_999), EngineClock.toInstant(-1));
+    }
+}
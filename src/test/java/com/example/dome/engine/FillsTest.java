@@ -0,0 +1,93 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import com.example.dome.model.Trade;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FillsTest {
+
+    private long nextOrderId = 1;
+
+    private static final PriceScale SCALE = new PriceScale(2);
+
+    @Test
+    void testSlotsAreReusedAndGrowOnDemand() {
+        Fills fills = new Fills(2);
+        Order resting = createOrder(OrderSide.SELL, 10000, 100);
+
+        fills.add(resting, 10000, 1, 0);
+        Fill first = fills.get(0);
+        fills.add(resting, 10000, 2, 0);
+        fills.add(resting, 10001, 3, 0);
+
+        assertEquals(3, fills.size());
+        assertEquals(3, fills.get(2).getQuantity());
+
+        fills.clear();
+        assertTrue(fills.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> fills.get(0));
+
+        // Same slot object is overwritten on the next match
+        fills.add(resting, 10002, 4, 0);
+        assertSame(first, fills.get(0));
+        assertEquals(10002, fills.get(0).getPrice());
+    }
+
+    @Test
+    void testMatchWritesFillsAndConvertsToTrades() {
+        MatchingEngine engine = new MatchingEngine("AAPL", null, null);
+        Order s1 = createOrder(OrderSide.SELL, 10000, 10);
+        Order s2 = createOrder(OrderSide.SELL, 10050, 10);
+        engine.match(s1, new Fills());
+        engine.match(s2, new Fills());
+
+        Fills fills = new Fills();
+        Order buy = createOrder(OrderSide.BUY, 10050, 15);
+        engine.match(buy, fills);
+
+        assertEquals(2, fills.size());
+        assertSame(s1, fills.get(0).getResting());
+        assertEquals(10, fills.get(0).getQuantity());
+        assertSame(s2, fills.get(1).getResting());
+        assertEquals(5, fills.get(1).getQuantity());
+        // Every fill reuses the aggressive order's entry stamp
+        assertEquals(buy.getTimestamp(), fills.get(0).getTimestamp());
+        assertEquals(buy.getTimestamp(), fills.get(1).getTimestamp());
+
+        List<Trade> trades = fills.toTrades(buy, SCALE);
+        assertEquals(2, trades.size());
+        assertEquals(buy.getOrderId(), trades.get(1).getBuyOrderId());
+        assertEquals(s2.getOrderId(), trades.get(1).getSellOrderId());
+        assertEquals(new BigDecimal("100.50"), trades.get(1).getPrice());
+        assertEquals(List.of(s1, s2), fills.restingOrders());
+
+        // s1 is done and must leave the index before it can be recycled; s2 still rests
+        assertTrue(fills.get(0).isRestingCompleted());
+        assertFalse(fills.get(1).isRestingCompleted());
+        assertNull(engine.getOrderBook().getOrder(s1.getOrderId()));
+        assertSame(s2, engine.getOrderBook().getOrder(s2.getOrderId()));
+    }
+
+    private Order createOrder(OrderSide side, long priceTicks, long qty) {
+        return Order.builder()
+                .orderId(nextOrderId++)
+                .symbol("AAPL")
+                .side(side)
+                .type(OrderType.LIMIT)
+                .price(SCALE.toPrice(priceTicks))
+                .priceTicks(priceTicks)
+                .quantity(qty)
+                .status(OrderStatus.NEW)
+                .timestamp(EngineClock.epochNanos(Instant.now()))
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.dome.engine;
+
+import com.example.dome.engine.disruptor.CommandType;
+import com.example.dome.engine.disruptor.OrderCommand;
+import com.example.dome.engine.journal.CommandJournal;
+import com.example.dome.event.EventProcessor;
+import com.example.dome.event.TradeEvent;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderType;
+import com.example.dome.persistence.OrderDao;
+import com.example.dome.persistence.OrderWriteBatch;
+import com.example.dome.persistence.SequenceStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalReplayTest {
+
+    @TempDir
+    Path dir;
+
+    private List<TradeEvent> publishedTrades;
+    private List<Order> savedOrders;
+    private EngineRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        publishedTrades = new ArrayList<>();
+        savedOrders = new ArrayList<>();
+        EventProcessor eventProcessor = new EventProcessor(null, null, null, null, null) {
+            @Override
+            public void onTrade(TradeEvent event) {
+                publishedTrades.add(event);
+            }
+        };
+        registry = new EngineRegistry(eventProcessor, new StubOrderDao(), null);
+
+        // A resting sell, then a buy that fills it; the order store never committed either
+        try (CommandJournal journal = new CommandJournal(dir, 0, 1 << 20, false, () -> 0)) {
+            journal.append(newOrder(1, 1, OrderSide.SELL));
+            OrderCommand buy = newOrder(2, 2, OrderSide.BUY);
+            Order maker = new Order();
+            maker.setOrderId(1);
+            buy.getFills().add(maker, 10000, 10, 2L);
+            buy.getFills().assignTradeIds(new SequenceIdGenerator("trade", 0, new SequenceStore() {
+                @Override
+                public long load(String name) {
+                    return 0;
+                }
+
+                @Override
+                public void store(String name, long value) {
+                }
+            }));
+            journal.append(buy);
+        }
+    }
+
+    @Test
+    void testPublishesTradesTheStoreNeverCommitted() {
+        registry.replayJournal(dir, Map.of(), Map.of());
+
+        assertEquals(1, publishedTrades.size());
+        assertEquals(new BigDecimal("100.00"), publishedTrades.get(0).trade().getPrice());
+        assertEquals(2, savedOrders.size());
+    }
+
+    @Test
+    void testDoesNotRepublishTradesPublishedFromTheJournalAlone() throws IOException {
+        // The persistence stage published both records while the store was failing
+        CommandJournal.storePublishedSequence(dir, 0, 2);
+
+        registry.replayJournal(dir, Map.of(), Map.of());
+
+        assertTrue(publishedTrades.isEmpty());
+        // The books and the store are still brought up to date
+        assertEquals(2, savedOrders.size());
+        assertNull(registry.getEngine("AAPL").getOrderBook().getBestAsk());
+    }
+
+    private static OrderCommand newOrder(long sequence, long orderId, OrderSide side) {
+        OrderCommand command = new OrderCommand();
+        command.setType(CommandType.NEW);
+        command.setJournalSequence(sequence);
+        command.setOrderId(orderId);
+        command.setTimestamp(sequence);
+        command.setSymbol("AAPL");
+        command.setSide(side);
+        command.setOrderType(OrderType.LIMIT);
+        command.setPrice(new BigDecimal("100.00"));
+        command.setPriceTicks(10000);
+        command.setQuantity(10);
+        return command;
+    }
+
+    private class StubOrderDao implements OrderDao {
+
+        @Override
+        public void save(Order order) {
+        }
+
+        @Override
+        public void delete(long orderId) {
+        }
+
+        @Override
+        public Order findById(long orderId) {
+            return null;
+        }
+
+        @Override
+        public List<Order> findAll() {
+            return List.of();
+        }
+
+        @Override
+        public List<Order> findActive() {
+            return List.of();
+        }
+
+        @Override
+        public long loadJournalPosition(int shard) {
+            return 0;
+        }
+
+        @Override
+        public OrderWriteBatch newWriteBatch() {
+            return new OrderWriteBatch() {
+                @Override
+                public void save(Order order) {
+                    savedOrders.add(order);
+                }
+
+                @Override
+                public void setJournalPosition(int shard, long sequence) {
+                }
+
+                @Override
+                public int size() {
+                    return savedOrders.size();
+                }
+
+                @Override
+                public void commit() {
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
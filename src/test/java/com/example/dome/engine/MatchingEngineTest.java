@@ -11,7 +11,6 @@ import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
-import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +20,8 @@ import org.mockito.Mockito;
 
 class MatchingEngineTest {
 
+    private long nextOrderId = 1;
+
     private MatchingEngine engine;
     private OrderDao orderDao;
     private EventProcessor eventProcessor;
@@ -66,14 +67,14 @@ class MatchingEngineTest {
 
         // Aggressive Market Buy: 25. Should fill 10 @ 100 and 15 @ 101.
         Order marketBuy = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.MARKET)
                 .price(null) // Market order
                 .quantity(25)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         List<Trade> trades = engine.processOrder(marketBuy);
@@ -95,7 +96,7 @@ class MatchingEngineTest {
         OrderBook book = engine.getOrderBook();
         // 100 level should be REMOVED if empty. Next best is 101.
         assertNotNull(book.getBestAsk());
-        assertEquals(new BigDecimal("101.00"), book.getBestAsk().getPrice());
+        assertEquals(10100, book.getBestAsk().getPrice());
         assertEquals(5, book.getBestAsk().getTotalQuantity());
     }
 
@@ -113,7 +114,7 @@ class MatchingEngineTest {
         
         // Cancel s1
          // Mocking findById is needed because MatchingEngine.cancelOrder calls orderDao.findById
-        Mockito.when(orderDao.findById(s1.getOrderId().toString())).thenReturn(s1);
+        Mockito.when(orderDao.findById(s1.getOrderId())).thenReturn(s1);
 
         engine.cancelOrder(s1.getOrderId());
         
@@ -146,16 +147,32 @@ class MatchingEngineTest {
         assertEquals(10, book.getBestBid().getTotalQuantity());
     }
 
+    @Test
+    void testCancelResolvesFromBookWithoutDao() {
+        Order s1 = createOrder(OrderSide.SELL, new BigDecimal("100.00"), 10);
+        engine.match(s1);
+
+        Order cancelled = engine.cancel(s1.getOrderId());
+
+        assertSame(s1, cancelled);
+        assertEquals(OrderStatus.CANCELED, s1.getStatus());
+        assertNull(engine.getOrderBook().getBestAsk());
+        // Second cancel: no longer resting
+        assertNull(engine.cancel(s1.getOrderId()));
+        Mockito.verifyNoInteractions(orderDao);
+    }
+
     private Order createOrder(OrderSide side, BigDecimal price, long qty) {
         return Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(side)
                 .type(OrderType.LIMIT)
                 .price(price)
+                .priceTicks(engine.getPriceScale().toTicks(price))
                 .quantity(qty)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
     }
 }
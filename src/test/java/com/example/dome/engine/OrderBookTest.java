@@ -10,34 +10,40 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class OrderBookTest {
 
+    private long nextOrderId = 1;
+
+    private static final PriceScale SCALE = new PriceScale(2);
+
     @Test
     void testAddBidAndAskOrdering() {
-        OrderBook book = new OrderBook("AAPL");
+        OrderBook book = new TreeMapOrderBook("AAPL");
         
         // Add Bids: 100, 101, 99. Best Bid should be 101.
         book.addOrder(createOrder("AAPL", OrderSide.BUY, new BigDecimal("100.00")));
         book.addOrder(createOrder("AAPL", OrderSide.BUY, new BigDecimal("101.00")));
         book.addOrder(createOrder("AAPL", OrderSide.BUY, new BigDecimal("99.00")));
         
-        assertEquals(new BigDecimal("101.00"), book.getBestBid().getPrice());
+        assertEquals(10100, book.getBestBid().getPrice());
         
         // Add Asks: 102, 103, 101.5. Best Ask should be 101.5.
         book.addOrder(createOrder("AAPL", OrderSide.SELL, new BigDecimal("102.00")));
         book.addOrder(createOrder("AAPL", OrderSide.SELL, new BigDecimal("103.00")));
         book.addOrder(createOrder("AAPL", OrderSide.SELL, new BigDecimal("101.50")));
         
-        assertEquals(new BigDecimal("101.50"), book.getBestAsk().getPrice());
+        assertEquals(10150, book.getBestAsk().getPrice());
     }
 
     @Test
     void testSnapshotStructure() {
-        OrderBook book = new OrderBook("MSFT");
+        OrderBook book = new TreeMapOrderBook("MSFT");
         book.addOrder(createOrder("MSFT", OrderSide.BUY, new BigDecimal("250.00"), 100));
         book.addOrder(createOrder("MSFT", OrderSide.BUY, new BigDecimal("250.00"), 50));
         book.addOrder(createOrder("MSFT", OrderSide.SELL, new BigDecimal("255.00"), 200));
@@ -49,7 +55,7 @@ class OrderBookTest {
         
         List<OrderBook.PriceLevelSnapshot> bids = snapshot.get("bids");
         assertEquals(1, bids.size());
-        assertEquals(new BigDecimal("250.00"), bids.get(0).price());
+        assertEquals(25000, bids.get(0).price());
         assertEquals(150, bids.get(0).quantity()); // 100 + 50
 
         List<OrderBook.PriceLevelSnapshot> asks = snapshot.get("asks");
@@ -59,7 +65,7 @@ class OrderBookTest {
 
     @Test
     void testCancelOrder() {
-        OrderBook book = new OrderBook("GOOG");
+        OrderBook book = new TreeMapOrderBook("GOOG");
         Order order = createOrder("GOOG", OrderSide.BUY, new BigDecimal("1000.00"), 10);
         
         book.addOrder(order);
@@ -67,8 +73,8 @@ class OrderBookTest {
         
         book.cancelOrder(order);
         
-        // Quantity should be reduced immediately
-        assertEquals(0, book.getBestBid().getTotalQuantity());
+        // Order is unlinked immediately and the emptied level is removed
+        assertNull(book.getBestBid());
         assertEquals(OrderStatus.CANCELED, order.getStatus());
         
         // Order should be removed from index
@@ -77,7 +83,7 @@ class OrderBookTest {
     
     @Test
     void testModifyOrder() {
-        OrderBook book = new OrderBook("TSLA");
+        OrderBook book = new TreeMapOrderBook("TSLA");
         Order original = createOrder("TSLA", OrderSide.BUY, new BigDecimal("200.00"), 50);
         
         book.addOrder(original);
@@ -97,20 +103,64 @@ class OrderBookTest {
         assertEquals(20, book.getBestBid().getTotalQuantity());
     }
 
+    @Test
+    void testSingleWriterSnapshotOnlyChangesOnPublish() {
+        OrderBook book = new TreeMapOrderBook("NFLX", SCALE, true);
+        Order order = createOrder("NFLX", OrderSide.SELL, new BigDecimal("400.00"), 30);
+
+        book.addOrder(order);
+        // The writer sees the live book immediately
+        assertEquals(30, book.getBestAsk().getTotalQuantity());
+        // Readers only see what has been published
+        assertTrue(book.getSnapshot().get("asks").isEmpty());
+
+        book.publishSnapshot();
+        Map<String, List<OrderBook.PriceLevelSnapshot>> published = book.getSnapshot();
+        assertEquals(1, published.get("asks").size());
+        assertEquals(30, published.get("asks").get(0).quantity());
+
+        book.cancelOrder(order);
+        // Previously published view is immutable and unchanged until the next publish
+        assertSame(published, book.getSnapshot());
+        assertEquals(1, published.get("asks").size());
+
+        book.publishSnapshot();
+        assertTrue(book.getSnapshot().get("asks").isEmpty());
+    }
+
+    @Test
+    void testLockingModeSnapshotWaitsForMatching() throws Exception {
+        OrderBook book = new TreeMapOrderBook("AMZN", SCALE, false);
+        book.addOrder(createOrder("AMZN", OrderSide.SELL, new BigDecimal("150.00"), 30));
+
+        CompletableFuture<Map<String, List<OrderBook.PriceLevelSnapshot>>> snapshot;
+        book.lockForMatching();
+        try {
+            snapshot = CompletableFuture.supplyAsync(book::getSnapshot);
+            // A reader can't walk the levels while the matcher is changing them
+            assertThrows(TimeoutException.class, () -> snapshot.get(100, TimeUnit.MILLISECONDS));
+            book.getBestAsk().reduceTotalQuantity(10);
+        } finally {
+            book.unlockForMatching();
+        }
+        assertEquals(20, snapshot.get(5, TimeUnit.SECONDS).get("asks").get(0).quantity());
+    }
+
     private Order createOrder(String symbol, OrderSide side, BigDecimal price) {
         return createOrder(symbol, side, price, 10); // default qty
     }
 
     private Order createOrder(String symbol, OrderSide side, BigDecimal price, long qty) {
         return Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol(symbol)
                 .side(side)
                 .type(OrderType.LIMIT)
                 .price(price)
+                .priceTicks(SCALE.toTicks(price))
                 .quantity(qty)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
     }
 }
@@ -0,0 +1,61 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderPoolTest {
+
+    @Test
+    void testReleasedOrderIsResetAndReused() {
+        OrderPool pool = new OrderPool(4);
+        Order order = pool.acquire();
+        order.setOrderId(9);
+        order.setClientOrderId(UUID.randomUUID());
+        order.setSymbol("AAPL");
+        order.setSide(OrderSide.BUY);
+        order.setType(OrderType.LIMIT);
+        order.setPrice(new BigDecimal("100.00"));
+        order.setPriceTicks(10000);
+        order.setQuantity(10);
+        order.setStatus(OrderStatus.NEW);
+        order.fill(10);
+
+        pool.release(order);
+        assertEquals(1, pool.available());
+
+        Order reused = pool.acquire();
+        assertSame(order, reused);
+        assertEquals(0, pool.available());
+        assertEquals(0, reused.getOrderId());
+        assertNull(reused.getClientOrderId());
+        assertNull(reused.getSymbol());
+        assertNull(reused.getPrice());
+        assertEquals(0, reused.getQuantity());
+        assertEquals(0, reused.getFilledQuantity());
+        assertNull(reused.getPrev());
+        assertNull(reused.getNext());
+    }
+
+    @Test
+    void testAllocatesWhenEmptyAndDropsWhenFull() {
+        OrderPool pool = new OrderPool(4);
+        Order a = pool.acquire();
+        Order b = pool.acquire();
+        assertNotSame(a, b);
+
+        pool.release(a);
+        pool.release(b);
+        pool.release(new Order());
+        pool.release(new Order());
+        pool.release(new Order());
+        assertEquals(4, pool.available());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.dome.engine;
+
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceLadderOrderBookTest {
+
+    private long nextOrderId = 1;
+
+    private static final PriceScale SCALE = new PriceScale(2);
+
+    @Test
+    void testBestPricesAreTrackedAcrossLevelRemoval() {
+        OrderBook book = new PriceLadderOrderBook("AAPL", SCALE, 16);
+
+        book.addOrder(createOrder(OrderSide.BUY, 10000));
+        book.addOrder(createOrder(OrderSide.BUY, 10005));
+        book.addOrder(createOrder(OrderSide.BUY, 9990));
+        book.addOrder(createOrder(OrderSide.SELL, 10010));
+        book.addOrder(createOrder(OrderSide.SELL, 10020));
+
+        assertEquals(10005, book.getBestBid().getPrice());
+        assertEquals(10010, book.getBestAsk().getPrice());
+
+        book.removeLevel(OrderSide.BUY, 10005);
+        book.removeLevel(OrderSide.SELL, 10010);
+
+        assertEquals(10000, book.getBestBid().getPrice());
+        assertEquals(10020, book.getBestAsk().getPrice());
+
+        book.removeLevel(OrderSide.SELL, 10020);
+        assertNull(book.getBestAsk());
+    }
+
+    @Test
+    void testWindowMovesAndGrowsBeyondInitialCapacity() {
+        OrderBook book = new PriceLadderOrderBook("AAPL", SCALE, 4);
+
+        book.addOrder(createOrder(OrderSide.SELL, 10000));
+        // Far outside the initial 4-tick ring
+        book.addOrder(createOrder(OrderSide.SELL, 10100));
+        book.addOrder(createOrder(OrderSide.SELL, 9950));
+
+        List<OrderBook.PriceLevelSnapshot> asks = book.getSnapshot().get("asks");
+        assertEquals(3, asks.size());
+        assertEquals(9950, asks.get(0).price());
+        assertEquals(10000, asks.get(1).price());
+        assertEquals(10100, asks.get(2).price());
+
+        book.removeLevel(OrderSide.SELL, 9950);
+        book.removeLevel(OrderSide.SELL, 10000);
+        assertEquals(10100, book.getBestAsk().getPrice());
+    }
+
+    @Test
+    void testSnapshotIsBestFirst() {
+        OrderBook book = new PriceLadderOrderBook("AAPL", SCALE);
+
+        book.addOrder(createOrder(OrderSide.BUY, 10000));
+        book.addOrder(createOrder(OrderSide.BUY, 10002));
+        book.addOrder(createOrder(OrderSide.BUY, 10002));
+
+        List<OrderBook.PriceLevelSnapshot> bids = book.getSnapshot().get("bids");
+        assertEquals(2, bids.size());
+        assertEquals(10002, bids.get(0).price());
+        assertEquals(20, bids.get(0).quantity());
+        assertEquals(10000, bids.get(1).price());
+    }
+
+    @Test
+    void testMatchingOnLadderBook() {
+        MatchingEngine engine = new MatchingEngine("AAPL", new PriceLadderOrderBook("AAPL", SCALE), null, null);
+
+        engine.match(createOrder(OrderSide.SELL, 10000));
+        engine.match(createOrder(OrderSide.SELL, 10001));
+
+        Order buy = createOrder(OrderSide.BUY, 10001, 15);
+
+        MatchResult result = engine.match(buy);
+
+        assertEquals(2, result.trades().size());
+        assertEquals(new BigDecimal("100.00"), result.trades().get(0).getPrice());
+        assertEquals(new BigDecimal("100.01"), result.trades().get(1).getPrice());
+        assertEquals(10001, engine.getOrderBook().getBestAsk().getPrice());
+        assertEquals(5, engine.getOrderBook().getBestAsk().getTotalQuantity());
+    }
+
+    @Test
+    void testCanRestOnlyWithinTheMaximumSpan() {
+        OrderBook book = new PriceLadderOrderBook("AAPL", SCALE, 16);
+        assertTrue(book.canRest(OrderSide.SELL, 10000));
+
+        book.addOrder(createOrder(OrderSide.SELL, 10000));
+        assertTrue(book.canRest(OrderSide.SELL, 10000 + PriceLadderOrderBook.MAX_CAPACITY - 1));
+        assertFalse(book.canRest(OrderSide.SELL, 10000 + PriceLadderOrderBook.MAX_CAPACITY));
+        // Each side has its own window
+        assertTrue(book.canRest(OrderSide.BUY, 1));
+    }
+
+    private Order createOrder(OrderSide side, long priceTicks) {
+        return createOrder(side, priceTicks, 10);
+    }
+
+    private Order createOrder(OrderSide side, long priceTicks, long qty) {
+        return Order.builder()
+                .orderId(nextOrderId++)
+                .symbol("AAPL")
+                .side(side)
+                .type(OrderType.LIMIT)
+                .price(SCALE.toPrice(priceTicks))
+                .priceTicks(priceTicks)
+                .quantity(qty)
+                .status(OrderStatus.NEW)
+                .timestamp(EngineClock.epochNanos(Instant.now()))
+                .build();
+    }
+}
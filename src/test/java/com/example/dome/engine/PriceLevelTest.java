@@ -8,20 +8,16 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class PriceLevelTest {
 
+    private long nextOrderId = 1;
+
     @Test
     void testSingleThreadAddAndPoll() {
-        BigDecimal price = new BigDecimal("100.00");
+        long price = 10000;
         PriceLevel level = new PriceLevel(price);
 
         Order order1 = createOrder(price, 10);
@@ -43,41 +39,103 @@ class PriceLevelTest {
     }
 
     @Test
-    void testConcurrentAdd() throws InterruptedException {
-        BigDecimal price = new BigDecimal("100.00");
+    void testCancelUnlinksFromMiddleHeadAndTail() {
+        long price = 10000;
+        PriceLevel level = new PriceLevel(price);
+
+        Order order1 = createOrder(price, 10);
+        Order order2 = createOrder(price, 20);
+        Order order3 = createOrder(price, 30);
+        Order order4 = createOrder(price, 40);
+
+        level.addOrder(order1);
+        level.addOrder(order2);
+        level.addOrder(order3);
+        level.addOrder(order4);
+
+        level.cancelOrder(order2);
+        assertEquals(3, level.getOrderCount());
+        assertEquals(80, level.getTotalQuantity());
+        assertEquals(OrderStatus.CANCELED, order2.getStatus());
+
+        level.cancelOrder(order1);
+        assertEquals(order3, level.peek());
+
+        level.cancelOrder(order4);
+        assertEquals(1, level.getOrderCount());
+        assertEquals(30, level.getTotalQuantity());
+
+        // FIFO of the remaining order is intact
+        assertEquals(order3, level.poll());
+        assertTrue(level.isEmpty());
+        assertEquals(0, level.getTotalQuantity());
+    }
+
+    @Test
+    void testCancelTwiceAndAddAfterCancel() {
+        long price = 10000;
+        PriceLevel level = new PriceLevel(price);
+
+        Order order1 = createOrder(price, 10);
+        level.addOrder(order1);
+        level.cancelOrder(order1);
+        level.cancelOrder(order1);
+
+        assertTrue(level.isEmpty());
+        assertEquals(0, level.getOrderCount());
+        assertEquals(0, level.getTotalQuantity());
+
+        Order order2 = createOrder(price, 5);
+        level.addOrder(order2);
+        assertEquals(order2, level.peek());
+        assertEquals(5, level.getTotalQuantity());
+    }
+
+    @Test
+    void testRestoreOrdersByTimestampNotArrival() {
+        long price = 10000;
         PriceLevel level = new PriceLevel(price);
-        int threadCount = 10;
-        int ordersPerThread = 1000;
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
-        CountDownLatch latch = new CountDownLatch(threadCount);
-
-        for (int i = 0; i < threadCount; i++) {
-            executor.submit(() -> {
-                try {
-                    for (int j = 0; j < ordersPerThread; j++) {
-                        level.addOrder(createOrder(price, 1)); // 1 qty each
-                    }
-                } finally {
-                    latch.countDown();
-                }
-            });
-        }
-
-        assertTrue(latch.await(5, TimeUnit.SECONDS));
-        assertEquals((long) threadCount * ordersPerThread, level.getTotalQuantity());
-        executor.shutdown();
+
+        Order second = createOrder(price, 10);
+        second.setTimestamp(2000);
+        Order fourth = createOrder(price, 10);
+        fourth.setTimestamp(4000);
+        // Read last (a higher, migrated ID) but entered first
+        Order first = createOrder(price, 10);
+        first.setTimestamp(1000);
+        Order third = createOrder(price, 10);
+        third.setTimestamp(3000);
+        // Same stamp: keeps the order it was read in
+        Order fifth = createOrder(price, 10);
+        fifth.setTimestamp(4000);
+
+        level.restoreOrder(second);
+        level.restoreOrder(fourth);
+        level.restoreOrder(first);
+        level.restoreOrder(third);
+        level.restoreOrder(fifth);
+
+        assertEquals(5, level.getOrderCount());
+        assertEquals(50, level.getTotalQuantity());
+        assertSame(first, level.poll());
+        assertSame(second, level.poll());
+        assertSame(third, level.poll());
+        assertSame(fourth, level.poll());
+        assertSame(fifth, level.poll());
+        assertTrue(level.isEmpty());
     }
 
-    private Order createOrder(BigDecimal price, long qty) {
+    private Order createOrder(long price, long qty) {
         return Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("TEST")
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
-                .price(price)
+                .price(BigDecimal.valueOf(price, 2))
+                .priceTicks(price)
                 .quantity(qty)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
     }
 }
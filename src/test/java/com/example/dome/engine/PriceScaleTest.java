@@ -0,0 +1,33 @@
+package com.example.dome.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceScaleTest {
+
+    @Test
+    void testRoundTrip() {
+        PriceScale scale = new PriceScale(2);
+
+        assertEquals(15025, scale.toTicks(new BigDecimal("150.25")));
+        assertEquals(15000, scale.toTicks(new BigDecimal("150")));
+        assertEquals(new BigDecimal("150.25"), scale.toPrice(15025));
+    }
+
+    @Test
+    void testRejectsOffTickPrice() {
+        PriceScale scale = new PriceScale(2);
+
+        assertThrows(IllegalArgumentException.class, () -> scale.toTicks(new BigDecimal("150.255")));
+    }
+
+    @Test
+    void testTrailingZerosBeyondScaleAreAccepted() {
+        PriceScale scale = new PriceScale(2);
+
+        assertEquals(10150, scale.toTicks(new BigDecimal("101.5000")));
+    }
+}
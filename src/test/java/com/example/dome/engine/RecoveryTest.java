@@ -5,12 +5,16 @@ import com.example.dome.model.Order;
 import com.example.dome.model.OrderSide;
 import com.example.dome.model.OrderStatus;
 import com.example.dome.model.OrderType;
+import com.example.dome.persistence.OrderColumnFamilies;
 import com.example.dome.persistence.RocksDBOrderDao;
+import com.example.dome.persistence.RocksDBSequenceStore;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.rocksdb.Options;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.DBOptions;
 import org.rocksdb.RocksDB;
 
 import java.io.File;
@@ -18,13 +22,17 @@ import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class RecoveryTest {
 
+    private long nextOrderId = 1;
+
     private RocksDB rocksDB;
+    private final List<ColumnFamilyHandle> handles = new ArrayList<>();
     private RocksDBOrderDao orderDao;
     private File tempDbDir;
     private EngineRegistry registry;
@@ -37,9 +45,9 @@ class RecoveryTest {
         Path tempPath = Files.createTempDirectory("recovery_test_");
         tempDbDir = tempPath.toFile();
         
-        Options options = new Options().setCreateIfMissing(true);
-        rocksDB = RocksDB.open(options, tempDbDir.getAbsolutePath());
-        orderDao = new RocksDBOrderDao(rocksDB);
+        DBOptions options = new DBOptions().setCreateIfMissing(true).setCreateMissingColumnFamilies(true);
+        rocksDB = RocksDB.open(options, tempDbDir.getAbsolutePath(), OrderColumnFamilies.descriptors(), handles);
+        orderDao = new RocksDBOrderDao(rocksDB, OrderColumnFamilies.of(handles), new RocksDBSequenceStore(rocksDB));
         eventProcessor = Mockito.mock(EventProcessor.class);
         marketDataCache = Mockito.mock(com.example.dome.cache.MarketDataCache.class);
         
@@ -48,6 +56,7 @@ class RecoveryTest {
 
     @AfterEach
     void tearDown() {
+        handles.forEach(ColumnFamilyHandle::close);
         if (rocksDB != null) {
             rocksDB.close();
         }
@@ -59,7 +68,7 @@ class RecoveryTest {
         // 1. Populate DB with orders
         // Active Order: Buy 100 @ 150
         Order activeOrder = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
@@ -67,13 +76,13 @@ class RecoveryTest {
                 .quantity(100)
                 .filledQuantity(0)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
         orderDao.save(activeOrder);
         
         // Filled Order: Sell 50 @ 150 (Should be ignored)
         Order filledOrder = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.SELL)
                 .type(OrderType.LIMIT)
@@ -81,7 +90,7 @@ class RecoveryTest {
                 .quantity(50)
                 .filledQuantity(50)
                 .status(OrderStatus.FILLED)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
         orderDao.save(filledOrder);
         
@@ -93,13 +102,48 @@ class RecoveryTest {
         OrderBook book = engine.getOrderBook();
         assertNotNull(book);
         assertNotNull(book.getBestBid());
-        assertEquals(new BigDecimal("150.00"), book.getBestBid().getPrice());
+        assertEquals(15000, book.getBestBid().getPrice());
         assertEquals(100, book.getBestBid().getTotalQuantity());
         
         // Ensure filled order is NOT in book (Best Ask should be null)
         assertNull(book.getBestAsk());
     }
 
+    @Test
+    void testLazyRecoveryLoadsASymbolOnFirstUse() {
+        Order aapl = restingBuy("AAPL", "150.00", 100);
+        Order msft = restingBuy("MSFT", "300.00", 10);
+        orderDao.save(aapl);
+        orderDao.save(msft);
+
+        ReflectionTestUtils.setField(registry, "lazyRecovery", true);
+        registry.recoverState();
+
+        assertTrue(registry.getEngines().isEmpty());
+        // A cancel can still be routed to a symbol that is not loaded yet
+        assertEquals("MSFT", registry.findSymbol(msft.getOrderId()));
+
+        OrderBook book = registry.getEngine("AAPL").getOrderBook();
+        assertEquals(15000, book.getBestBid().getPrice());
+        assertEquals(100, book.getBestBid().getTotalQuantity());
+        assertEquals(1, registry.getEngines().size());
+        assertEquals("AAPL", registry.findSymbol(aapl.getOrderId()));
+    }
+
+    private Order restingBuy(String symbol, String price, long quantity) {
+        return Order.builder()
+                .orderId(nextOrderId++)
+                .symbol(symbol)
+                .side(OrderSide.BUY)
+                .type(OrderType.LIMIT)
+                .price(new BigDecimal(price))
+                .quantity(quantity)
+                .filledQuantity(0)
+                .status(OrderStatus.NEW)
+                .timestamp(EngineClock.epochNanos(Instant.now()))
+                .build();
+    }
+
     private void deleteDirectory(File directory) {
         if (directory.isDirectory()) {
             File[] files = directory.listFiles();
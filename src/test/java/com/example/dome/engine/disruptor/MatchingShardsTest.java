@@ -0,0 +1,48 @@
+package com.example.dome.engine.disruptor;
+
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchingShardsTest {
+
+    @Test
+    void testExplicitMappingWins() {
+        MatchingShards shards = new MatchingShards(createShards(4), Map.of("AAPL", 3, "MSFT", 0));
+
+        assertEquals(3, shards.shardFor("AAPL"));
+        assertEquals(0, shards.shardFor("MSFT"));
+    }
+
+    @Test
+    void testHashedSymbolsAreStableAndInRange() {
+        MatchingShards shards = new MatchingShards(createShards(3), Map.of());
+
+        for (String symbol : List.of("AAPL", "MSFT", "GOOG", "TSLA", "BTCUSD", "EURUSD")) {
+            int shard = shards.shardFor(symbol);
+            assertTrue(shard >= 0 && shard < 3);
+            assertEquals(shard, shards.shardFor(symbol));
+        }
+    }
+
+    @Test
+    void testMappingToMissingShardIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MatchingShards(createShards(2), Map.of("AAPL", 2)));
+    }
+
+    private List<Disruptor<OrderCommand>> createShards(int count) {
+        List<Disruptor<OrderCommand>> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Not started: routing never touches the ring
+            shards.add(new Disruptor<>(new OrderCommandFactory(), 8, DaemonThreadFactory.INSTANCE));
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.dome.engine.disruptor;
+
+import com.example.dome.engine.EngineRegistry;
+import com.example.dome.engine.OrderBook;
+import com.example.dome.engine.OrderPool;
+import com.example.dome.engine.SequenceIdGenerator;
+import com.example.dome.event.DepthUpdate;
+import com.example.dome.event.EventProcessor;
+import com.example.dome.event.TradeEvent;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import com.example.dome.persistence.OrderDao;
+import com.example.dome.persistence.OrderWriteBatch;
+import com.example.dome.persistence.SequenceStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceEventHandlerTest {
+
+    private RecordingOrderDao orderDao;
+    private List<TradeEvent> publishedTrades;
+    private List<DepthUpdate> publishedDepth;
+    private EventProcessor eventProcessor;
+    private EngineRegistry registry;
+    private MatchingEventHandler matchingHandler;
+
+    @BeforeEach
+    void setUp() {
+        orderDao = new RecordingOrderDao();
+        publishedTrades = new ArrayList<>();
+        publishedDepth = new ArrayList<>();
+        eventProcessor = new EventProcessor(null, null, null, null, null) {
+            @Override
+            public void onTrade(TradeEvent event) {
+                publishedTrades.add(event);
+            }
+
+            @Override
+            public void onDepthUpdate(DepthUpdate update) {
+                publishedDepth.add(update);
+            }
+        };
+        registry = new EngineRegistry(eventProcessor, orderDao, null);
+        SequenceStore store = new InMemorySequenceStore();
+        matchingHandler = new MatchingEventHandler(registry,
+                new SequenceIdGenerator("order", 0, store), new SequenceIdGenerator("trade", 0, store));
+    }
+
+    @Test
+    void testOneCommitPerBatchAndFuturesCompleteAfterIt() throws Exception {
+        PersistenceEventHandler handler = new PersistenceEventHandler(orderDao, eventProcessor, registry, 0, 1000, 60_000);
+
+        OrderCommand sell1 = newOrder(OrderSide.SELL, "100.00", 10);
+        OrderCommand sell2 = newOrder(OrderSide.SELL, "100.01", 10);
+        OrderCommand buy = newOrder(OrderSide.BUY, "100.01", 20);
+        CompletableFuture<OrderResult> sellFuture = sell1.getResultFuture();
+        CompletableFuture<OrderResult> buyFuture = buy.getResultFuture();
+
+        run(handler, sell1, false);
+        run(handler, sell2, false);
+        assertFalse(sellFuture.isDone());
+        assertEquals(0, orderDao.commits);
+
+        run(handler, buy, true);
+
+        // 2 resting saves + 2 fills of resting orders + the aggressive order, in one write
+        assertEquals(1, orderDao.commits);
+        assertEquals(5, orderDao.committedWrites);
+        assertTrue(sellFuture.isDone());
+        OrderResult result = buyFuture.get();
+        assertEquals(OrderStatus.FILLED, result.status());
+        assertEquals(2, result.trades().size());
+        assertEquals(2, publishedTrades.size());
+    }
+
+    @Test
+    void testDepthUpdatesAreSequencedPerSymbolAndMatchTheSnapshot() {
+        PersistenceEventHandler handler = new PersistenceEventHandler(orderDao, eventProcessor, registry, 0, 1000, 60_000);
+
+        run(handler, newOrder(OrderSide.SELL, "100.00", 10), false);
+        run(handler, newOrder(OrderSide.SELL, "100.01", 10), false);
+        assertTrue(publishedDepth.isEmpty());
+        run(handler, newOrder(OrderSide.BUY, "100.01", 15), true);
+
+        assertEquals(3, publishedDepth.size());
+        assertEquals(List.of(1L, 2L, 3L), publishedDepth.stream().map(DepthUpdate::sequence).toList());
+        assertEquals(List.of(new DepthUpdate.LevelChange(OrderSide.SELL, new BigDecimal("100.00"), 10)),
+                publishedDepth.get(0).changes());
+        // The sweep emptied one level and shrank the next; the BUY filled in full, so no bid level
+        assertEquals(List.of(new DepthUpdate.LevelChange(OrderSide.SELL, new BigDecimal("100.00"), 0),
+                        new DepthUpdate.LevelChange(OrderSide.SELL, new BigDecimal("100.01"), 5)),
+                publishedDepth.get(2).changes());
+
+        // A snapshot taken now already includes update 3, so a client applies nothing older
+        OrderBook.DepthSnapshot snapshot = registry.getEngine("AAPL").getOrderBook().getDepthSnapshot();
+        assertEquals(3, snapshot.sequence());
+        assertEquals(1, snapshot.asks().size());
+        assertEquals(5, snapshot.asks().get(0).quantity());
+        assertTrue(snapshot.bids().isEmpty());
+    }
+
+    @Test
+    void testLimitWithoutPriceIsRejectedBeforeMatching() {
+        PersistenceEventHandler handler = new PersistenceEventHandler(orderDao, eventProcessor, registry, 0, 1000, 60_000);
+        run(handler, newOrder(OrderSide.SELL, "100.00", 10), true);
+
+        OrderCommand buy = newOrder(OrderSide.BUY, "100.00", 10);
+        buy.setPrice(null);
+        buy.setPriceTicks(0);
+        CompletableFuture<OrderResult> future = buy.getResultFuture();
+        run(handler, buy, true);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertNull(buy.getOrder());
+        // The resting sell was not touched
+        assertTrue(publishedTrades.isEmpty());
+        assertEquals(10, registry.getEngine("AAPL").getOrderBook().getBestAsk().getTotalQuantity());
+    }
+
+    @Test
+    void testBatchCommitsEarlyAtMaxWrites() {
+        PersistenceEventHandler handler = new PersistenceEventHandler(orderDao, eventProcessor, registry, 0, 2, 60_000);
+
+        OrderCommand first = newOrder(OrderSide.SELL, "100.00", 10);
+        OrderCommand second = newOrder(OrderSide.SELL, "100.01", 10);
+        CompletableFuture<OrderResult> firstFuture = first.getResultFuture();
+
+        run(handler, first, false);
+        assertEquals(0, orderDao.commits);
+        run(handler, second, false);
+
+        assertEquals(1, orderDao.commits);
+        assertTrue(firstFuture.isDone());
+    }
+
+    @Test
+    void testFinishedOrdersGoBackToThePoolOnlyAfterTheCommit() {
+        PersistenceEventHandler handler = new PersistenceEventHandler(orderDao, eventProcessor, registry, 0, 1000, 60_000);
+        OrderPool pool = registry.getEngine("AAPL").getOrderPool();
+
+        run(handler, newOrder(OrderSide.SELL, "100.00", 10), false);
+        run(handler, newOrder(OrderSide.BUY, "100.00", 10), false);
+        // Both are filled, but their batch is still open
+        assertEquals(0, pool.available());
+
+        run(handler, newOrder(OrderSide.SELL, "100.01", 10), true);
+        assertEquals(2, pool.available());
+    }
+
+    @Test
+    void testFailedCommitWithoutJournalPublishesAppliedCommandsAndRetriesAfterBackoff() throws Exception {
+        PersistenceEventHandler handler = new PersistenceEventHandler(orderDao, eventProcessor, registry, 0, 1000, 60_000);
+        run(handler, newOrder(OrderSide.SELL, "100.00", 10), true);
+        assertEquals(1, orderDao.commits);
+        orderDao.failCommits = true;
+
+        // The book has already matched it: the trade and the fill are reported, not failed
+        OrderCommand buy = newOrder(OrderSide.BUY, "100.00", 10);
+        CompletableFuture<OrderResult> future = buy.getResultFuture();
+        run(handler, buy, true);
+
+        assertEquals(OrderStatus.FILLED, future.get().status());
+        assertEquals(1, publishedTrades.size());
+        assertEquals(2, orderDao.commitAttempts);
+
+        // Within the backoff, later commands neither build batches nor try the store again
+        int batches = orderDao.batches;
+        for (int i = 0; i < 3; i++) {
+            run(handler, newOrder(OrderSide.SELL, "100.0" + (i + 1), 10), true);
+        }
+        assertEquals(batches, orderDao.batches);
+        assertEquals(2, orderDao.commitAttempts);
+
+        // The retry writes the failed batch's 2 orders and everything since in one commit
+        orderDao.failCommits = false;
+        Thread.sleep(PersistenceEventHandler.RETRY_BACKOFF_MIN_MILLIS + 50);
+        run(handler, newOrder(OrderSide.SELL, "100.04", 10), true);
+        assertEquals(2, orderDao.commits);
+        assertEquals(1 + 2 + 3 + 1, orderDao.committedWrites);
+
+        // Then batching is back to normal
+        run(handler, newOrder(OrderSide.SELL, "100.05", 10), true);
+        assertEquals(3, orderDao.commits);
+    }
+
+    @Test
+    void testFailedCommitWithJournalCompletesCommandsAndCatchesUpTheStore() throws Exception {
+        PersistenceEventHandler handler = new PersistenceEventHandler(orderDao, eventProcessor, registry, 0, 1000, 60_000);
+        orderDao.failCommits = true;
+
+        // Journaled: the command is durable even though the order store is not written
+        OrderCommand sell = newOrder(OrderSide.SELL, "100.00", 10);
+        sell.setJournalSequence(1);
+        CompletableFuture<OrderResult> future = sell.getResultFuture();
+        run(handler, sell, true);
+
+        assertEquals(OrderStatus.NEW, future.get().status());
+
+        // The store has recovered, but is not retried until the backoff has passed
+        orderDao.failCommits = false;
+        OrderCommand next = newOrder(OrderSide.SELL, "100.01", 10);
+        next.setJournalSequence(2);
+        CompletableFuture<OrderResult> nextFuture = next.getResultFuture();
+        run(handler, next, true);
+        assertEquals(0, orderDao.commits);
+        assertTrue(nextFuture.isDone());
+
+        // The retry moves the store's journal position on, so the journal can be pruned again
+        Thread.sleep(PersistenceEventHandler.RETRY_BACKOFF_MIN_MILLIS + 50);
+        OrderCommand last = newOrder(OrderSide.SELL, "100.02", 10);
+        last.setJournalSequence(3);
+        run(handler, last, true);
+        assertEquals(1, orderDao.commits);
+        assertEquals(3, orderDao.committedWrites);
+        assertEquals(3, orderDao.journalPosition);
+    }
+
+    private void run(PersistenceEventHandler handler, OrderCommand command, boolean endOfBatch) {
+        try {
+            matchingHandler.onEvent(command, 0, endOfBatch);
+            handler.onEvent(command, 0, endOfBatch);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private OrderCommand newOrder(OrderSide side, String price, long quantity) {
+        OrderCommand command = new OrderCommand();
+        command.setType(CommandType.NEW);
+        command.setSymbol("AAPL");
+        command.setSide(side);
+        command.setOrderType(OrderType.LIMIT);
+        command.setPrice(new BigDecimal(price));
+        command.setPriceTicks(registry.getEngine("AAPL").getPriceScale().toTicks(new BigDecimal(price)));
+        command.setQuantity(quantity);
+        command.setResultFuture(new CompletableFuture<>());
+        return command;
+    }
+
+    private static class RecordingOrderDao implements OrderDao {
+        int batches;
+        int commits;
+        int commitAttempts;
+        int committedWrites;
+        long journalPosition;
+        boolean failCommits;
+
+        @Override
+        public void save(Order order) {
+            throw new AssertionError("The persistence stage must write through a batch");
+        }
+
+        @Override
+        public void delete(long orderId) {
+        }
+
+        @Override
+        public Order findById(long orderId) {
+            return null;
+        }
+
+        @Override
+        public List<Order> findAll() {
+            return List.of();
+        }
+
+        @Override
+        public List<Order> findActive() {
+            return List.of();
+        }
+
+        @Override
+        public long loadJournalPosition(int shard) {
+            return 0;
+        }
+
+        @Override
+        public OrderWriteBatch newWriteBatch() {
+            batches++;
+            return new OrderWriteBatch() {
+                private int size;
+                private long position;
+
+                @Override
+                public void save(Order order) {
+                    size++;
+                }
+
+                @Override
+                public void setJournalPosition(int shard, long sequence) {
+                    position = sequence;
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void commit() {
+                    commitAttempts++;
+                    if (failCommits) {
+                        throw new RuntimeException("disk full");
+                    }
+                    commits++;
+                    committedWrites += size;
+                    if (position > 0) {
+                        journalPosition = position;
+                    }
+                    size = 0;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    private static class InMemorySequenceStore implements SequenceStore {
+        private final Map<String, Long> values = new HashMap<>();
+
+        @Override
+        public long load(String name) {
+            return values.getOrDefault(name, 0L);
+        }
+
+        @Override
+        public void store(String name, long value) {
+            values.put(name, value);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.dome.engine.journal;
+
+import com.example.dome.engine.PriceScale;
+import com.example.dome.engine.SequenceIdGenerator;
+import com.example.dome.engine.disruptor.CommandType;
+import com.example.dome.engine.disruptor.OrderCommand;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderType;
+import com.example.dome.persistence.SequenceStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandJournalTest {
+
+    private static final long SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path dir;
+
+    private final InMemorySequenceStore store = new InMemorySequenceStore();
+
+    @Test
+    void testAppendAndReplayRoundTrip() throws IOException {
+        UUID clientOrderId = UUID.randomUUID();
+        OrderCommand command = newOrder(OrderSide.BUY, "101.25", 7);
+        command.setClientOrderId(clientOrderId);
+        command.getFills().add(maker(3), 10125, 4, 99L);
+        command.getFills().add(maker(5), 10125, 3, 99L);
+        command.getFills().assignTradeIds(new SequenceIdGenerator("trade", 0, store));
+
+        try (CommandJournal journal = new CommandJournal(dir, 0, SEGMENT_SIZE, true, () -> 0)) {
+            assertEquals(1, append(journal, command));
+            assertEquals(2, append(journal, cancel(42)));
+        }
+
+        List<JournalRecord> records = replay(0, 0);
+        assertEquals(2, records.size());
+
+        JournalRecord record = records.get(0);
+        assertEquals(1, record.sequence());
+        assertEquals(CommandType.NEW, record.type());
+        assertEquals(11L, record.orderId());
+        assertEquals(99L, record.timestamp());
+        assertEquals("AAPL", record.symbol());
+        assertEquals(OrderSide.BUY, record.side());
+        assertEquals(OrderType.LIMIT, record.orderType());
+        assertTrue(record.hasPrice());
+        assertEquals(10125, record.priceTicks());
+        assertEquals(new BigDecimal("101.25"), record.toOrder(new PriceScale(2)).getPrice());
+        assertEquals(7, record.quantity());
+        assertEquals(clientOrderId, record.clientOrderId());
+        assertArrayEquals(new long[]{1, 2}, record.tradeIds());
+
+        JournalRecord cancel = records.get(1);
+        assertEquals(CommandType.CANCEL, cancel.type());
+        assertEquals(42L, cancel.orderId());
+        assertNull(cancel.side());
+        assertFalse(cancel.hasPrice());
+        assertEquals(0, cancel.tradeIds().length);
+    }
+
+    @Test
+    void testSweepOfMoreFillsThanAShortCountReplaysEveryTradeId() throws IOException {
+        OrderCommand command = newOrder(OrderSide.BUY, "101.25", 70_000);
+        Order maker = maker(3);
+        for (int i = 0; i < 70_000; i++) {
+            command.getFills().add(maker, 10125, 1, 99L);
+        }
+        command.getFills().assignTradeIds(new SequenceIdGenerator("trade", 0, store));
+
+        try (CommandJournal journal = new CommandJournal(dir, 0, 1 << 20, false, () -> 0)) {
+            append(journal, command);
+            append(journal, cancel(42));
+        }
+
+        List<JournalRecord> records = replay(0, 0);
+        assertEquals(2, records.size());
+        assertEquals(70_000, records.get(0).tradeIds().length);
+        assertEquals(70_000, records.get(0).tradeIds()[69_999]);
+        assertEquals(CommandType.CANCEL, records.get(1).type());
+    }
+
+    @Test
+    void testPublishedSequenceIsStoredPerShard() throws IOException {
+        assertEquals(0, CommandJournal.loadPublishedSequence(dir, 0));
+
+        CommandJournal.storePublishedSequence(dir, 0, 7);
+        CommandJournal.storePublishedSequence(dir, 0, 9);
+        CommandJournal.storePublishedSequence(dir, 1, 3);
+
+        assertEquals(9, CommandJournal.loadPublishedSequence(dir, 0));
+        assertEquals(3, CommandJournal.loadPublishedSequence(dir, 1));
+        // Not mistaken for segments
+        assertEquals(0, CommandJournal.shards(dir).size());
+    }
+
+    @Test
+    void testReopenContinuesAfterLastRecord() throws IOException {
+        try (CommandJournal journal = new CommandJournal(dir, 0, SEGMENT_SIZE, false, () -> 0)) {
+            append(journal, cancel(1));
+            append(journal, cancel(2));
+        }
+        try (CommandJournal journal = new CommandJournal(dir, 0, SEGMENT_SIZE, false, () -> 0)) {
+            assertEquals(2, journal.getLastSequence());
+            assertEquals(3, append(journal, cancel(3)));
+        }
+
+        assertEquals(List.of(1L, 2L, 3L), replay(0, 0).stream().map(JournalRecord::orderId).toList());
+        assertEquals(List.of(3L), replay(0, 2).stream().map(JournalRecord::sequence).toList());
+    }
+
+    @Test
+    void testTornTailIsTreatedAsEndOfJournal() throws IOException {
+        try (CommandJournal journal = new CommandJournal(dir, 0, SEGMENT_SIZE, false, () -> 0)) {
+            append(journal, cancel(1));
+            append(journal, cancel(2));
+        }
+        // Corrupt the last byte of the second record's payload: its checksum no longer matches
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int first = buffer.getInt(0);
+            int secondStart = 8 + first;
+            int secondEnd = secondStart + 8 + buffer.getInt(secondStart);
+            buffer.put(secondEnd - 1, (byte) 0x7F);
+            buffer.force();
+        }
+
+        assertEquals(List.of(1L), replay(0, 0).stream().map(JournalRecord::orderId).toList());
+        // Appending resumes over the torn record
+        try (CommandJournal journal = new CommandJournal(dir, 0, SEGMENT_SIZE, false, () -> 0)) {
+            assertEquals(2, append(journal, cancel(9)));
+        }
+        assertEquals(List.of(1L, 9L), replay(0, 0).stream().map(JournalRecord::orderId).toList());
+    }
+
+    @Test
+    void testRollsSegmentsAndPrunesPersistedOnes() throws IOException {
+        long[] persisted = {0};
+        try (CommandJournal journal = new CommandJournal(dir, 0, 512, false, () -> persisted[0])) {
+            for (int i = 1; i <= 20; i++) {
+                append(journal, cancel(i));
+            }
+            assertTrue(segmentCount() > 2);
+
+            persisted[0] = 15;
+            for (int i = 21; i <= 30; i++) {
+                append(journal, cancel(i));
+            }
+        }
+
+        // Everything the order store has not committed is still replayable
+        List<JournalRecord> records = replay(0, 15);
+        assertEquals(15, records.size());
+        assertEquals(16, records.get(0).sequence());
+        assertEquals(30, records.get(14).sequence());
+        // ...and the oldest segment, fully below 15, is gone
+        assertTrue(replay(0, 0).get(0).sequence() > 1);
+    }
+
+    @Test
+    void testShardsAreIndependent() throws IOException {
+        try (CommandJournal first = new CommandJournal(dir, 0, SEGMENT_SIZE, false, () -> 0);
+             CommandJournal second = new CommandJournal(dir, 3, SEGMENT_SIZE, false, () -> 0)) {
+            append(first, cancel(1));
+            append(second, cancel(2));
+            append(second, cancel(3));
+        }
+
+        assertEquals(List.of(0, 3), new ArrayList<>(CommandJournal.shards(dir)));
+        assertEquals(1, replay(0, 0).size());
+        assertEquals(2, replay(3, 0).size());
+    }
+
+    @Test
+    void testRejectsOutOfOrderSequence() throws IOException {
+        try (CommandJournal journal = new CommandJournal(dir, 0, SEGMENT_SIZE, false, () -> 0)) {
+            OrderCommand command = cancel(1);
+            command.setJournalSequence(2);
+            assertThrows(IllegalStateException.class, () -> journal.append(command));
+        }
+    }
+
+    // The matching stage numbers commands; here they just follow the journal
+    private static long append(CommandJournal journal, OrderCommand command) throws IOException {
+        command.setJournalSequence(journal.getLastSequence() + 1);
+        return journal.append(command);
+    }
+
+    private List<JournalRecord> replay(int shard, long afterSequence) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        CommandJournal.replay(dir, shard, afterSequence, records::add);
+        return records;
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = files.toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private static OrderCommand newOrder(OrderSide side, String price, long quantity) {
+        OrderCommand command = new OrderCommand();
+        command.setType(CommandType.NEW);
+        command.setSymbol("AAPL");
+        command.setSide(side);
+        command.setOrderType(OrderType.LIMIT);
+        command.setPrice(new BigDecimal(price));
+        command.setPriceTicks(new BigDecimal(price).movePointRight(2).longValueExact());
+        command.setQuantity(quantity);
+        command.setOrderId(11);
+        command.setTimestamp(99L);
+        return command;
+    }
+
+    private static OrderCommand cancel(long orderId) {
+        OrderCommand command = new OrderCommand();
+        command.setType(CommandType.CANCEL);
+        command.setSymbol("AAPL");
+        command.setOrderId(orderId);
+        command.setTimestamp(1L);
+        return command;
+    }
+
+    private static Order maker(long orderId) {
+        Order maker = new Order();
+        maker.setOrderId(orderId);
+        return maker;
+    }
+
+    private static class InMemorySequenceStore implements SequenceStore {
+        private final Map<String, Long> values = new HashMap<>();
+
+        @Override
+        public long load(String name) {
+            return values.getOrDefault(name, 0L);
+        }
+
+        @Override
+        public void store(String name, long value) {
+            values.put(name, value);
+        }
+    }
+}
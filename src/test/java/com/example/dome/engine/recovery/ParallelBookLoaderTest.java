@@ -0,0 +1,80 @@
+package com.example.dome.engine.recovery;
+
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelBookLoaderTest {
+
+    @Test
+    void testEachSymbolLoadsInReadOrderOneChunkAtATime() {
+        Map<String, List<Long>> books = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        ParallelBookLoader.Result result;
+        try (ParallelBookLoader loader = new ParallelBookLoader("test", 4, 7, (symbol, orders) -> {
+            AtomicInteger active = running.computeIfAbsent(symbol, s -> new AtomicInteger());
+            if (active.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            List<Long> book = books.computeIfAbsent(symbol, s -> new ArrayList<>());
+            for (Order order : orders) {
+                book.add(order.getOrderId());
+            }
+            active.decrementAndGet();
+        })) {
+            for (long id = 1; id <= 1000; id++) {
+                loader.add(order(id, "SYM" + (id % 5)));
+            }
+            result = loader.finish();
+        }
+
+        assertEquals(1000, result.orders());
+        assertEquals(5, result.symbols());
+        assertEquals(0, overlaps.get());
+        for (int s = 0; s < 5; s++) {
+            List<Long> book = books.get("SYM" + s);
+            assertEquals(200, book.size());
+            for (int i = 1; i < book.size(); i++) {
+                assertTrue(book.get(i - 1) < book.get(i), "orders of a symbol must stay in read order");
+            }
+        }
+    }
+
+    @Test
+    void testFailedChunkFailsFinish() {
+        try (ParallelBookLoader loader = new ParallelBookLoader("test", 2, 1, (symbol, orders) -> {
+            if (symbol.equals("BAD")) {
+                throw new IllegalStateException("corrupt order");
+            }
+        })) {
+            loader.add(order(1, "GOOD"));
+            loader.add(order(2, "BAD"));
+            CompletionException error = assertThrows(CompletionException.class, () -> {
+                // Once the failure is seen, further reading stops as well
+                for (long id = 3; id < 10_000; id++) {
+                    loader.add(order(id, "GOOD"));
+                }
+                loader.finish();
+            });
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+        }
+    }
+
+    private static Order order(long orderId, String symbol) {
+        return Order.builder().orderId(orderId).symbol(symbol).side(OrderSide.BUY).type(OrderType.LIMIT)
+                .status(OrderStatus.NEW).build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.dome.engine.snapshot;
+
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import com.example.dome.persistence.OrderCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWriteAndLoadRoundTrip() throws IOException {
+        BookSnapshotStore store = new BookSnapshotStore(dir);
+        Order first = order(1, OrderSide.BUY, "100.00", 10, 4);
+        Order second = order(2, OrderSide.SELL, "101.00", 5, 0);
+
+        store.write(0, "AAPL", 42, 2, encode(first, second));
+        store.write(0, "BRK/A", 40, 0, new byte[0]);
+
+        List<BookSnapshot> books = store.load(0);
+        assertEquals(2, books.size());
+        BookSnapshot aapl = books.stream().filter(b -> b.symbol().equals("AAPL")).findFirst().orElseThrow();
+        assertEquals(42, aapl.sequence());
+        assertEquals(2, aapl.orders().size());
+        assertEquals(1, aapl.orders().get(0).getOrderId());
+        assertEquals(4, aapl.orders().get(0).getFilledQuantity());
+        assertEquals(OrderSide.SELL, aapl.orders().get(1).getSide());
+        // Symbols that are not valid file names survive the round trip
+        assertTrue(books.stream().anyMatch(b -> b.symbol().equals("BRK/A") && b.orders().isEmpty()));
+
+        assertTrue(store.load(1).isEmpty());
+    }
+
+    @Test
+    void testManifest() throws IOException {
+        BookSnapshotStore store = new BookSnapshotStore(dir);
+        assertEquals(BookSnapshotStore.NO_SNAPSHOT, store.loadManifest(0));
+
+        store.writeManifest(0, 7);
+        store.writeManifest(0, 9);
+
+        assertEquals(9, store.loadManifest(0));
+        assertEquals(BookSnapshotStore.NO_SNAPSHOT, store.loadManifest(1));
+    }
+
+    @Test
+    void testCorruptBookFailsLoad() throws IOException {
+        BookSnapshotStore store = new BookSnapshotStore(dir);
+        store.write(0, "AAPL", 1, 1, encode(order(1, OrderSide.BUY, "100.00", 10, 0)));
+
+        Path file = dir.resolve("shard-0").resolve("AAPL.book");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[20] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> store.load(0));
+    }
+
+    static byte[] encode(Order... orders) {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (Order order : orders) {
+            buffer.putInt(OrderCodec.encodedSize(order));
+            OrderCodec.encode(order, buffer);
+        }
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    static Order order(long orderId, OrderSide side, String price, long quantity, long filled) {
+        return Order.builder()
+                .orderId(orderId)
+                .symbol("AAPL")
+                .side(side)
+                .type(OrderType.LIMIT)
+                .price(new BigDecimal(price))
+                .quantity(quantity)
+                .filledQuantity(filled)
+                .status(filled > 0 ? OrderStatus.PARTIALLY_FILLED : OrderStatus.NEW)
+                .timestamp(1L)
+                .build();
+    }
+}
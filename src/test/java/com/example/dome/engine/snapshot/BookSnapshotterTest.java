@@ -0,0 +1,100 @@
+package com.example.dome.engine.snapshot;
+
+import com.example.dome.engine.OrderBook;
+import com.example.dome.engine.PriceScale;
+import com.example.dome.engine.TreeMapOrderBook;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSnapshotterTest {
+
+    private static final PriceScale SCALE = new PriceScale(2);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testFirstRoundWritesEveryOwnedBookInBookOrder() throws Exception {
+        BookSnapshotStore store = new BookSnapshotStore(dir);
+        OrderBook aapl = book("AAPL");
+        rest(aapl, BookSnapshotStoreTest.order(1, OrderSide.BUY, "99.00", 10, 0));
+        rest(aapl, BookSnapshotStoreTest.order(2, OrderSide.BUY, "100.00", 10, 0));
+        rest(aapl, BookSnapshotStoreTest.order(3, OrderSide.SELL, "101.00", 10, 0));
+        OrderBook idle = book("MSFT");
+
+        BookSnapshotter snapshotter = new BookSnapshotter(store, 0, 0, () -> List.of(aapl, idle), () -> 5);
+        snapshot(snapshotter, store, 5);
+
+        List<BookSnapshot> books = store.load(0);
+        assertEquals(2, books.size());
+        BookSnapshot snapshot = books.stream().filter(b -> b.symbol().equals("AAPL")).findFirst().orElseThrow();
+        assertEquals(5, snapshot.sequence());
+        // Best bid first, then asks
+        assertEquals(List.of(2L, 1L, 3L), snapshot.orders().stream().map(Order::getOrderId).toList());
+        snapshotter.close();
+    }
+
+    @Test
+    void testLaterRoundsWriteOnlyChangedBooks() throws Exception {
+        BookSnapshotStore store = new BookSnapshotStore(dir);
+        OrderBook aapl = book("AAPL");
+        OrderBook msft = book("MSFT");
+        BookSnapshotter snapshotter = new BookSnapshotter(store, 0, 0, () -> List.of(aapl, msft), () -> Long.MAX_VALUE);
+        snapshot(snapshotter, store, 1);
+
+        Order order = BookSnapshotStoreTest.order(7, OrderSide.SELL, "101.00", 10, 0);
+        order.setSymbol("MSFT");
+        rest(msft, order);
+        snapshotter.touch(msft);
+        snapshot(snapshotter, store, 2);
+
+        for (BookSnapshot book : store.load(0)) {
+            // Untouched books keep their older file; the manifest vouches for them as of 2
+            assertEquals(book.symbol().equals("MSFT") ? 2 : 1, book.sequence());
+        }
+        snapshotter.close();
+    }
+
+    @Test
+    void testRoundWaitsForTheOrderStore() throws Exception {
+        BookSnapshotStore store = new BookSnapshotStore(dir);
+        AtomicLong persisted = new AtomicLong(3);
+        BookSnapshotter snapshotter = new BookSnapshotter(store, 0, 0, () -> List.of(book("AAPL")), persisted::get);
+        snapshotter.onEndOfBatch(4);
+
+        Thread.sleep(50);
+        assertEquals(BookSnapshotStore.NO_SNAPSHOT, store.loadManifest(0));
+        persisted.set(4);
+        snapshot(snapshotter, store, 4);
+        snapshotter.close();
+    }
+
+    private static OrderBook book(String symbol) {
+        return new TreeMapOrderBook(symbol, SCALE);
+    }
+
+    private static void rest(OrderBook book, Order order) {
+        order.setPriceTicks(SCALE.toTicks(order.getPrice()));
+        book.addOrder(order);
+    }
+
+    // Ends batches at this sequence until the round is on disk (a round in flight defers the next one)
+    private static void snapshot(BookSnapshotter snapshotter, BookSnapshotStore store, long sequence)
+            throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (store.loadManifest(0) != sequence) {
+            assertTrue(System.currentTimeMillis() < deadline, "no manifest at " + sequence);
+            snapshotter.onEndOfBatch(sequence);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.dome.event;
+
+import com.example.dome.analytics.archive.TradeArchive;
+import com.example.dome.cache.MarketDataCache;
+import com.example.dome.marketdata.BinaryMarketDataHandler;
+import com.example.dome.model.Trade;
+import com.example.dome.persistence.TradeWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventProcessorTest {
+
+    private final List<String> destinations = new ArrayList<>();
+    private final List<Object> payloads = new ArrayList<>();
+    private final List<BigDecimal> cachedBids = new ArrayList<>();
+
+    private final SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true) {
+        @Override
+        public void convertAndSend(String destination, Object payload) {
+            destinations.add(destination);
+            payloads.add(payload);
+        }
+    };
+
+    private final MarketDataCache marketDataCache = new MarketDataCache(null) {
+        @Override
+        public void updateBestBid(String symbol, BigDecimal price) {
+            cachedBids.add(price);
+        }
+
+        @Override
+        public void updateBestAsk(String symbol, BigDecimal price) {
+        }
+    };
+
+    // Disabled: no sessions, so nothing is encoded
+    private final BinaryMarketDataHandler binaryMarketData = new BinaryMarketDataHandler(false, 1000, 1024);
+
+    @Test
+    void testBookUpdatesAreConflatedUntilFlush() {
+        EventProcessor processor = new EventProcessor(null, null, marketDataCache, messagingTemplate, binaryMarketData);
+
+        processor.onBookUpdate("AAPL", new BigDecimal("99.00"), new BigDecimal("101.00"));
+        processor.onBookUpdate("AAPL", new BigDecimal("99.50"), new BigDecimal("101.00"));
+        processor.onBookUpdate("MSFT", new BigDecimal("300.00"), null);
+        processor.onBookUpdate("AAPL", new BigDecimal("100.00"), new BigDecimal("101.00"));
+        assertTrue(payloads.isEmpty());
+
+        processor.flushBookUpdates();
+
+        // One message per symbol, carrying its latest state
+        assertEquals(2, payloads.size());
+        int aapl = destinations.indexOf("/topic/book/AAPL");
+        assertEquals(new BigDecimal("100.00"), ((EventProcessor.BookUpdate) payloads.get(aapl)).bestBid());
+        assertTrue(destinations.contains("/topic/book/MSFT"));
+        assertEquals(2, cachedBids.size());
+
+        // Nothing left to send until the next update
+        processor.flushBookUpdates();
+        assertEquals(2, payloads.size());
+    }
+
+    @Test
+    void testTradesArePublishedAsOneArrayPerSymbol() {
+        // Queues only: neither writer thread is started
+        TradeWriter tradeWriter = new TradeWriter(null, 16, 1, 1, 0, 1, "unused");
+        TradeArchive tradeArchive = new TradeArchive(false, "unused", 16, 1);
+        EventProcessor processor = new EventProcessor(tradeWriter, tradeArchive, marketDataCache, messagingTemplate, binaryMarketData);
+
+        processor.onTrade(new TradeEvent(trade(1, "AAPL")));
+        processor.onTrade(new TradeEvent(trade(2, "MSFT")));
+        processor.onTrade(new TradeEvent(trade(3, "AAPL")));
+        assertTrue(payloads.isEmpty());
+
+        processor.flushTrades();
+
+        assertEquals(2, payloads.size());
+        List<?> aapl = (List<?>) payloads.get(destinations.indexOf("/topic/trades/AAPL"));
+        assertEquals(List.of(1L, 3L), aapl.stream().map(t -> ((Trade) t).getTradeId()).toList());
+
+        processor.flushTrades();
+        assertEquals(2, payloads.size());
+    }
+
+    private static Trade trade(long tradeId, String symbol) {
+        return Trade.builder()
+                .tradeId(tradeId)
+                .buyOrderId(1L)
+                .sellOrderId(2L)
+                .symbol(symbol)
+                .price(new BigDecimal("100.00"))
+                .quantity(1)
+                .timestamp(tradeId)
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.dome.integration;
 
+import com.example.dome.engine.EngineClock;
 import com.example.dome.model.Trade;
 import com.example.dome.model.Order;
 import com.example.dome.model.OrderSide;
@@ -24,7 +25,6 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -64,12 +64,13 @@ public class WebSocketTest {
         session.subscribe("/topic/trades/AAPL", new StompFrameHandler() {
             @Override
             public Type getPayloadType(StompHeaders headers) {
-                return Trade.class;
+                return Trade[].class;
             }
 
             @Override
             public void handleFrame(StompHeaders headers, Object payload) {
-                blockingQueue.offer((Trade) payload);
+                // One array per symbol per batch
+                Collections.addAll(blockingQueue, (Trade[]) payload);
             }
         });
         
@@ -78,18 +79,19 @@ public class WebSocketTest {
 
         // Simulate a trade
         Trade trade = Trade.builder()
-                .tradeId(UUID.randomUUID())
-                .buyOrderId(UUID.randomUUID())
-                .sellOrderId(UUID.randomUUID())
+                .tradeId(1L)
+                .buyOrderId(1L)
+                .sellOrderId(2L)
                 .symbol("AAPL")
                 .price(new BigDecimal("150.00"))
                 .quantity(100)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
         
         // We use eventProcessor.onTrade which publishes to WS
         // Note: onTrade creates a new TradeEvent wrapper
         eventProcessor.onTrade(new com.example.dome.event.TradeEvent(trade));
+        eventProcessor.flushTrades();
 
         Trade received = blockingQueue.poll(5, TimeUnit.SECONDS);
         assertNotNull(received, "Should receive a trade via WebSocket");
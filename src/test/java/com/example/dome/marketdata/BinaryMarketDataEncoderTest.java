@@ -0,0 +1,100 @@
+package com.example.dome.marketdata;
+
+import com.example.dome.event.DepthUpdate;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.Trade;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryMarketDataEncoderTest {
+
+    private final BinaryMarketDataEncoder encoder = new BinaryMarketDataEncoder();
+
+    @Test
+    void testTradesLayout() {
+        byte[] frame = encoder.encodeTrades("AAPL", List.of(
+                trade(7, "100.25", 30, 11, 12),
+                trade(8, "100.30", 5, 11, 13)));
+
+        ByteBuffer in = ByteBuffer.wrap(frame);
+        assertEquals(BinaryMarketDataEncoder.TRADES, in.get());
+        assertEquals(2, in.get());
+        assertEquals("AAPL", symbol(in));
+        assertEquals(2, in.getInt());
+
+        assertEquals(7, in.getLong());
+        assertEquals(1_000, in.getLong());
+        assertEquals(10025, in.getLong());
+        assertEquals(30, in.getLong());
+        assertEquals(11, in.getLong());
+        assertEquals(12, in.getLong());
+
+        in.position(in.position() + 2 * Long.BYTES);
+        assertEquals(10030, in.getLong());
+        assertEquals(5, in.getLong());
+        in.position(in.position() + 2 * Long.BYTES);
+        // Exact size: nothing trails the last record
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void testDepthLayout() {
+        DepthUpdate update = new DepthUpdate("MSFT", 42, 9_000, List.of(
+                new DepthUpdate.LevelChange(OrderSide.SELL, new BigDecimal("300.10"), 0),
+                new DepthUpdate.LevelChange(OrderSide.BUY, new BigDecimal("299.95"), 120)));
+
+        ByteBuffer in = ByteBuffer.wrap(encoder.encodeDepth(update));
+        assertEquals(BinaryMarketDataEncoder.DEPTH, in.get());
+        assertEquals(2, in.get());
+        assertEquals("MSFT", symbol(in));
+        assertEquals(42, in.getLong());
+        assertEquals(9_000, in.getLong());
+        assertEquals(2, in.getInt());
+        assertEquals(1, in.get());
+        assertEquals(30010, in.getLong());
+        assertEquals(0, in.getLong());
+        assertEquals(0, in.get());
+        assertEquals(29995, in.getLong());
+        assertEquals(120, in.getLong());
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void testBufferGrowsForLargeMessagesAndFramesAreIndependent() {
+        Trade[] trades = new Trade[500];
+        for (int i = 0; i < trades.length; i++) {
+            trades[i] = trade(i, "1.00", 1, 1, 2);
+        }
+        byte[] large = encoder.encodeTrades("AAPL", List.of(trades));
+        assertEquals(2 + 2 + 4 + 4 + trades.length * BinaryMarketDataEncoder.TRADE_BYTES, large.length);
+
+        byte[] copy = large.clone();
+        encoder.encodeTrades("AAPL", List.of(trade(1, "2.00", 1, 1, 2)));
+        // A frame handed out earlier is not touched by later encodes
+        assertArrayEquals(copy, large);
+    }
+
+    private static String symbol(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Trade trade(long tradeId, String price, long quantity, long buyOrderId, long sellOrderId) {
+        return Trade.builder()
+                .tradeId(tradeId)
+                .symbol("AAPL")
+                .buyOrderId(buyOrderId)
+                .sellOrderId(sellOrderId)
+                .price(new BigDecimal(price))
+                .quantity(quantity)
+                .timestamp(1_000)
+                .build();
+    }
+}
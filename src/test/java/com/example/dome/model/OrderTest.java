@@ -1,28 +1,31 @@
 package com.example.dome.model;
 
+import com.example.dome.engine.EngineClock;
 import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class OrderTest {
 
+    private long nextOrderId = 1;
+
     @Test
     void testOrderBuilderAndDefaults() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
                 .price(new BigDecimal("150.00"))
                 .quantity(100)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
-        assertNotNull(order.getOrderId());
+        assertEquals(1, order.getOrderId());
+        assertNull(order.getClientOrderId());
         assertEquals(0, order.getFilledQuantity());
         assertEquals(100, order.getRemainingQuantity());
         assertEquals(OrderStatus.NEW, order.getStatus());
@@ -31,14 +34,14 @@ class OrderTest {
     @Test
     void testValidatePositiveQuantity() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.MARKET)
                 .price(BigDecimal.ZERO)
                 .quantity(0) // Invalid
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         assertThrows(IllegalArgumentException.class, order::validate);
@@ -47,14 +50,14 @@ class OrderTest {
     @Test
     void testValidatePriceForLimitOrder() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
                 .price(BigDecimal.ZERO) // Invalid for Limit
                 .quantity(100)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         assertThrows(IllegalArgumentException.class, order::validate);
@@ -63,14 +66,14 @@ class OrderTest {
     @Test
     void testFillMethods() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
                 .price(new BigDecimal("150.00"))
                 .quantity(100)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         // Partial fill
@@ -89,14 +92,14 @@ class OrderTest {
     @Test
     void testOverfillThrowsException() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
                 .price(new BigDecimal("150.00"))
                 .quantity(100)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         assertThrows(IllegalArgumentException.class, () -> order.fill(101));
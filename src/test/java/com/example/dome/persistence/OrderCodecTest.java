@@ -0,0 +1,196 @@
+package com.example.dome.persistence;
+
+import com.example.dome.engine.EngineClock;
+import com.example.dome.model.Order;
+import com.example.dome.model.OrderSide;
+import com.example.dome.model.OrderStatus;
+import com.example.dome.model.OrderType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        Order order = Order.builder()
+                .orderId((3L << 48) | 42)
+                .clientOrderId(UUID.randomUUID())
+                .symbol("BTCUSD")
+                .side(OrderSide.SELL)
+                .type(OrderType.LIMIT)
+                .price(new BigDecimal("64123.45000000"))
+                .quantity(100)
+                .filledQuantity(40)
+                .status(OrderStatus.PARTIALLY_FILLED)
+                .timestamp(1_700_000_000_123_456_789L)
+                .build();
+
+        byte[] bytes = OrderCodec.encode(order);
+        assertEquals(OrderCodec.VERSION_1, bytes[0]);
+        assertEquals(64 + "BTCUSD".length(), bytes.length);
+
+        Order decoded = OrderCodec.decode(bytes);
+        assertEquals(order.getOrderId(), decoded.getOrderId());
+        assertEquals(order.getClientOrderId(), decoded.getClientOrderId());
+        assertEquals("BTCUSD", decoded.getSymbol());
+        assertEquals(OrderSide.SELL, decoded.getSide());
+        assertEquals(OrderType.LIMIT, decoded.getType());
+        // Scale survives, not just the value
+        assertEquals(new BigDecimal("64123.45000000"), decoded.getPrice());
+        assertEquals(100, decoded.getQuantity());
+        assertEquals(40, decoded.getFilledQuantity());
+        assertEquals(OrderStatus.PARTIALLY_FILLED, decoded.getStatus());
+        assertEquals(order.getTimestamp(), decoded.getTimestamp());
+    }
+
+    @Test
+    void testMarketOrderWithoutClientIdOrPrice() {
+        Order order = Order.builder()
+                .orderId(7)
+                .symbol("AAPL")
+                .side(OrderSide.BUY)
+                .type(OrderType.MARKET)
+                .quantity(5)
+                .status(OrderStatus.FILLED)
+                .build();
+
+        Order decoded = OrderCodec.decode(OrderCodec.encode(order));
+        assertNull(decoded.getClientOrderId());
+        assertNull(decoded.getPrice());
+        assertEquals(OrderType.MARKET, decoded.getType());
+    }
+
+    @Test
+    void testReadsLegacyRecords() throws IOException {
+        UUID clientOrderId = UUID.randomUUID();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            dos.writeLong(99);
+            dos.writeBoolean(true);
+            dos.writeLong(clientOrderId.getMostSignificantBits());
+            dos.writeLong(clientOrderId.getLeastSignificantBits());
+            dos.writeUTF("AAPL");
+            dos.writeUTF("BUY");
+            dos.writeUTF("LIMIT");
+            dos.writeBoolean(true);
+            dos.writeUTF("150.25");
+            dos.writeLong(10);
+            dos.writeLong(3);
+            dos.writeUTF("PARTIALLY_FILLED");
+            dos.writeLong(123L);
+        }
+        byte[] legacy = baos.toByteArray();
+
+        Order decoded = OrderCodec.decode(legacy);
+        assertEquals(99, decoded.getOrderId());
+        assertEquals(clientOrderId, decoded.getClientOrderId());
+        assertEquals(new BigDecimal("150.25"), decoded.getPrice());
+        assertEquals(OrderStatus.PARTIALLY_FILLED, decoded.getStatus());
+        assertEquals(123L, decoded.getTimestamp());
+
+        // Migration: re-encoding writes the versioned format, which is smaller
+        byte[] migrated = OrderCodec.encode(decoded);
+        assertEquals(OrderCodec.VERSION_1, migrated[0]);
+        assertTrue(migrated.length < legacy.length);
+    }
+
+    @Test
+    void testReadsUuidKeyedRecords() throws IOException {
+        UUID id = UUID.randomUUID();
+        Instant timestamp = Instant.parse("2024-01-02T03:04:05.678Z");
+        byte[] original = uuidRecord(id, "AAPL", OrderSide.SELL, OrderType.LIMIT, new BigDecimal("150.25"),
+                10, 4, OrderStatus.PARTIALLY_FILLED, timestamp);
+
+        Order decoded = OrderCodec.decode(original);
+        // No long ID yet: the store assigns one when it migrates the record
+        assertEquals(0, decoded.getOrderId());
+        assertEquals(id, decoded.getClientOrderId());
+        assertEquals("AAPL", decoded.getSymbol());
+        assertEquals(OrderSide.SELL, decoded.getSide());
+        assertEquals(OrderType.LIMIT, decoded.getType());
+        assertEquals(new BigDecimal("150.25"), decoded.getPrice());
+        assertEquals(10, decoded.getQuantity());
+        assertEquals(4, decoded.getFilledQuantity());
+        assertEquals(OrderStatus.PARTIALLY_FILLED, decoded.getStatus());
+        assertEquals(EngineClock.epochNanos(timestamp), decoded.getTimestamp());
+
+        Order market = OrderCodec.decode(uuidRecord(UUID.randomUUID(), "AAPL", OrderSide.BUY, OrderType.MARKET, null,
+                5, 5, OrderStatus.FILLED, timestamp));
+        assertNull(market.getPrice());
+    }
+
+    @Test
+    void testUnversionedRecordOfShard36IsNotTakenForUuidKeyed() throws IOException {
+        // Same first two bytes as a UUID record: 0x00, 36
+        long orderId = (36L << 48) | 7;
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            dos.writeLong(orderId);
+            dos.writeBoolean(false);
+            dos.writeUTF("AAPL");
+            dos.writeUTF("BUY");
+            dos.writeUTF("MARKET");
+            dos.writeBoolean(false);
+            dos.writeLong(10);
+            dos.writeLong(0);
+            dos.writeUTF("NEW");
+            dos.writeLong(123L);
+        }
+
+        assertEquals(orderId, OrderCodec.decode(baos.toByteArray()).getOrderId());
+    }
+
+    @Test
+    void testUnknownVersionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> OrderCodec.decode(new byte[]{(byte) 0x82, 0, 0}));
+    }
+
+    @Test
+    void testUnnormalisedPriceIsRejected() {
+        Order order = Order.builder()
+                .orderId(7)
+                .symbol("AAPL")
+                .side(OrderSide.BUY)
+                .type(OrderType.LIMIT)
+                .price(new BigDecimal("1E+3"))
+                .quantity(10)
+                .status(OrderStatus.NEW)
+                .build();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> OrderCodec.encode(order));
+        assertTrue(e.getMessage().contains("scale -3"));
+
+        order.setPrice(new BigDecimal("100000000000000000000.00"));
+        assertThrows(IllegalArgumentException.class, () -> OrderCodec.encode(order));
+    }
+
+    // Exactly what the original RocksDBOrderDao.serialize wrote, when orders had UUID IDs
+    static byte[] uuidRecord(UUID id, String symbol, OrderSide side, OrderType type, BigDecimal price,
+                             long quantity, long filledQuantity, OrderStatus status, Instant timestamp) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            dos.writeUTF(id.toString());
+            dos.writeUTF(symbol);
+            dos.writeUTF(side.name());
+            dos.writeUTF(type.name());
+            if (price != null) {
+                dos.writeBoolean(true);
+                dos.writeUTF(price.toString());
+            } else {
+                dos.writeBoolean(false);
+            }
+            dos.writeLong(quantity);
+            dos.writeLong(filledQuantity);
+            dos.writeUTF(status.name());
+            dos.writeLong(timestamp.toEpochMilli());
+        }
+        return baos.toByteArray();
+    }
+}
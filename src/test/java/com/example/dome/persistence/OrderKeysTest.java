@@ -0,0 +1,31 @@
+package com.example.dome.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderKeysTest {
+
+    @Test
+    void testSymbolPrefixIsFnv1a64() {
+        // Stored in every live key: a change here orphans every resting order
+        assertEquals(0xcbf29ce484222325L, OrderKeys.symbolPrefix(""));
+        assertEquals(0xaf63dc4c8601ec8cL, OrderKeys.symbolPrefix("a"));
+        assertNotEquals(OrderKeys.symbolPrefix("AAPL"), OrderKeys.symbolPrefix("MSFT"));
+    }
+
+    @Test
+    void testLiveKeysOfASymbolShareItsPrefixAndSortById() {
+        byte[] prefix = OrderKeys.prefixKey(OrderKeys.symbolPrefix("AAPL"));
+        byte[] first = OrderKeys.liveKey("AAPL", 1);
+        byte[] second = OrderKeys.liveKey("AAPL", 256);
+
+        assertTrue(OrderKeys.hasPrefix(first, prefix));
+        assertTrue(OrderKeys.hasPrefix(second, prefix));
+        assertFalse(OrderKeys.hasPrefix(OrderKeys.liveKey("MSFT", 1), prefix));
+        assertTrue(java.util.Arrays.compareUnsigned(first, second) < 0);
+        assertEquals(256, ByteBuffer.wrap(second, OrderKeys.SYMBOL_PREFIX_BYTES, Long.BYTES).getLong());
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.dome.persistence;
 
+import com.example.dome.engine.EngineClock;
+import com.example.dome.engine.SequenceIdGenerator;
 import com.example.dome.model.Order;
 import com.example.dome.model.OrderSide;
 import com.example.dome.model.OrderStatus;
@@ -7,16 +9,19 @@ import com.example.dome.model.OrderType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.rocksdb.Options;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.DBOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
@@ -25,7 +30,10 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class RocksDBOrderDaoTest {
 
+    private long nextOrderId = 1;
+
     private RocksDB rocksDB;
+    private final List<ColumnFamilyHandle> handles = new ArrayList<>();
     private RocksDBOrderDao orderDao;
     private File tempDbDir;
 
@@ -36,13 +44,14 @@ class RocksDBOrderDaoTest {
         Path tempPath = Files.createTempDirectory("rocksdb_test_");
         tempDbDir = tempPath.toFile();
         
-        Options options = new Options().setCreateIfMissing(true);
-        rocksDB = RocksDB.open(options, tempDbDir.getAbsolutePath());
-        orderDao = new RocksDBOrderDao(rocksDB);
+        DBOptions options = new DBOptions().setCreateIfMissing(true).setCreateMissingColumnFamilies(true);
+        rocksDB = RocksDB.open(options, tempDbDir.getAbsolutePath(), OrderColumnFamilies.descriptors(), handles);
+        orderDao = new RocksDBOrderDao(rocksDB, OrderColumnFamilies.of(handles), new RocksDBSequenceStore(rocksDB));
     }
 
     @AfterEach
     void tearDown() {
+        handles.forEach(ColumnFamilyHandle::close);
         if (rocksDB != null) {
             rocksDB.close();
         }
@@ -53,7 +62,7 @@ class RocksDBOrderDaoTest {
     @Test
     void testSaveAndFind() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("AAPL")
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
@@ -61,17 +70,44 @@ class RocksDBOrderDaoTest {
                 .quantity(100)
                 .filledQuantity(0)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         orderDao.save(order);
 
-        Order retrieved = orderDao.findById(order.getOrderId().toString());
+        Order retrieved = orderDao.findById(order.getOrderId());
         assertNotNull(retrieved);
         assertEquals(order.getOrderId(), retrieved.getOrderId());
         assertEquals(order.getPrice(), retrieved.getPrice());
         assertEquals(order.getStatus(), retrieved.getStatus());
-        assertEquals(order.getTimestamp().toEpochMilli(), retrieved.getTimestamp().toEpochMilli());
+        assertEquals(order.getTimestamp(), retrieved.getTimestamp());
+    }
+
+    @Test
+    void testWriteBatchIsInvisibleUntilCommit() {
+        Order order = Order.builder()
+                .orderId(nextOrderId++)
+                .symbol("AAPL")
+                .side(OrderSide.SELL)
+                .type(OrderType.LIMIT)
+                .price(new BigDecimal("151.00"))
+                .quantity(10)
+                .status(OrderStatus.NEW)
+                .timestamp(EngineClock.epochNanos(Instant.now()))
+                .build();
+
+        try (OrderWriteBatch batch = orderDao.newWriteBatch()) {
+            batch.save(order);
+            // Serialized on save: later changes to the instance are not in the batch
+            order.setStatus(OrderStatus.CANCELED);
+            assertEquals(1, batch.size());
+            assertNull(orderDao.findById(order.getOrderId()));
+
+            batch.commit();
+            assertEquals(0, batch.size());
+        }
+
+        assertEquals(OrderStatus.NEW, orderDao.findById(order.getOrderId()).getStatus());
     }
 
     @Test
@@ -91,21 +127,150 @@ class RocksDBOrderDaoTest {
         assertEquals("GOOG", all.get(1).getSymbol());
     }
 
+    @Test
+    void testFindAllSkipsSequenceKeys() {
+        orderDao.save(createOrder("AAPL", 100));
+        new RocksDBSequenceStore(rocksDB).store("order/0", 10_000);
+
+        assertEquals(1, orderDao.findAll().size());
+        assertEquals(10_000, new RocksDBSequenceStore(rocksDB).load("order/0"));
+    }
+
+    @Test
+    void testTerminalOrderMovesToArchive() {
+        Order order = createOrder("AAPL", 100);
+        orderDao.save(order);
+        assertEquals(1, orderDao.findActive().size());
+
+        order.setStatus(OrderStatus.CANCELED);
+        orderDao.save(order);
+
+        assertTrue(orderDao.findActive().isEmpty());
+        assertEquals(1, orderDao.findAll().size());
+        assertEquals(OrderStatus.CANCELED, orderDao.findById(order.getOrderId()).getStatus());
+    }
+
+    @Test
+    void testMigratesOrdersFromDefaultColumnFamily() throws RocksDBException {
+        Order resting = createOrder("AAPL", 100);
+        Order filled = createOrder("AAPL", 50);
+        filled.setStatus(OrderStatus.FILLED);
+        // Written the way versions without column families did
+        rocksDB.put(ByteBuffer.allocate(Long.BYTES).putLong(resting.getOrderId()).array(), OrderCodec.encode(resting));
+        rocksDB.put(ByteBuffer.allocate(Long.BYTES).putLong(filled.getOrderId()).array(), OrderCodec.encode(filled));
+        new RocksDBSequenceStore(rocksDB).store("order/0", 10_000);
+
+        orderDao.migrateDefaultColumnFamily();
+
+        List<Order> active = orderDao.findActive();
+        assertEquals(1, active.size());
+        assertEquals(resting.getOrderId(), active.get(0).getOrderId());
+        assertEquals(2, orderDao.findAll().size());
+        assertNull(rocksDB.get(ByteBuffer.allocate(Long.BYTES).putLong(resting.getOrderId()).array()));
+        assertEquals(10_000, new RocksDBSequenceStore(rocksDB).load("order/0"));
+    }
+
+    @Test
+    void testMigratesUuidKeyedOrdersUnderNewIds() throws Exception {
+        UUID restingId = UUID.randomUUID();
+        UUID filledId = UUID.randomUUID();
+        Instant timestamp = Instant.parse("2024-01-02T03:04:05Z");
+        // Written the way the original version did: UUID string keys in the default family
+        rocksDB.put(restingId.toString().getBytes(), OrderCodecTest.uuidRecord(restingId, "AAPL", OrderSide.BUY,
+                OrderType.LIMIT, new BigDecimal("150.00"), 100, 0, OrderStatus.NEW, timestamp));
+        rocksDB.put(filledId.toString().getBytes(), OrderCodecTest.uuidRecord(filledId, "AAPL", OrderSide.SELL,
+                OrderType.LIMIT, new BigDecimal("149.00"), 10, 10, OrderStatus.FILLED, timestamp));
+
+        orderDao.migrateDefaultColumnFamily();
+
+        List<Order> active = orderDao.findActive();
+        assertEquals(1, active.size());
+        assertEquals(restingId, active.get(0).getClientOrderId());
+        assertEquals(100, active.get(0).getQuantity());
+        assertEquals((long) orderDao.findMigratedId(restingId), active.get(0).getOrderId());
+        assertEquals(SequenceIdGenerator.MIGRATION_SHARD, SequenceIdGenerator.shardOf(active.get(0).getOrderId()));
+        assertEquals(OrderStatus.FILLED, orderDao.findById(orderDao.findMigratedId(filledId)).getStatus());
+        assertEquals(2, orderDao.findAll().size());
+        assertNull(rocksDB.get(restingId.toString().getBytes()));
+
+        // The mapping stays behind; running again changes nothing
+        orderDao.migrateDefaultColumnFamily();
+        assertEquals(2, orderDao.findAll().size());
+    }
+
+    @Test
+    void testMigratedOrdersAreNumberedInTimestampOrder() throws Exception {
+        // Key order is the reverse of entry order
+        UUID earlier = UUID.fromString("ffffffff-0000-0000-0000-000000000000");
+        UUID later = UUID.fromString("00000000-0000-0000-0000-000000000000");
+        rocksDB.put(earlier.toString().getBytes(), OrderCodecTest.uuidRecord(earlier, "AAPL", OrderSide.BUY,
+                OrderType.LIMIT, new BigDecimal("150.00"), 100, 0, OrderStatus.NEW, Instant.parse("2024-01-02T03:04:05Z")));
+        rocksDB.put(later.toString().getBytes(), OrderCodecTest.uuidRecord(later, "AAPL", OrderSide.BUY,
+                OrderType.LIMIT, new BigDecimal("150.00"), 100, 0, OrderStatus.NEW, Instant.parse("2024-01-02T03:04:06Z")));
+
+        orderDao.migrateDefaultColumnFamily();
+
+        assertTrue(orderDao.findMigratedId(earlier) < orderDao.findMigratedId(later));
+    }
+
+    @Test
+    void testUnrecognisedDefaultFamilyKeyFailsMigration() throws RocksDBException {
+        rocksDB.put("something-else".getBytes(), new byte[]{1, 2, 3});
+
+        assertThrows(IllegalStateException.class, () -> orderDao.migrateDefaultColumnFamily());
+    }
+
+    @Test
+    void testForEachActiveOfOneSymbol() {
+        Order aapl1 = createOrder("AAPL", 100);
+        Order msft = createOrder("MSFT", 100);
+        Order aapl2 = createOrder("AAPL", 200);
+        Order filled = createOrder("AAPL", 300);
+        filled.setStatus(OrderStatus.FILLED);
+        orderDao.save(aapl1);
+        orderDao.save(msft);
+        orderDao.save(aapl2);
+        orderDao.save(filled);
+
+        List<Long> ids = new ArrayList<>();
+        orderDao.forEachActive("AAPL", order -> ids.add(order.getOrderId()));
+
+        // Only the symbol's resting orders, in ID (time priority) order
+        assertEquals(List.of(aapl1.getOrderId(), aapl2.getOrderId()), ids);
+        assertEquals(OrderStatus.FILLED, orderDao.findById(filled.getOrderId()).getStatus());
+    }
+
+    @Test
+    void testMigratesUnprefixedLiveKeys() throws RocksDBException {
+        Order resting = createOrder("AAPL", 100);
+        // Written the way versions before symbol prefixes did
+        rocksDB.put(handles.get(1), ByteBuffer.allocate(Long.BYTES).putLong(resting.getOrderId()).array(),
+                OrderCodec.encode(resting));
+
+        orderDao.migrateLiveKeys();
+
+        assertNotNull(orderDao.findById(resting.getOrderId()));
+        List<Order> aapl = new ArrayList<>();
+        orderDao.forEachActive("AAPL", aapl::add);
+        assertEquals(1, aapl.size());
+        assertEquals(1, orderDao.findActive().size());
+    }
+
     @Test
     void testDelete() {
         Order o1 = createOrder("AAPL", 100);
         orderDao.save(o1);
         
-        assertNotNull(orderDao.findById(o1.getOrderId().toString()));
+        assertNotNull(orderDao.findById(o1.getOrderId()));
         
-        orderDao.delete(o1.getOrderId().toString());
-        assertNull(orderDao.findById(o1.getOrderId().toString()));
+        orderDao.delete(o1.getOrderId());
+        assertNull(orderDao.findById(o1.getOrderId()));
     }
     
     @Test
     void testSaveMarketOrderWithNullPrice() {
         Order market = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("MSFT")
                 .side(OrderSide.SELL)
                 .type(OrderType.MARKET)
@@ -113,12 +278,12 @@ class RocksDBOrderDaoTest {
                 .quantity(50)
                 .filledQuantity(0)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
                 
         orderDao.save(market);
         
-        Order retrieved = orderDao.findById(market.getOrderId().toString());
+        Order retrieved = orderDao.findById(market.getOrderId());
         assertNotNull(retrieved);
         assertNull(retrieved.getPrice());
         assertEquals(OrderType.MARKET, retrieved.getType());
@@ -126,7 +291,7 @@ class RocksDBOrderDaoTest {
 
     private Order createOrder(String symbol, long qty) {
          return Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol(symbol)
                 .side(OrderSide.BUY)
                 .type(OrderType.LIMIT)
@@ -134,7 +299,7 @@ class RocksDBOrderDaoTest {
                 .quantity(qty)
                 .filledQuantity(0)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
     }
 
@@ -0,0 +1,181 @@
+package com.example.dome.persistence;
+
+import com.example.dome.model.Trade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private final RecordingTradeRepository repository = new RecordingTradeRepository();
+    private TradeWriter writer;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    void testTradesAreWrittenInBatches() throws Exception {
+        writer = new TradeWriter(repository, 1024, 10, 50, 3, 1, dir.toString());
+        for (int i = 1; i <= 25; i++) {
+            writer.write(trade(i));
+        }
+        writer.start();
+
+        awaitWritten(25);
+        assertEquals(List.of(10, 10, 5), repository.batchSizes);
+    }
+
+    @Test
+    void testFailedBatchIsRetried() throws Exception {
+        repository.failures.set(2);
+        writer = new TradeWriter(repository, 1024, 10, 1, 3, 1, dir.toString());
+        writer.start();
+        writer.write(trade(1));
+
+        awaitWritten(1);
+        assertFalse(Files.exists(dir.resolve(TradeWriter.SPILL_FILE)));
+    }
+
+    @Test
+    void testStalledDatabaseSpillsAndWritesBackLater() throws Exception {
+        repository.failures.set(Integer.MAX_VALUE);
+        writer = new TradeWriter(repository, 1024, 10, 1, 1, 1, dir.toString());
+        writer.start();
+        writer.write(trade(1));
+        writer.write(trade(2));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Files.exists(dir.resolve(TradeWriter.SPILL_FILE))) {
+            assertTrue(System.currentTimeMillis() < deadline, "nothing spilled");
+            Thread.sleep(5);
+        }
+
+        // The database recovers: the next batch goes through and pulls the spilled trades after it
+        repository.failures.set(0);
+        writer.write(trade(3));
+        awaitWritten(3);
+        assertEquals(List.of(1L, 2L, 3L), repository.written.stream().map(Trade::getTradeId).sorted().toList());
+        assertFalse(Files.exists(dir.resolve(TradeWriter.REPLAY_FILE)));
+    }
+
+    @Test
+    void testFullQueueSpillsOnTheWriterThreadInsteadOfBlocking() throws Exception {
+        // Not started: nothing drains the queue
+        writer = new TradeWriter(repository, 2, 10, 1, 0, 1, dir.toString());
+        writer.write(trade(1));
+        writer.write(trade(2));
+        writer.write(trade(3));
+
+        // The caller does no file I/O; the overflow waits for the writer thread
+        assertFalse(Files.exists(dir.resolve(TradeWriter.SPILL_FILE)));
+
+        writer.start();
+        awaitWritten(3);
+    }
+
+    @Test
+    void testLinesTheDatabaseRejectsDoNotBlockTheWriteBack() throws Exception {
+        // Trade 2 is already in the table (e.g. published twice)
+        repository.duplicates.add(2L);
+        Files.write(dir.resolve(TradeWriter.SPILL_FILE), List.of(TradeWriter.toLine(trade(1)), "not,a,trade",
+                TradeWriter.toLine(trade(2)), TradeWriter.toLine(trade(3))));
+        writer = new TradeWriter(repository, 1024, 10, 1, 0, 1, dir.toString());
+        writer.start();
+
+        awaitWritten(2);
+        assertEquals(List.of(1L, 3L), repository.written.stream().map(Trade::getTradeId).sorted().toList());
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.exists(dir.resolve(TradeWriter.REPLAY_FILE))) {
+            assertTrue(System.currentTimeMillis() < deadline, "write-back did not finish");
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("not,a,trade", TradeWriter.toLine(trade(2))),
+                Files.readAllLines(dir.resolve(TradeWriter.REJECTED_FILE)));
+    }
+
+    @Test
+    void testSpillLineRoundTrip() {
+        Trade trade = TradeWriter.fromLine(TradeWriter.toLine(trade(5)));
+        assertEquals(5, trade.getTradeId());
+        assertEquals("AAPL", trade.getSymbol());
+        assertEquals(50, trade.getBuyOrderId());
+        assertEquals(40, trade.getSellOrderId());
+        assertEquals(new BigDecimal("100.50"), trade.getPrice());
+        assertEquals(7, trade.getQuantity());
+        assertEquals(99L, trade.getTimestamp());
+    }
+
+    @Test
+    void testSpillLineEscapesTheSymbol() {
+        Trade trade = trade(6);
+        trade.setSymbol("BRK,B%2C\n");
+
+        String line = TradeWriter.toLine(trade);
+
+        assertEquals(7, line.split(",").length);
+        assertFalse(line.contains("\n"));
+        assertEquals("BRK,B%2C\n", TradeWriter.fromLine(line).getSymbol());
+    }
+
+    private void awaitWritten(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (repository.written.size() < count) {
+            assertTrue(System.currentTimeMillis() < deadline, "only " + repository.written.size() + " written");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Trade trade(long tradeId) {
+        return Trade.builder()
+                .tradeId(tradeId)
+                .symbol("AAPL")
+                .buyOrderId(tradeId * 10)
+                .sellOrderId(40)
+                .price(new BigDecimal("100.50"))
+                .quantity(7)
+                .timestamp(99L)
+                .build();
+    }
+
+    private static class RecordingTradeRepository extends TradeRepository {
+        final List<Trade> written = new CopyOnWriteArrayList<>();
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final AtomicInteger failures = new AtomicInteger();
+        final Set<Long> duplicates = ConcurrentHashMap.newKeySet();
+
+        RecordingTradeRepository() {
+            super(null);
+        }
+
+        @Override
+        public void saveAll(List<Trade> trades) {
+            if (failures.getAndUpdate(n -> n == Integer.MAX_VALUE ? n : Math.max(0, n - 1)) > 0) {
+                throw new RuntimeException("database unavailable");
+            }
+            if (trades.stream().anyMatch(trade -> duplicates.contains(trade.getTradeId()))) {
+                throw new DataIntegrityViolationException("duplicate trade_id");
+            }
+            batchSizes.add(trades.size());
+            written.addAll(trades);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.dome.validation;
 
+import com.example.dome.engine.EngineClock;
 import com.example.dome.model.Order;
 import com.example.dome.model.OrderSide;
 import com.example.dome.model.OrderStatus;
@@ -8,26 +9,27 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class OrderValidatorTest {
 
+    private long nextOrderId = 1;
+
     private final OrderValidator validator = new OrderValidator();
 
     @Test
     void testValidLimitOrder() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("TSLA")
                 .side(OrderSide.SELL)
                 .type(OrderType.LIMIT)
                 .price(new BigDecimal("900.00"))
                 .quantity(10)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         assertDoesNotThrow(() -> validator.validateOrder(order));
@@ -36,14 +38,14 @@ class OrderValidatorTest {
     @Test
     void testMissingSymbol() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("") // Empty symbol
                 .side(OrderSide.SELL)
                 .type(OrderType.MARKET)
                 .price(BigDecimal.ZERO)
                 .quantity(10)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         assertThrows(IllegalArgumentException.class, () -> validator.validateOrder(order));
@@ -52,14 +54,14 @@ class OrderValidatorTest {
     @Test
     void testLimitOrderWithoutPrice() {
         Order order = Order.builder()
-                .orderId(UUID.randomUUID())
+                .orderId(nextOrderId++)
                 .symbol("TSLA")
                 .side(OrderSide.SELL)
                 .type(OrderType.LIMIT)
                 .price(null) // Missing price for Limit
                 .quantity(10)
                 .status(OrderStatus.NEW)
-                .timestamp(Instant.now())
+                .timestamp(EngineClock.epochNanos(Instant.now()))
                 .build();
 
         // The builder might allow null, but validate should catch it? 